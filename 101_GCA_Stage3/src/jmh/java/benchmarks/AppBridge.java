@@ -0,0 +1,104 @@
+package benchmarks;
+
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.Connection;
+import java.sql.ResultSet;
+
+/**
+ * This class is used to call the application classes from the benchmarks.
+ * JMH does not allow benchmarks in the default package, and Java does not allow a named package
+ * to import classes from the default package, so the application methods are looked up once
+ * as static final MethodHandles (which the JIT inlines like a direct call).
+ * @since 16/10/2026
+ */
+final class AppBridge {
+
+    private static final MethodHandle CONNECT = find("DBConnect", "connect",
+            MethodType.methodType(Connection.class, String.class));
+    private static final MethodHandle DISCONNECT = find("DBConnect", "disconnect",
+            MethodType.methodType(boolean.class, Connection.class));
+    private static final MethodHandle EXECUTE_QUERY = find("DBCommand", "executeQuery",
+            MethodType.methodType(ResultSet.class, Connection.class, String.class));
+    private static final MethodHandle EXECUTE_PREPARED_QUERY = find("DBCommand", "executePreparedQuery",
+            MethodType.methodType(ResultSet.class, Connection.class, String.class, Object[].class));
+    private static final MethodHandle EXECUTE_PREPARED_UPDATE = find("DBCommand", "executePreparedUpdate",
+            MethodType.methodType(int.class, Connection.class, String.class, Object[].class));
+    private static final MethodHandle EXECUTE_BATCH_UPDATE = find("DBCommand", "executeBatchUpdate",
+            MethodType.methodType(int[].class, Connection.class, String.class, Iterable.class, int.class));
+    private static final MethodHandle SHOW_GENERIC_QUERY_RESULT = find("DBOutputFormatter", "showGenericQueryResult",
+            MethodType.methodType(int.class, String.class, ResultSet.class, Writer.class));
+
+    private AppBridge() {
+    }
+
+    static Connection connect(String dbFilePath) {
+        try {
+            return (Connection) CONNECT.invokeExact(dbFilePath);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static boolean disconnect(Connection conn) {
+        try {
+            return (boolean) DISCONNECT.invokeExact(conn);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static ResultSet executeQuery(Connection conn, String query) {
+        try {
+            return (ResultSet) EXECUTE_QUERY.invokeExact(conn, query);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static ResultSet executePreparedQuery(Connection conn, String query, Object[] params) {
+        try {
+            return (ResultSet) EXECUTE_PREPARED_QUERY.invokeExact(conn, query, params);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static int executePreparedUpdate(Connection conn, String query, Object[] params) {
+        try {
+            return (int) EXECUTE_PREPARED_UPDATE.invokeExact(conn, query, params);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static int[] executeBatchUpdate(Connection conn, String query, Iterable<Object[]> rows, int chunkSize) {
+        try {
+            return (int[]) EXECUTE_BATCH_UPDATE.invokeExact(conn, query, rows, chunkSize);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static int showGenericQueryResult(String title, ResultSet resultSet, Writer out) {
+        try {
+            return (int) SHOW_GENERIC_QUERY_RESULT.invokeExact(title, resultSet, out);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Looks up a public static method of a class in the default package
+     */
+    private static MethodHandle find(String className, String methodName, MethodType type) {
+        try {
+            Class<?> owner = Class.forName(className);
+            return MethodHandles.publicLookup().findStatic(owner, methodName, type);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
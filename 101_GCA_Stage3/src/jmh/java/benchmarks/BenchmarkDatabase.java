@@ -0,0 +1,142 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+
+/**
+ * This class is used to generate synthetic players/games/playergames databases for the benchmarks.
+ * The tables have the same (untyped) columns as the sample database. Generated files are kept in
+ * target/bench-db and reused by later runs, since the 10M row database takes a while to build.
+ * @since 16/10/2026
+ */
+final class BenchmarkDatabase {
+
+    // Folder the generated databases are written to
+    private static final String DB_FOLDER = "target/bench-db";
+
+    // Number of games, and score rows per player
+    static final int GAME_COUNT = 100;
+    private static final int ROWS_PER_PLAYER = 10;
+
+    private static final String[] GENRES = {"Shooter", "Platform", "Action-Adventure", "Sandbox", "Puzzle", "Racing"};
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Returns the path of a database with the given number of playergames rows, generating it if needed
+     * @param rows Number of playergames rows
+     * @return String path to the database file
+     */
+    static synchronized String ensure(int rows) {
+        File file = new File(DB_FOLDER, "bench_" + rows + ".sqlite");
+        if (!file.exists()) {
+            generate(file, rows);
+        }
+        return file.getPath();
+    }
+
+    /**
+     * Copies a generated database so that a write benchmark does not change the shared one
+     * @param rows Number of playergames rows
+     * @return String path to the copy
+     */
+    static String copyOf(int rows) {
+        try {
+            Path copy = Files.createTempFile(Path.of(DB_FOLDER), "bench_" + rows + "_", ".sqlite");
+            Files.copy(Path.of(ensure(rows)), copy, StandardCopyOption.REPLACE_EXISTING);
+            copy.toFile().deleteOnExit();
+            return copy.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not copy benchmark database: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param rows Number of playergames rows
+     * @return int number of players in a database of that size
+     */
+    static int playerCount(int rows) {
+        return Math.max(1, rows / ROWS_PER_PLAYER);
+    }
+
+    /**
+     * Writes a new database file with the three tables filled with random data
+     */
+    private static void generate(File file, int rows) {
+        file.getParentFile().mkdirs();
+        File partial = new File(file.getPath() + ".tmp");
+        partial.delete();
+
+        System.out.println("Generating benchmark database with " + rows + " rows: " + file);
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + partial.getPath())) {
+            try (Statement statement = conn.createStatement()) {
+                statement.executeUpdate("PRAGMA journal_mode=OFF");
+                statement.executeUpdate("PRAGMA synchronous=OFF");
+                statement.executeUpdate("CREATE TABLE games (GameID, GameName, ReleaseDate, Genre)");
+                statement.executeUpdate("CREATE TABLE players (PlayerID, FirstName, LastName, Email, Birthdate)");
+                statement.executeUpdate("CREATE TABLE playergames (PlayerID, GameID, PlayDate, Score)");
+            }
+            conn.setAutoCommit(false);
+            SplittableRandom random = new SplittableRandom(42);
+
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO games VALUES (?, ?, ?, ?)")) {
+                for (int id = 1; id <= GAME_COUNT; id++) {
+                    insert.setInt(1, id);
+                    insert.setString(2, "Game " + id);
+                    insert.setString(3, randomDate(random, 1975, 2024));
+                    insert.setString(4, GENRES[random.nextInt(GENRES.length)]);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            int players = playerCount(rows);
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO players VALUES (?, ?, ?, ?, ?)")) {
+                for (int id = 1; id <= players; id++) {
+                    insert.setInt(1, id);
+                    insert.setString(2, "First" + (id % 5000));
+                    insert.setString(3, "Last" + id);
+                    insert.setString(4, "player" + id + "@example.com");
+                    insert.setString(5, randomDate(random, 1960, 2010));
+                    insert.addBatch();
+                    if (id % 10_000 == 0) insert.executeBatch();
+                }
+                insert.executeBatch();
+            }
+
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO playergames VALUES (?, ?, ?, ?)")) {
+                for (int i = 1; i <= rows; i++) {
+                    insert.setInt(1, 1 + random.nextInt(players));
+                    insert.setInt(2, 1 + random.nextInt(GAME_COUNT));
+                    insert.setString(3, randomDate(random, 2015, 2024));
+                    insert.setInt(4, random.nextInt(100_000));
+                    insert.addBatch();
+                    if (i % 10_000 == 0) insert.executeBatch();
+                }
+                insert.executeBatch();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            partial.delete();
+            throw new IllegalStateException("Could not generate benchmark database: " + e.getMessage(), e);
+        }
+
+        if (!partial.renameTo(file)) {
+            throw new IllegalStateException("Could not rename " + partial + " to " + file);
+        }
+    }
+
+    private static String randomDate(SplittableRandom random, int fromYear, int toYear) {
+        return String.format("%04d-%02d-%02d", random.nextInt(fromYear, toYear + 1), 1 + random.nextInt(12), 1 + random.nextInt(28));
+    }
+}
@@ -0,0 +1,42 @@
+package benchmarks;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the cost of opening and closing a connection with DBConnect.connect/disconnect
+ *
+ * Run with: java -jar target/benchmarks.jar ConnectBenchmark -prof gc
+ * @since 16/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectBenchmark {
+
+    private String dbFilePath;
+
+    @Setup
+    public void setUp() {
+        dbFilePath = BenchmarkDatabase.ensure(10_000);
+    }
+
+    @Benchmark
+    public boolean connectAndDisconnect() {
+        Connection conn = AppBridge.connect(dbFilePath);
+        return AppBridge.disconnect(conn);
+    }
+}
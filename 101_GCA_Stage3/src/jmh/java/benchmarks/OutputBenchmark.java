@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks rendering a whole playergames table with DBOutputFormatter.showGenericQueryResult
+ * into a Writer that discards its output, so only the query and formatting cost is measured.
+ *
+ * Run with: java -jar target/benchmarks.jar OutputBenchmark -prof gc
+ * @since 16/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OutputBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private Connection conn;
+    private final Writer sink = Writer.nullWriter();
+
+    @Setup
+    public void setUp() {
+        conn = AppBridge.connect(BenchmarkDatabase.ensure(rows));
+    }
+
+    @TearDown
+    public void tearDown() {
+        AppBridge.disconnect(conn);
+    }
+
+    @Benchmark
+    public int showGenericQueryResult() throws SQLException {
+        ResultSet resultSet = AppBridge.executeQuery(conn, "SELECT * FROM playergames");
+        int count = AppBridge.showGenericQueryResult("playergames", resultSet, sink);
+        resultSet.getStatement().close();
+        return count;
+    }
+}
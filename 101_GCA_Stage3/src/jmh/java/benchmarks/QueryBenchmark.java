@@ -0,0 +1,85 @@
+package benchmarks;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks DBCommand.executeQuery (SQL text built per call) against DBCommand.executePreparedQuery
+ * (one cached statement with a bound parameter) for the same per-player score lookup.
+ *
+ * Run with: java -jar target/benchmarks.jar QueryBenchmark -prof gc
+ * (SampleTime mode reports latency percentiles, -prof gc adds the allocation rate)
+ * @since 16/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private Connection conn;
+    private SplittableRandom random;
+    private int players;
+
+    @Setup
+    public void setUp() {
+        conn = AppBridge.connect(BenchmarkDatabase.ensure(rows));
+        random = new SplittableRandom(7);
+        players = BenchmarkDatabase.playerCount(rows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        AppBridge.disconnect(conn);
+    }
+
+    @Benchmark
+    public int executeQuery(Blackhole blackhole) throws SQLException {
+        String query = "SELECT GameID, Score FROM playergames WHERE PlayerID = " + (1 + random.nextInt(players));
+        ResultSet resultSet = AppBridge.executeQuery(conn, query);
+        int count = drain(resultSet, blackhole);
+        // executeQuery hands over its Statement, so close it here
+        resultSet.getStatement().close();
+        return count;
+    }
+
+    @Benchmark
+    public int executePreparedQuery(Blackhole blackhole) throws SQLException {
+        String query = "SELECT GameID, Score FROM playergames WHERE PlayerID = ?";
+        ResultSet resultSet = AppBridge.executePreparedQuery(conn, query, new Object[] {1 + random.nextInt(players)});
+        return drain(resultSet, blackhole);
+    }
+
+    private static int drain(ResultSet resultSet, Blackhole blackhole) throws SQLException {
+        int count = 0;
+        try (resultSet) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getInt(1));
+                blackhole.consume(resultSet.getInt(2));
+                count++;
+            }
+        }
+        return count;
+    }
+}
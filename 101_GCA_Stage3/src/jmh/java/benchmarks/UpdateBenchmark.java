@@ -0,0 +1,84 @@
+package benchmarks;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks inserting score rows one at a time with DBCommand.executePreparedUpdate (one transaction per row)
+ * against DBCommand.executeBatchUpdate (one batch and transaction per chunk). Scores are reported per row.
+ * Each trial writes to its own copy of the generated database.
+ *
+ * Run with: java -jar target/benchmarks.jar UpdateBenchmark -prof gc
+ * @since 16/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpdateBenchmark {
+
+    // Rows written per benchmark invocation
+    private static final int ROWS_PER_INVOCATION = 1000;
+
+    private static final String INSERT = "INSERT INTO playergames (PlayerID, GameID, PlayDate, Score) VALUES (?, ?, ?, ?)";
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private Connection conn;
+    private List<Object[]> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        conn = AppBridge.connect(BenchmarkDatabase.copyOf(rows));
+
+        // Parameters are built once so the benchmark measures the writes, not the data generation
+        SplittableRandom random = new SplittableRandom(11);
+        int players = BenchmarkDatabase.playerCount(rows);
+        batch = new ArrayList<>(ROWS_PER_INVOCATION);
+        for (int i = 0; i < ROWS_PER_INVOCATION; i++) {
+            batch.add(new Object[] {1 + random.nextInt(players), 1 + random.nextInt(BenchmarkDatabase.GAME_COUNT),
+                    "2024-01-01", random.nextInt(100_000)});
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        AppBridge.disconnect(conn);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public int singleRowUpdates() {
+        int total = 0;
+        for (Object[] params : batch) {
+            total += AppBridge.executePreparedUpdate(conn, INSERT, params);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public int[] batchedUpdates() {
+        return AppBridge.executeBatchUpdate(conn, INSERT, batch, ROWS_PER_INVOCATION);
+    }
+}
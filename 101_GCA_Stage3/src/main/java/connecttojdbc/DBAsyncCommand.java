@@ -0,0 +1,260 @@
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class is used to run queries and updates without blocking the calling thread.
+ * Each call borrows a connection from a DBConnectionPool, so the number of queries running
+ * against SQLite at once is bounded by the pool size, and returns a CompletableFuture.
+ * Work runs on virtual threads when the JVM provides them, otherwise on daemon platform threads.
+ *
+ * Unlike DBCommand, failures are reported by completing the future exceptionally
+ * (with the SQLException, or a TimeoutException if the query ran too long).
+ * Cancelling the future, or letting it time out, cancels the running statement.
+ * @since 16/10/2026
+ * @see DBCommand
+ * @see DBConnectionPool
+ */
+public class DBAsyncCommand {
+
+    // Executor used to run every query
+    private static final ExecutorService executor = createExecutor();
+
+    /**
+     * This interface is used to read a ResultSet while its connection is still borrowed
+     * @param <T> Type of the value produced from the ResultSet
+     */
+    @FunctionalInterface
+    public interface ResultSetHandler<T> {
+        T handle(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * The work done with a borrowed connection. The running statement is published so it can be cancelled.
+     * @param <T> Type of the result
+     */
+    @FunctionalInterface
+    private interface ConnectionWork<T> {
+        T run(Connection conn, AtomicReference<Statement> running) throws SQLException;
+    }
+
+    /**
+     * This method executes a SELECT query asynchronously
+     * @param <T> Type of the value produced from the ResultSet
+     * @param pool DBConnectionPool to borrow a connection from
+     * @param query SQL query to execute
+     * @param handler ResultSetHandler that reads the results (the ResultSet is closed afterwards)
+     * @param timeoutMillis Maximum run time in milliseconds (0 for no limit)
+     * @return CompletableFuture holding the handler's result
+     */
+    public static <T> CompletableFuture<T> executeQueryAsync(DBConnectionPool pool, String query,
+            ResultSetHandler<T> handler, long timeoutMillis) {
+        return submit(pool, DBWorkloadRecorder.Kind.QUERY, query, null, timeoutMillis, (conn, running) -> {
+            try (Statement statement = conn.createStatement()) {
+                running.set(statement);
+                applyTimeout(statement, timeoutMillis);
+                try (ResultSet resultSet = statement.executeQuery(query)) {
+                    return handler.handle(resultSet);
+                }
+            }
+        });
+    }
+
+    /**
+     * This method executes a parameterized SELECT query asynchronously
+     * @param <T> Type of the value produced from the ResultSet
+     * @param pool DBConnectionPool to borrow a connection from
+     * @param query Parameterized SQL query
+     * @param params Object array containing parameter values
+     * @param handler ResultSetHandler that reads the results (the ResultSet is closed afterwards)
+     * @param timeoutMillis Maximum run time in milliseconds (0 for no limit)
+     * @return CompletableFuture holding the handler's result
+     */
+    public static <T> CompletableFuture<T> executePreparedQueryAsync(DBConnectionPool pool, String query, Object[] params,
+            ResultSetHandler<T> handler, long timeoutMillis) {
+        return submit(pool, DBWorkloadRecorder.Kind.PREPARED_QUERY, query, params, timeoutMillis, (conn, running) -> {
+            PreparedStatement prepStmt = PreparedStatementCache.prepare(conn, query);
+            running.set(prepStmt);
+            applyTimeout(prepStmt, timeoutMillis);
+            try {
+                DBParameterBinder.bind(prepStmt, params);
+                try (ResultSet resultSet = prepStmt.executeQuery()) {
+                    return handler.handle(resultSet);
+                }
+            } finally {
+                clearTimeout(prepStmt, timeoutMillis);
+            }
+        });
+    }
+
+    /**
+     * This method executes an INSERT, UPDATE, or DELETE query asynchronously
+     * @param pool DBConnectionPool to borrow a connection from
+     * @param query SQL query to execute
+     * @param timeoutMillis Maximum run time in milliseconds (0 for no limit)
+     * @return CompletableFuture holding the number of rows affected
+     */
+    public static CompletableFuture<Integer> executeUpdateAsync(DBConnectionPool pool, String query, long timeoutMillis) {
+        return submit(pool, DBWorkloadRecorder.Kind.UPDATE, query, null, timeoutMillis, (conn, running) -> {
+            try (Statement statement = conn.createStatement()) {
+                running.set(statement);
+                applyTimeout(statement, timeoutMillis);
+                int result = statement.executeUpdate(query);
+                DBResultCache.invalidate(conn, query);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * This method executes a parameterized INSERT, UPDATE, or DELETE asynchronously
+     * @param pool DBConnectionPool to borrow a connection from
+     * @param query Parameterized SQL query
+     * @param params Object array containing parameter values
+     * @param timeoutMillis Maximum run time in milliseconds (0 for no limit)
+     * @return CompletableFuture holding the number of rows affected
+     */
+    public static CompletableFuture<Integer> executePreparedUpdateAsync(DBConnectionPool pool, String query, Object[] params,
+            long timeoutMillis) {
+        return submit(pool, DBWorkloadRecorder.Kind.PREPARED_UPDATE, query, params, timeoutMillis, (conn, running) -> {
+            PreparedStatement prepStmt = PreparedStatementCache.prepare(conn, query);
+            running.set(prepStmt);
+            applyTimeout(prepStmt, timeoutMillis);
+            try {
+                DBParameterBinder.bind(prepStmt, params);
+                int result = prepStmt.executeUpdate();
+                DBResultCache.invalidate(conn, query);
+                return result;
+            } finally {
+                clearTimeout(prepStmt, timeoutMillis);
+            }
+        });
+    }
+
+    /*****************************************************************/
+    /*                       UTILITY METHODS                         */
+    /*****************************************************************/
+
+    /**
+     * Runs work on the executor with a borrowed connection and wires up timeout and cancellation
+     * @param <T> Type of the result
+     * @param pool DBConnectionPool to borrow a connection from
+     * @param kind DBWorkloadRecorder.Kind the statement is recorded as
+     * @param query SQL text, for the query metrics, index advisor and workload recorder
+     * @param params Object array containing parameter values, for the index advisor and workload recorder (may be null)
+     * @param timeoutMillis Maximum run time in milliseconds (0 for no limit)
+     * @param work ConnectionWork to run
+     * @return CompletableFuture for the result
+     */
+    private static <T> CompletableFuture<T> submit(DBConnectionPool pool, DBWorkloadRecorder.Kind kind, String query,
+            Object[] params, long timeoutMillis, ConnectionWork<T> work) {
+        DBIndexAdvisor.capture(query, params);
+        DBWorkloadRecorder.record(kind, query, params);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        AtomicReference<Statement> running = new AtomicReference<>();
+
+        Future<?> task = executor.submit(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            // Wait for a connection no longer than the caller allows the whole query to take
+            Connection conn = pool.borrow(timeoutMillis > 0 ? timeoutMillis : Long.MAX_VALUE);
+            if (conn == null) {
+                future.completeExceptionally(new SQLException("No database connection available"));
+                return;
+            }
+            T result = null;
+            Throwable failure = null;
+            long start = DBQueryMetrics.start();
+            try {
+                result = work.run(conn, running);
+                DBQueryMetrics.record(query, start, result instanceof Integer count ? count : -1, false);
+            } catch (Throwable e) {
+                DBQueryMetrics.record(query, start, -1, true);
+                failure = e;
+            } finally {
+                running.set(null);
+                pool.release(conn);
+            }
+
+            // Complete only after the connection is back in the pool
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        });
+
+        // If the caller gives up (cancel or timeout), stop the statement that is running
+        future.whenComplete((result, error) -> {
+            if (error != null && !task.isDone()) {
+                Statement statement = running.get();
+                if (statement != null) {
+                    try {
+                        statement.cancel();
+                    } catch (SQLException e) {
+                        System.err.println("Could not cancel query: " + e.getMessage());
+                    }
+                }
+                task.cancel(true);
+            }
+        });
+
+        if (timeoutMillis > 0) {
+            future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * Sets the driver-side query timeout as a backstop to the future's own timeout
+     * @param statement Statement to apply the timeout to
+     * @param timeoutMillis Timeout in milliseconds (0 for no limit)
+     * @throws SQLException if the timeout cannot be set
+     */
+    private static void applyTimeout(Statement statement, long timeoutMillis) throws SQLException {
+        statement.setQueryTimeout(timeoutMillis > 0 ? (int) Math.max(1, (timeoutMillis + 999) / 1000) : 0);
+    }
+
+    /**
+     * Removes the timeout set by applyTimeout() from a statement of the PreparedStatementCache, which
+     * DBCommand reuses on the same connection and would otherwise run with the last async timeout
+     * @param prepStmt PreparedStatement to reset
+     * @param timeoutMillis Timeout that was applied (nothing to undo if 0)
+     * @throws SQLException if the timeout cannot be reset
+     */
+    private static void clearTimeout(PreparedStatement prepStmt, long timeoutMillis) throws SQLException {
+        if (timeoutMillis > 0) {
+            prepStmt.setQueryTimeout(0);
+        }
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor when the JVM supports it (Java 21, or Java 19/20 with
+     * --enable-preview). It is looked up reflectively so the project still compiles for Java 19
+     * without preview features; otherwise a cached pool of daemon platform threads is used.
+     * @return ExecutorService for running queries
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "db-async");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
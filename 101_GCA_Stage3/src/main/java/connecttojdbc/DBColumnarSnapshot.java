@@ -0,0 +1,866 @@
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * This class is used to copy selected columns of a table into memory outside the Java heap, one
+ * primitive array per column (int, long or double, with strings stored as int codes into a dictionary),
+ * so that filters and aggregates can run over millions of rows in a tight loop without JDBC,
+ * boxing or garbage.
+ *
+ * Filters return a Selection (one bit per row) that can be combined with and()/or() and passed to
+ * count(), stats() and groupBy(). refresh() returns at once if the database has not changed since the
+ * last load or refresh (by PRAGMA data_version and total_changes(), when it is given the same connection).
+ * If it has, and trackChanges() has installed triggers that count deletes and updates of the table, only
+ * the rows inserted since then (by rowid) are read, unless a row was deleted or updated; otherwise the whole
+ * table is reloaded, as a delete followed by an insert can reuse a rowid that was already loaded.
+ * A snapshot is not thread safe: do not refresh while other threads query it.
+ * Table and column names are put into the SQL as they are, so they must not come from user input.
+ * @since 16/10/2026
+ * @see DBParallelScan.ColumnStats
+ */
+public final class DBColumnarSnapshot implements AutoCloseable {
+
+    // Rows allocated for each column before the first load
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Rows fetched from SQLite at a time while loading
+    private static final int FETCH_SIZE = 10_000;
+
+    /**
+     * How a column's values are stored
+     */
+    public enum ColumnType { INT, LONG, DOUBLE, STRING }
+
+    private final String table;
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    private Column rowids = new Column("rowid", ColumnType.LONG);
+    private int size = 0;
+
+    // Database state when the rows were last read: the connection's data_version and total_changes(),
+    // and the delete/update count kept by trackChanges() (-1 if the table is not tracked)
+    private Connection stateConn;
+    private long dataVersion;
+    private long totalChanges;
+    private long tableChanges = -1;
+
+    /*****************************************************************/
+    /*                       DEFINITION                              */
+    /*****************************************************************/
+
+    /**
+     * Creates an empty snapshot of a table (add columns, then call load())
+     * @param table Name of the table to copy
+     */
+    public DBColumnarSnapshot(String table) {
+        this.table = table;
+    }
+
+    /**
+     * @return DBColumnarSnapshot definition of the games table
+     */
+    public static DBColumnarSnapshot games() {
+        return new DBColumnarSnapshot("games")
+                .addColumn("GameID", ColumnType.INT)
+                .addColumn("GameName", ColumnType.STRING)
+                .addColumn("ReleaseDate", ColumnType.STRING)
+                .addColumn("Genre", ColumnType.STRING);
+    }
+
+    /**
+     * @return DBColumnarSnapshot definition of the playergames table
+     */
+    public static DBColumnarSnapshot playerGames() {
+        return new DBColumnarSnapshot("playergames")
+                .addColumn("PlayerID", ColumnType.INT)
+                .addColumn("GameID", ColumnType.INT)
+                .addColumn("PlayDate", ColumnType.STRING)
+                .addColumn("Score", ColumnType.INT);
+    }
+
+    /**
+     * Adds a column to the snapshot (before the first load)
+     * @param name Column name
+     * @param type ColumnType to store it as
+     * @return DBColumnarSnapshot this snapshot
+     */
+    public DBColumnarSnapshot addColumn(String name, ColumnType type) {
+        if (size > 0) {
+            throw new IllegalStateException("Columns must be added before loading: " + name);
+        }
+        columns.put(name, new Column(name, type));
+        return this;
+    }
+
+    /*****************************************************************/
+    /*                       LOADING                                 */
+    /*****************************************************************/
+
+    /**
+     * Copies the whole table into the snapshot, replacing anything loaded before
+     * @param conn Connection object
+     * @return int number of rows loaded, or -1 if the table cannot be read
+     */
+    public int load(Connection conn) {
+        size = 0;
+        for (Column column : columns.values()) {
+            column.clear();
+        }
+        // The state is read before the rows, so changes made while they are read are seen by refresh()
+        if (!readState(conn)) {
+            return -1;
+        }
+        return append(conn, Long.MIN_VALUE);
+    }
+
+    /**
+     * Brings the snapshot up to date: does nothing if the database has not changed, appends the rows
+     * inserted since the last load or refresh if the table is tracked and no row has been deleted or
+     * updated, and reloads the whole table otherwise
+     * @param conn Connection object
+     * @return int number of rows added (negative if a reload found fewer rows), or -1 if the table cannot be read
+     */
+    public int refresh(Connection conn) {
+        Connection lastConn = stateConn;
+        long lastDataVersion = dataVersion;
+        long lastTotalChanges = totalChanges;
+        long lastTableChanges = tableChanges;
+        if (!readState(conn)) {
+            return -1;
+        }
+        if (conn == lastConn && dataVersion == lastDataVersion && totalChanges == lastTotalChanges) {
+            return 0;
+        }
+        if (lastTableChanges >= 0 && tableChanges == lastTableChanges) {
+            // Only inserts since the last read, and none of them can have reused a loaded rowid
+            long lastRowid = size == 0 ? Long.MIN_VALUE : rowids.data.getLong((size - 1) * Long.BYTES);
+            return append(conn, lastRowid);
+        }
+        int before = size;
+        int loaded = load(conn);
+        return loaded < 0 ? -1 : loaded - before;
+    }
+
+    /**
+     * Installs triggers that count deletes and updates of the table in a one-row table named
+     * {@code <table>_snapshot_changes}, so refresh() can append new rows instead of reloading
+     * whenever the database changes. Takes effect from the next load().
+     * @param conn Connection object (must be able to write)
+     * @return boolean true if the triggers are installed
+     */
+    public boolean trackChanges(Connection conn) {
+        String log = changesTable();
+        boolean installed = runSchemaChange(conn, statement -> {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + log + " (Changes INTEGER NOT NULL)");
+            statement.executeUpdate("INSERT INTO " + log + " SELECT 0 WHERE NOT EXISTS (SELECT 1 FROM " + log + ")");
+            for (String event : new String[] {"DELETE", "UPDATE"}) {
+                statement.executeUpdate("CREATE TRIGGER IF NOT EXISTS " + log + "_" + event.toLowerCase(Locale.ROOT)
+                        + " AFTER " + event + " ON " + table + " BEGIN UPDATE " + log + " SET Changes = Changes + 1; END");
+            }
+        });
+        if (installed) {
+            DBResultCache.invalidate(conn, "CREATE TABLE " + log);
+        }
+        return installed;
+    }
+
+    /**
+     * Drops the triggers and table installed by trackChanges()
+     * @param conn Connection object (must be able to write)
+     * @return boolean true if they were dropped
+     */
+    public boolean untrackChanges(Connection conn) {
+        String log = changesTable();
+        boolean dropped = runSchemaChange(conn, statement -> {
+            statement.executeUpdate("DROP TRIGGER IF EXISTS " + log + "_delete");
+            statement.executeUpdate("DROP TRIGGER IF EXISTS " + log + "_update");
+            statement.executeUpdate("DROP TABLE IF EXISTS " + log);
+        });
+        if (dropped) {
+            tableChanges = -1;
+            DBResultCache.invalidate(conn, "DROP TABLE " + log);
+        }
+        return dropped;
+    }
+
+    /**
+     * Reads the connection's data_version and total_changes(), and the table's delete/update count
+     * if trackChanges() has installed it
+     * @param conn Connection object
+     * @return boolean true if the state was read
+     */
+    private boolean readState(Connection conn) {
+        String log = changesTable();
+        try (Statement statement = conn.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("PRAGMA data_version")) {
+                dataVersion = resultSet.next() ? resultSet.getLong(1) : -1;
+            }
+            boolean tracked;
+            try (ResultSet resultSet = statement.executeQuery("SELECT total_changes(), EXISTS (SELECT 1 FROM"
+                    + " sqlite_master WHERE type = 'table' AND name = '" + log + "')")) {
+                resultSet.next();
+                totalChanges = resultSet.getLong(1);
+                tracked = resultSet.getBoolean(2);
+            }
+            tableChanges = -1;
+            if (tracked) {
+                try (ResultSet resultSet = statement.executeQuery("SELECT Changes FROM " + log)) {
+                    tableChanges = resultSet.next() ? resultSet.getLong(1) : -1;
+                }
+            }
+            stateConn = conn;
+            return true;
+        } catch (SQLException e) {
+            // Forget the state, so the next refresh() reloads
+            stateConn = null;
+            tableChanges = -1;
+            System.err.println("Snapshot state error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * The statements of a schema change, run with one Statement
+     */
+    @FunctionalInterface
+    private interface SchemaWork {
+        void run(Statement statement) throws SQLException;
+    }
+
+    /**
+     * Runs a schema change in its own transaction, or in a savepoint of the caller's if one is open
+     * @param conn Connection object
+     * @param work SchemaWork to run
+     * @return boolean true if it succeeded
+     */
+    private boolean runSchemaChange(Connection conn, SchemaWork work) {
+        try {
+            boolean ownTransaction = conn.getAutoCommit();
+            Savepoint savepoint = ownTransaction ? null : conn.setSavepoint();
+            conn.setAutoCommit(false);
+            try (Statement statement = conn.createStatement()) {
+                work.run(statement);
+                if (ownTransaction) {
+                    conn.commit();
+                } else {
+                    conn.releaseSavepoint(savepoint);
+                }
+                return true;
+            } catch (SQLException e) {
+                if (ownTransaction) {
+                    conn.rollback();
+                } else {
+                    conn.rollback(savepoint);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(ownTransaction);
+            }
+        } catch (SQLException e) {
+            System.err.println("Snapshot change tracking error: " + e.getMessage());
+            System.err.println("Table: " + table);
+        }
+        return false;
+    }
+
+    /**
+     * @return String name of the table trackChanges() counts deletes and updates in
+     */
+    private String changesTable() {
+        return table + "_snapshot_changes";
+    }
+
+    /**
+     * Reads the rows after a rowid into the column buffers
+     * @param conn Connection object
+     * @param afterRowid Only rows with a greater rowid are read
+     * @return int number of rows read, or -1 if the table cannot be read
+     */
+    private int append(Connection conn, long afterRowid) {
+        StringBuilder sql = new StringBuilder("SELECT rowid");
+        for (String name : columns.keySet()) {
+            sql.append(", ").append(name);
+        }
+        sql.append(" FROM ").append(table).append(" WHERE rowid > ? ORDER BY rowid");
+
+        Column[] targets = columns.values().toArray(new Column[0]);
+        int before = size;
+        long start = DBQueryMetrics.start();
+        try (PreparedStatement prepStmt = conn.prepareStatement(sql.toString())) {
+            prepStmt.setFetchSize(FETCH_SIZE);
+            prepStmt.setLong(1, afterRowid);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                while (resultSet.next()) {
+                    rowids.appendLong(size, resultSet.getLong(1));
+                    for (int i = 0; i < targets.length; i++) {
+                        targets[i].read(resultSet, i + 2, size);
+                    }
+                    size++;
+                }
+            }
+            DBQueryMetrics.record(sql.toString(), start, size - before, false);
+            return size - before;
+        } catch (SQLException e) {
+            DBQueryMetrics.record(sql.toString(), start, -1, true);
+            System.err.println("Snapshot load error: " + e.getMessage());
+            System.err.println("Query: " + sql);
+        }
+        return -1;
+    }
+
+    /**
+     * Releases the column buffers
+     */
+    @Override
+    public void close() {
+        for (Column column : columns.values()) {
+            column.data = null;
+        }
+        rowids.data = null;
+        size = 0;
+    }
+
+    /*****************************************************************/
+    /*                       FILTERS                                 */
+    /*****************************************************************/
+
+    /**
+     * @return Selection of every row
+     */
+    public Selection all() {
+        Selection selection = new Selection(size);
+        Arrays.fill(selection.bits, -1L);
+        selection.trim();
+        return selection;
+    }
+
+    /**
+     * Selects the rows whose value in an INT or LONG column lies between two bounds
+     * (use Long.MIN_VALUE or Long.MAX_VALUE for an open bound, the same value twice for equality)
+     * @param name Column name
+     * @param low Smallest value selected
+     * @param high Largest value selected
+     * @return Selection of the matching rows (NULLs never match)
+     */
+    public Selection whereBetween(String name, long low, long high) {
+        Column column = column(name);
+        Selection selection = new Selection(size);
+        ByteBuffer data = column.data;
+        if (column.type == ColumnType.INT) {
+            for (int row = 0; row < size; row++) {
+                int value = data.getInt(row << 2);
+                if (value >= low && value <= high) {
+                    selection.bits[row >>> 6] |= 1L << row;
+                }
+            }
+        } else if (column.type == ColumnType.LONG) {
+            for (int row = 0; row < size; row++) {
+                long value = data.getLong(row << 3);
+                if (value >= low && value <= high) {
+                    selection.bits[row >>> 6] |= 1L << row;
+                }
+            }
+        } else {
+            return whereBetween(name, (double) low, (double) high);
+        }
+        selection.removeNulls(column.nulls);
+        return selection;
+    }
+
+    /**
+     * Selects the rows whose value in a numeric column lies between two bounds
+     * @param name Column name
+     * @param low Smallest value selected
+     * @param high Largest value selected
+     * @return Selection of the matching rows (NULLs never match)
+     */
+    public Selection whereBetween(String name, double low, double high) {
+        Column column = column(name);
+        Selection selection = new Selection(size);
+        for (int row = 0; row < size; row++) {
+            double value = column.getDouble(row);
+            if (value >= low && value <= high) {
+                selection.bits[row >>> 6] |= 1L << row;
+            }
+        }
+        selection.removeNulls(column.nulls);
+        return selection;
+    }
+
+    /**
+     * Selects the rows whose value in a STRING column is one of the given values
+     * @param name Column name
+     * @param values Values to match
+     * @return Selection of the matching rows
+     */
+    public Selection whereIn(String name, String... values) {
+        Column column = column(name);
+        if (column.type != ColumnType.STRING) {
+            throw new IllegalArgumentException("Not a STRING column: " + name);
+        }
+        // Compare dictionary codes, not strings
+        boolean[] wanted = new boolean[column.dictionary.size()];
+        for (String value : values) {
+            Integer code = column.codes.get(value);
+            if (code != null) {
+                wanted[code] = true;
+            }
+        }
+        Selection selection = new Selection(size);
+        ByteBuffer data = column.data;
+        for (int row = 0; row < size; row++) {
+            int code = data.getInt(row << 2);
+            if (code >= 0 && wanted[code]) {
+                selection.bits[row >>> 6] |= 1L << row;
+            }
+        }
+        return selection;
+    }
+
+    /*****************************************************************/
+    /*                       AGGREGATES                              */
+    /*****************************************************************/
+
+    /**
+     * @param selection Selection of rows
+     * @return long number of rows selected
+     */
+    public long count(Selection selection) {
+        return selection.count();
+    }
+
+    /**
+     * Computes count, sum, min and max of a numeric column over the selected rows (NULLs are skipped)
+     * @param name Column name
+     * @param selection Selection of rows
+     * @return ColumnStats of the column
+     */
+    public DBParallelScan.ColumnStats stats(String name, Selection selection) {
+        Column column = column(name);
+        long[] bits = selection.without(column.nulls);
+        long count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                int row = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                double value = column.getDouble(row);
+                count++;
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        return count == 0 ? DBParallelScan.ColumnStats.EMPTY : new DBParallelScan.ColumnStats(count, sum, min, max);
+    }
+
+    /**
+     * Computes count, sum, min and max of a numeric column for each value of a key column over the selected rows
+     * @param keyName Name of the key column (any type; NULL keys are grouped under null)
+     * @param valueName Name of the numeric column (NULL values are not counted)
+     * @param selection Selection of rows
+     * @return Map of ColumnStats by key, in order of first appearance
+     */
+    public Map<String, DBParallelScan.ColumnStats> groupBy(String keyName, String valueName, Selection selection) {
+        Column key = column(keyName);
+        Column value = column(valueName);
+        GroupTable groups = new GroupTable(key.type == ColumnType.STRING ? key.dictionary.size() + 1 : 16);
+        long[] bits = selection.bits;
+
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                int row = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                int slot = groups.slotFor(key.groupKey(row));
+                if (value.nulls == null || !value.nulls.get(row)) {
+                    groups.add(slot, value.getDouble(row));
+                }
+            }
+        }
+
+        Map<String, DBParallelScan.ColumnStats> result = new LinkedHashMap<>();
+        for (int slot = 0; slot < groups.slotCount; slot++) {
+            long count = groups.counts[slot];
+            result.put(key.keyToString(groups.keys[slot]), count == 0 ? DBParallelScan.ColumnStats.EMPTY
+                    : new DBParallelScan.ColumnStats(count, groups.sums[slot], groups.mins[slot], groups.maxes[slot]));
+        }
+        return result;
+    }
+
+    /*****************************************************************/
+    /*                       ROW ACCESS                              */
+    /*****************************************************************/
+
+    /**
+     * @return int number of rows in the snapshot
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return long bytes held outside the heap by the column buffers
+     */
+    public long getMemoryBytes() {
+        long bytes = rowids.data == null ? 0 : rowids.data.capacity();
+        for (Column column : columns.values()) {
+            bytes += column.data == null ? 0 : column.data.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * @param name Name of an INT column
+     * @param row Row number (0-based)
+     * @return int value (0 for NULL)
+     */
+    public int getInt(String name, int row) {
+        return column(name).data.getInt(checkRow(row) << 2);
+    }
+
+    /**
+     * @param name Name of a numeric column
+     * @param row Row number (0-based)
+     * @return double value (0 for NULL)
+     */
+    public double getDouble(String name, int row) {
+        return column(name).getDouble(checkRow(row));
+    }
+
+    /**
+     * @param name Column name
+     * @param row Row number (0-based)
+     * @return String value, or null for NULL
+     */
+    public String getString(String name, int row) {
+        Column column = column(name);
+        checkRow(row);
+        if (column.nulls != null && column.nulls.get(row)) {
+            return null;
+        }
+        return column.keyToString(column.groupKey(row));
+    }
+
+    /**
+     * @param name Column name
+     * @return Column with the name
+     */
+    private Column column(String name) {
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("No column " + name + " in snapshot of " + table);
+        }
+        return column;
+    }
+
+    /**
+     * @param row Row number
+     * @return int the row number, if it is in the snapshot
+     */
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return row;
+    }
+
+    /*****************************************************************/
+    /*                       STORAGE                                 */
+    /*****************************************************************/
+
+    /**
+     * This class is used to hold one bit per row of a snapshot, set for the rows a filter selected
+     */
+    public static final class Selection {
+
+        private final long[] bits;
+        private final int size;
+
+        /**
+         * @param size Number of rows in the snapshot
+         */
+        private Selection(int size) {
+            this.size = size;
+            this.bits = new long[(size + 63) >>> 6];
+        }
+
+        /**
+         * @param other Selection from the same snapshot
+         * @return Selection of the rows in both
+         */
+        public Selection and(Selection other) {
+            Selection result = new Selection(size);
+            for (int i = 0; i < bits.length; i++) {
+                result.bits[i] = bits[i] & other.bits[i];
+            }
+            return result;
+        }
+
+        /**
+         * @param other Selection from the same snapshot
+         * @return Selection of the rows in either
+         */
+        public Selection or(Selection other) {
+            Selection result = new Selection(size);
+            for (int i = 0; i < bits.length; i++) {
+                result.bits[i] = bits[i] | other.bits[i];
+            }
+            return result;
+        }
+
+        /**
+         * @return long number of rows selected
+         */
+        public long count() {
+            long count = 0;
+            for (long word : bits) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        /**
+         * Clears the bits past the last row
+         */
+        private void trim() {
+            if ((size & 63) != 0) {
+                bits[bits.length - 1] &= (1L << size) - 1;
+            }
+        }
+
+        /**
+         * Clears the bits of NULL rows
+         * @param nulls BitSet of NULL rows (may be null)
+         */
+        private void removeNulls(BitSet nulls) {
+            if (nulls != null) {
+                long[] nullBits = nulls.toLongArray();
+                for (int i = 0; i < nullBits.length && i < bits.length; i++) {
+                    bits[i] &= ~nullBits[i];
+                }
+            }
+        }
+
+        /**
+         * @param nulls BitSet of NULL rows (may be null)
+         * @return long array of the selected rows that are not NULL
+         */
+        private long[] without(BitSet nulls) {
+            if (nulls == null) {
+                return bits;
+            }
+            Selection copy = and(this);
+            copy.removeNulls(nulls);
+            return copy.bits;
+        }
+    }
+
+    /**
+     * One column of the snapshot: fixed-width values in a direct buffer, plus a dictionary for strings
+     * and a BitSet marking NULLs (only created once a NULL is seen)
+     */
+    private static final class Column {
+
+        final String name;
+        final ColumnType type;
+        final int width;
+        ByteBuffer data;
+        BitSet nulls;
+
+        // STRING columns only: code -> string and string -> code (-1 is NULL)
+        final List<String> dictionary = new ArrayList<>();
+        final Map<String, Integer> codes = new HashMap<>();
+
+        Column(String name, ColumnType type) {
+            this.name = name;
+            this.type = type;
+            this.width = type == ColumnType.INT || type == ColumnType.STRING ? Integer.BYTES : Long.BYTES;
+            this.data = ByteBuffer.allocateDirect(INITIAL_CAPACITY * width).order(ByteOrder.nativeOrder());
+        }
+
+        void clear() {
+            nulls = null;
+            dictionary.clear();
+            codes.clear();
+        }
+
+        /**
+         * Makes room for a row, doubling the buffer when it is full
+         */
+        void ensureCapacity(int row) {
+            if ((long) (row + 1) * width > data.capacity()) {
+                long capacity = Math.max((long) data.capacity() * 2, (long) (row + 1) * width);
+                if (capacity > Integer.MAX_VALUE) {
+                    throw new IllegalStateException("Column " + name + " is too large for a snapshot");
+                }
+                ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity).order(ByteOrder.nativeOrder());
+                grown.put(data.duplicate().clear());
+                data = grown;
+            }
+        }
+
+        void appendLong(int row, long value) {
+            ensureCapacity(row);
+            data.putLong(row << 3, value);
+        }
+
+        /**
+         * Reads one value from the current row of a ResultSet with the getter for the column type
+         */
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            ensureCapacity(row);
+            switch (type) {
+                case INT -> data.putInt(row << 2, resultSet.getInt(index));
+                case LONG -> data.putLong(row << 3, resultSet.getLong(index));
+                case DOUBLE -> data.putDouble(row << 3, resultSet.getDouble(index));
+                case STRING -> {
+                    String value = resultSet.getString(index);
+                    data.putInt(row << 2, value == null ? -1 : codes.computeIfAbsent(value, v -> {
+                        dictionary.add(v);
+                        return dictionary.size() - 1;
+                    }));
+                }
+            }
+            if (resultSet.wasNull()) {
+                if (nulls == null) {
+                    nulls = new BitSet();
+                }
+                nulls.set(row);
+            }
+        }
+
+        /**
+         * @return double value of a numeric column (STRING columns are not numeric)
+         */
+        double getDouble(int row) {
+            return switch (type) {
+                case INT -> data.getInt(row << 2);
+                case LONG -> data.getLong(row << 3);
+                case DOUBLE -> data.getDouble(row << 3);
+                case STRING -> throw new IllegalArgumentException("Not a numeric column: " + name);
+            };
+        }
+
+        /**
+         * @return long key of a row for grouping: the value, the dictionary code, or the double's bits
+         */
+        long groupKey(int row) {
+            if (nulls != null && nulls.get(row)) {
+                return type == ColumnType.STRING ? -1 : Long.MIN_VALUE;
+            }
+            return switch (type) {
+                case INT, STRING -> data.getInt(row << 2);
+                case LONG -> data.getLong(row << 3);
+                case DOUBLE -> Double.doubleToLongBits(data.getDouble(row << 3));
+            };
+        }
+
+        /**
+         * @return String form of a group key (null for the NULL key)
+         */
+        String keyToString(long key) {
+            return switch (type) {
+                case STRING -> key < 0 ? null : dictionary.get((int) key);
+                case DOUBLE -> Double.toString(Double.longBitsToDouble(key));
+                default -> key == Long.MIN_VALUE && nulls != null ? null : Long.toString(key);
+            };
+        }
+    }
+
+    /**
+     * Open-addressing table from long keys to group slots, with the group totals in primitive arrays
+     */
+    private static final class GroupTable {
+
+        long[] keys;
+        long[] counts;
+        double[] sums;
+        double[] mins;
+        double[] maxes;
+        int slotCount = 0;
+
+        // Hash table of slot + 1 (0 is empty)
+        int[] index;
+
+        GroupTable(int expectedGroups) {
+            int capacity = Math.max(16, expectedGroups);
+            keys = new long[capacity];
+            counts = new long[capacity];
+            sums = new double[capacity];
+            mins = new double[capacity];
+            maxes = new double[capacity];
+            index = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+        }
+
+        /**
+         * @return int slot of the key, added if it is new
+         */
+        int slotFor(long key) {
+            int mask = index.length - 1;
+            int i = (int) (key ^ (key >>> 32)) * 0x9E3779B9 & mask;
+            while (index[i] != 0) {
+                int slot = index[i] - 1;
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                i = (i + 1) & mask;
+            }
+            if (slotCount == keys.length) {
+                grow();
+                return slotFor(key);
+            }
+            keys[slotCount] = key;
+            mins[slotCount] = Double.POSITIVE_INFINITY;
+            maxes[slotCount] = Double.NEGATIVE_INFINITY;
+            index[i] = ++slotCount;
+            return slotCount - 1;
+        }
+
+        void add(int slot, double value) {
+            counts[slot]++;
+            sums[slot] += value;
+            mins[slot] = Math.min(mins[slot], value);
+            maxes[slot] = Math.max(maxes[slot], value);
+        }
+
+        /**
+         * Doubles the arrays and rebuilds the hash table
+         */
+        void grow() {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+            mins = Arrays.copyOf(mins, capacity);
+            maxes = Arrays.copyOf(maxes, capacity);
+            index = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+            int mask = index.length - 1;
+            for (int slot = 0; slot < slotCount; slot++) {
+                int i = (int) (keys[slot] ^ (keys[slot] >>> 32)) * 0x9E3779B9 & mask;
+                while (index[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                index[i] = slot + 1;
+            }
+        }
+    }
+}
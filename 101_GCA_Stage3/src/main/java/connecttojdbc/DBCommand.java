@@ -4,9 +4,16 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
-import java.sql.Types;
-import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class is used to execute SQL queries and updates on the SQLite database
@@ -23,11 +30,41 @@ public class DBCommand {
      * @return ResultSet object containing query results
      */
     public static ResultSet executeQuery(Connection conn, String query) {
+        DBIndexAdvisor.capture(query, null);
+        DBWorkloadRecorder.record(DBWorkloadRecorder.Kind.QUERY, query, null);
+        
+        // Serve repeated reads from the result cache when it is on
+        boolean cacheable = DBResultCache.isCacheable(conn, query, null);
+        if (cacheable) {
+            ResultSet cached = DBResultCache.lookup(conn, query, null);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long readToken = cacheable ? DBResultCache.beginRead() : 0;
+        
         ResultSet resultSet = null;
+        long start = DBQueryMetrics.start();
         try {
             Statement statement = conn.createStatement();
             resultSet = statement.executeQuery(query);
+            DBQueryMetrics.record(query, start, -1, false);
+            
+            if (cacheable) {
+                ResultSet cachedView = DBResultCache.store(conn, query, null, resultSet, readToken);
+                if (cachedView == null) {
+                    // Reading into the cache failed part way, so run the query again for a fresh ResultSet
+                    resultSet = statement.executeQuery(query);
+                } else {
+                    if (cachedView.getStatement() != statement) {
+                        // The rows are now in memory, so the statement is no longer needed
+                        statement.close();
+                    }
+                    resultSet = cachedView;
+                }
+            }
         } catch (SQLException e) {
+            DBQueryMetrics.record(query, start, -1, true);
             System.err.println("Query execution error: " + e.getMessage());
             System.err.println("Query: " + query);
         }
@@ -41,49 +78,94 @@ public class DBCommand {
      * @return int number of rows affected
      */
     public static int executeUpdate(Connection conn, String query) {
+        DBIndexAdvisor.capture(query, null);
+        DBWorkloadRecorder.record(DBWorkloadRecorder.Kind.UPDATE, query, null);
         int result = -1;
+        long start = DBQueryMetrics.start();
         try {
             Statement statement = conn.createStatement();
             result = statement.executeUpdate(query);
+            DBQueryMetrics.record(query, start, result, false);
         } catch (SQLException e) {
+            DBQueryMetrics.record(query, start, -1, true);
             System.err.println("Update execution error: " + e.getMessage());
             System.err.println("Query: " + query);
         }
+        DBResultCache.invalidate(conn, query);
         return result;
     }
     
     /**
-     * This method executes a SQL query using prepared statements
+     * This method executes a SQL query using prepared statements.
+     * The statement is cached per connection, so running the same SQL again closes the previous ResultSet.
      * @param conn Connection object
      * @param query Parameterized SQL query
      * @param params Object array containing parameter values
      * @return ResultSet object containing query results
      */
     public static ResultSet executePreparedQuery(Connection conn, String query, Object[] params) {
+        return executePreparedQuery(conn, query, params, null);
+    }
+    
+    /**
+     * This method executes a SQL query using prepared statements, with the parameters set by a lambda
+     * (e.g. {@code ps -> ps.setInt(1, gameId)}) so primitive values are not boxed.
+     * Results of these queries are not kept in the result cache, as the parameters cannot be compared.
+     * @param conn Connection object
+     * @param query Parameterized SQL query
+     * @param binder StatementBinder that sets the parameters
+     * @return ResultSet object containing query results
+     */
+    public static ResultSet executePreparedQueryWith(Connection conn, String query, DBParameterBinder.StatementBinder binder) {
+        return executePreparedQuery(conn, query, null, binder);
+    }
+    
+    /**
+     * Runs a prepared query with its parameters taken from either an array or a StatementBinder
+     * @param conn Connection object
+     * @param query Parameterized SQL query
+     * @param params Object array containing parameter values (used when binder is null)
+     * @param binder StatementBinder that sets the parameters (may be null)
+     * @return ResultSet object containing query results
+     */
+    private static ResultSet executePreparedQuery(Connection conn, String query, Object[] params,
+            DBParameterBinder.StatementBinder binder) {
+        DBIndexAdvisor.capture(query, params);
+        DBWorkloadRecorder.record(DBWorkloadRecorder.Kind.PREPARED_QUERY, query, binder == null ? params : null);
+        
+        // Serve repeated reads from the result cache when it is on
+        boolean cacheable = binder == null && DBResultCache.isCacheable(conn, query, params);
+        if (cacheable) {
+            ResultSet cached = DBResultCache.lookup(conn, query, params);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long readToken = cacheable ? DBResultCache.beginRead() : 0;
+        
         ResultSet resultSet = null;
+        long start = DBQueryMetrics.start();
         try {
-            PreparedStatement prepStmt = conn.prepareStatement(query);
+            // Reuse the compiled statement if this SQL has been run on this connection before
+            PreparedStatement prepStmt = PreparedStatementCache.prepare(conn, query);
             
             // Set parameters
-            if (params != null) {
-                for (int i = 0; i < params.length; i++) {
-                    if (params[i] instanceof String) {
-                        prepStmt.setString(i + 1, (String) params[i]);
-                    } else if (params[i] instanceof Integer) {
-                        prepStmt.setInt(i + 1, (Integer) params[i]);
-                    } else if (params[i] instanceof Double) {
-                        prepStmt.setDouble(i + 1, (Double) params[i]);
-                    } else if (params[i] instanceof Date) {
-                        prepStmt.setDate(i + 1, (Date) params[i]);
-                    } else if (params[i] == null) {
-                        prepStmt.setNull(i + 1, Types.NULL);
-                    }
-                    // Add more types as needed
-                }
+            if (binder != null) {
+                binder.bind(prepStmt);
+            } else {
+                DBParameterBinder.bind(prepStmt, params);
             }
             
             resultSet = prepStmt.executeQuery();
+            DBQueryMetrics.record(query, start, -1, false);
+            
+            if (cacheable) {
+                ResultSet cachedView = DBResultCache.store(conn, query, params, resultSet, readToken);
+                // If reading into the cache failed part way, run the query again for a fresh ResultSet
+                resultSet = cachedView != null ? cachedView : prepStmt.executeQuery();
+            }
         } catch (SQLException e) {
+            DBQueryMetrics.record(query, start, -1, true);
             System.err.println("Prepared query error: " + e.getMessage());
             System.err.println("Query: " + query);
         }
@@ -98,34 +180,335 @@ public class DBCommand {
      * @return int number of rows affected
      */
     public static int executePreparedUpdate(Connection conn, String query, Object[] params) {
+        return executePreparedUpdate(conn, query, params, null);
+    }
+    
+    /**
+     * This method executes an INSERT, UPDATE, or DELETE using prepared statements, with the parameters
+     * set by a lambda (e.g. {@code ps -> { ps.setInt(1, score); ps.setInt(2, playerId); }})
+     * so primitive values are not boxed
+     * @param conn Connection object
+     * @param query Parameterized SQL query
+     * @param binder StatementBinder that sets the parameters
+     * @return int number of rows affected
+     */
+    public static int executePreparedUpdateWith(Connection conn, String query, DBParameterBinder.StatementBinder binder) {
+        return executePreparedUpdate(conn, query, null, binder);
+    }
+    
+    /**
+     * Runs a prepared update with its parameters taken from either an array or a StatementBinder
+     * @param conn Connection object
+     * @param query Parameterized SQL query
+     * @param params Object array containing parameter values (used when binder is null)
+     * @param binder StatementBinder that sets the parameters (may be null)
+     * @return int number of rows affected
+     */
+    private static int executePreparedUpdate(Connection conn, String query, Object[] params,
+            DBParameterBinder.StatementBinder binder) {
+        DBIndexAdvisor.capture(query, params);
+        DBWorkloadRecorder.record(DBWorkloadRecorder.Kind.PREPARED_UPDATE, query, binder == null ? params : null);
         int result = -1;
+        long start = DBQueryMetrics.start();
         try {
-            PreparedStatement prepStmt = conn.prepareStatement(query);
+            // Reuse the compiled statement if this SQL has been run on this connection before
+            PreparedStatement prepStmt = PreparedStatementCache.prepare(conn, query);
             
             // Set parameters
-            if (params != null) {
-                for (int i = 0; i < params.length; i++) {
-                    if (params[i] instanceof String) {
-                        prepStmt.setString(i + 1, (String) params[i]);
-                    } else if (params[i] instanceof Integer) {
-                        prepStmt.setInt(i + 1, (Integer) params[i]);
-                    } else if (params[i] instanceof Double) {
-                        prepStmt.setDouble(i + 1, (Double) params[i]);
-                    } else if (params[i] instanceof Date) {
-                        prepStmt.setDate(i + 1, (Date) params[i]);
-                    } else if (params[i] == null) {
-                        prepStmt.setNull(i + 1, Types.NULL);
-                    }
-                    // Add more types as needed
-                }
+            if (binder != null) {
+                binder.bind(prepStmt);
+            } else {
+                DBParameterBinder.bind(prepStmt, params);
             }
             
             result = prepStmt.executeUpdate();
+            DBQueryMetrics.record(query, start, result, false);
         } catch (SQLException e) {
+            DBQueryMetrics.record(query, start, -1, true);
             System.err.println("Prepared update error: " + e.getMessage());
             System.err.println("Query: " + query);
         }
+        DBResultCache.invalidate(conn, query);
+        return result;
+    }
+    
+    /**
+     * This method executes the same INSERT, UPDATE, or DELETE for many rows of parameters.
+     * Rows are sent to SQLite in batches of chunkSize, and each chunk runs in its own transaction,
+     * so a bulk load pays for one commit per chunk instead of one per row.
+     * If the caller already has a transaction open (auto-commit off), nothing is committed: each chunk
+     * runs inside a savepoint of the caller's transaction, which is left open for the caller to finish.
+     * If a chunk fails it is rolled back, its count is reported as -1 and no further chunks are run.
+     * @param conn Connection object
+     * @param query Parameterized SQL query
+     * @param rows Parameter values, one Object array per row
+     * @param chunkSize Number of rows per batch and transaction
+     * @return int[] number of rows affected by each chunk
+     */
+    public static int[] executeBatchUpdate(Connection conn, String query, Iterable<Object[]> rows, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+        }
+        
+        List<Integer> chunkCounts = new ArrayList<>();
+        boolean ownTransaction = false;
+        PreparedStatement prepStmt = null;
+        try {
+            ownTransaction = conn.getAutoCommit();
+            if (ownTransaction) {
+                conn.setAutoCommit(false);
+            }
+            prepStmt = PreparedStatementCache.prepare(conn, query);
+            
+            Iterator<Object[]> it = rows.iterator();
+            // Rows of the current chunk, kept only while the workload is being recorded
+            List<Object[]> recordedRows = DBWorkloadRecorder.isRecording() ? new ArrayList<>() : null;
+            while (it.hasNext()) {
+                // Add up to chunkSize rows to the batch
+                int rowsInChunk = 0;
+                while (rowsInChunk < chunkSize && it.hasNext()) {
+                    Object[] row = it.next();
+                    DBParameterBinder.bind(prepStmt, row);
+                    prepStmt.addBatch();
+                    rowsInChunk++;
+                    if (recordedRows != null) {
+                        recordedRows.add(row.clone());
+                    }
+                }
+                if (recordedRows != null) {
+                    DBWorkloadRecorder.record(DBWorkloadRecorder.Kind.BATCH_UPDATE, query, recordedRows.toArray());
+                    recordedRows.clear();
+                }
+                
+                // Run the batch and commit it as one transaction (or as a savepoint in the caller's)
+                Savepoint savepoint = ownTransaction ? null : conn.setSavepoint();
+                long start = DBQueryMetrics.start();
+                try {
+                    chunkCounts.add(sumBatchCounts(prepStmt.executeBatch(), rowsInChunk));
+                    if (ownTransaction) {
+                        conn.commit();
+                    } else {
+                        conn.releaseSavepoint(savepoint);
+                    }
+                    DBQueryMetrics.record(query, start, chunkCounts.get(chunkCounts.size() - 1), false);
+                } catch (SQLException e) {
+                    DBQueryMetrics.record(query, start, -1, true);
+                    prepStmt.clearBatch();
+                    if (ownTransaction) {
+                        conn.rollback();
+                    } else {
+                        conn.rollback(savepoint);
+                        conn.releaseSavepoint(savepoint);
+                    }
+                    chunkCounts.add(-1);
+                    System.err.println("Batch update error in chunk " + chunkCounts.size() + ": " + e.getMessage());
+                    System.err.println("Query: " + query);
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Batch update error: " + e.getMessage());
+            System.err.println("Query: " + query);
+            // Do not let restoring auto-commit commit a half-built chunk (the caller's own work is left alone)
+            try {
+                if (prepStmt != null) {
+                    prepStmt.clearBatch();
+                }
+                if (ownTransaction) {
+                    conn.rollback();
+                }
+            } catch (SQLException rollbackError) {
+                System.err.println("Rollback failed: " + rollbackError.getMessage());
+            }
+        } finally {
+            if (ownTransaction) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    System.err.println("Could not restore auto-commit: " + e.getMessage());
+                }
+            }
+        }
+        DBResultCache.invalidate(conn, query);
+        
+        int[] result = new int[chunkCounts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = chunkCounts.get(i);
+        }
         return result;
     }
     
+    /**
+     * This method executes the same INSERT, UPDATE, or DELETE for a stream of parameter rows
+     * @param conn Connection object
+     * @param query Parameterized SQL query
+     * @param rows Parameter values, one Object array per row
+     * @param chunkSize Number of rows per batch and transaction
+     * @return int[] number of rows affected by each chunk
+     * @see #executeBatchUpdate(Connection, String, Iterable, int)
+     */
+    public static int[] executeBatchUpdate(Connection conn, String query, Stream<Object[]> rows, int chunkSize) {
+        try (rows) {
+            return executeBatchUpdate(conn, query, (Iterable<Object[]>) rows::iterator, chunkSize);
+        }
+    }
+    
+    /**
+     * This method streams the rows of a SELECT query, using the default fetch size
+     * @param <T> Type of object created for each row
+     * @param conn Connection object
+     * @param query SQL query to execute
+     * @param mapper RowMapper that turns each row into an object
+     * @return Stream of mapped rows, which must be closed (e.g. with try-with-resources)
+     * @see #streamQuery(Connection, String, Object[], RowMapper, int)
+     */
+    public static <T> Stream<T> streamQuery(Connection conn, String query, RowMapper<T> mapper) {
+        return streamQuery(conn, query, null, mapper, 0);
+    }
+    
+    /**
+     * This method streams the rows of a (parameterized) SELECT query one at a time.
+     * Rows are only read from SQLite as the stream is consumed, so memory use stays constant
+     * however large the result. The statement and cursor are closed when the last row has been
+     * read or when the stream is closed, whichever comes first, so always close the stream
+     * if it may be only partly consumed.
+     * @param <T> Type of object created for each row
+     * @param conn Connection object
+     * @param query Parameterized SQL query
+     * @param params Object array containing parameter values (may be null)
+     * @param mapper RowMapper that turns each row into an object
+     * @param fetchSize Number of rows the driver should fetch at a time (0 for the driver default)
+     * @return Stream of mapped rows (which may be null if the mapper returns null), or an empty stream
+     * if the query fails. If reading a row fails part way, the stream throws UncheckedSQLException
+     * rather than ending early, so a failed read cannot be mistaken for a complete one.
+     */
+    public static <T> Stream<T> streamQuery(Connection conn, String query, Object[] params, RowMapper<T> mapper, int fetchSize) {
+        DBIndexAdvisor.capture(query, params);
+        DBWorkloadRecorder.record(DBWorkloadRecorder.Kind.STREAM_QUERY, query, params == null ? new Object[0] : params);
+        try {
+            // Not taken from the statement cache, because the stream owns and closes the statement
+            PreparedStatement prepStmt = conn.prepareStatement(query);
+            long start = DBQueryMetrics.start();
+            try {
+                if (fetchSize > 0) {
+                    prepStmt.setFetchSize(fetchSize);
+                }
+                DBParameterBinder.bind(prepStmt, params);
+                
+                // The mapper is bound to the columns once for the whole stream
+                ResultSet resultSet = prepStmt.executeQuery();
+                ResultSetIterator<T> it = new ResultSetIterator<>(prepStmt, resultSet, mapper.bindTo(resultSet), query, start);
+                return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED), false)
+                        .onClose(it::close);
+            } catch (SQLException e) {
+                prepStmt.close();
+                DBQueryMetrics.record(query, start, -1, true);
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Stream query error: " + e.getMessage());
+            System.err.println("Query: " + query);
+        }
+        return Stream.empty();
+    }
+    
+    /**
+     * Iterator over the rows of an open ResultSet, which closes the cursor and statement once exhausted
+     * @param <T> Type of object created for each row
+     */
+    private static final class ResultSetIterator<T> implements Iterator<T> {
+        
+        private final Statement statement;
+        private final ResultSet resultSet;
+        private final RowMapper<T> mapper;
+        private final String query;
+        
+        // Metrics start time, and rows handed out so far
+        private final long start;
+        private long rowCount = 0;
+        private boolean failed = false;
+        
+        // true when the ResultSet has been moved to a row that has not been returned yet
+        private boolean rowReady = false;
+        private boolean closed = false;
+        
+        ResultSetIterator(Statement statement, ResultSet resultSet, RowMapper<T> mapper, String query, long start) {
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.mapper = mapper;
+            this.query = query;
+            this.start = start;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (rowReady) {
+                return true;
+            }
+            if (closed) {
+                return false;
+            }
+            try {
+                rowReady = resultSet.next();
+            } catch (SQLException e) {
+                failed = true;
+                close();
+                throw new UncheckedSQLException("Could not read row " + (rowCount + 1) + " of " + query, e);
+            }
+            if (!rowReady) {
+                close();
+            }
+            return rowReady;
+        }
+        
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            rowReady = false;
+            rowCount++;
+            try {
+                return mapper.mapRow(resultSet);
+            } catch (SQLException e) {
+                failed = true;
+                close();
+                throw new UncheckedSQLException("Could not map row " + rowCount + " of " + query, e);
+            }
+        }
+        
+        /**
+         * Closes the cursor and the statement (safe to call more than once)
+         */
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // For a stream, the time recorded covers the whole scan
+            DBQueryMetrics.record(query, start, rowCount, failed);
+            try {
+                resultSet.close();
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing streamed query: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Adds up the per-statement counts returned by executeBatch()
+     * @param counts int array returned by executeBatch()
+     * @param rowsInChunk Number of rows in the batch
+     * @return int total number of rows affected
+     */
+    private static int sumBatchCounts(int[] counts, int rowsInChunk) {
+        int total = 0;
+        for (int count : counts) {
+            // Drivers may report SUCCESS_NO_INFO instead of a row count
+            total += (count == Statement.SUCCESS_NO_INFO) ? 1 : Math.max(count, 0);
+        }
+        return counts.length == 0 ? rowsInChunk : total;
+    }
+    
 }
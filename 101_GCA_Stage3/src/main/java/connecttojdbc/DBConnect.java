@@ -3,6 +3,7 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.io.File;
+import org.sqlite.SQLiteConfig;
 
 /**
  * This class is used to connect and disconnect from an SQLite database
@@ -12,12 +13,50 @@ import java.io.File;
  */
 public class DBConnect {
     
+    // Class name of the SQLite JDBC driver
+    static final String DRIVER_CLASS = "org.sqlite.JDBC";
+    
+    // Set once the driver has been loaded, so later connections skip the lookup
+    private static volatile boolean driverLoaded = false;
+    
     /**
-     * This method is used to connect to an SQLite database file
+     * This method is used to connect to an SQLite database file using the active connection profile
      * @param dbFilePath Path to the SQLite database file
      * @return Connection object if successful, null otherwise
+     * @see DBConnectionProfile#active()
      */
     public static Connection connect(String dbFilePath) {
+        return connect(dbFilePath, DBConnectionProfile.active());
+    }
+    
+    /**
+     * This method is used to connect to an SQLite database file with the pragmas of a connection profile
+     * @param dbFilePath Path to the SQLite database file
+     * @param profile DBConnectionProfile whose settings are applied to the connection
+     * @return Connection object if successful, null otherwise
+     */
+    public static Connection connect(String dbFilePath, DBConnectionProfile profile) {
+        return open(dbFilePath, profile.toConfig());
+    }
+    
+    /**
+     * This method is used to open a read-only connection to an SQLite database file using the active
+     * connection profile. Any number of these can read at the same time, and in WAL mode they do not
+     * block (or get blocked by) a writer.
+     * @param dbFilePath Path to the SQLite database file
+     * @return Connection object if successful, null otherwise
+     */
+    public static Connection connectReadOnly(String dbFilePath) {
+        return open(dbFilePath, DBConnectionProfile.active().toReadOnlyConfig());
+    }
+    
+    /**
+     * Opens a connection to an SQLite database file
+     * @param dbFilePath Path to the SQLite database file
+     * @param config SQLiteConfig applied to the connection
+     * @return Connection object if successful, null otherwise
+     */
+    private static Connection open(String dbFilePath, SQLiteConfig config) {
         Connection conn = null;
         try {
             // Check if the database file exists
@@ -28,16 +67,16 @@ public class DBConnect {
                 return null;
             }
             
-            // Load the SQLite JDBC driver
-            Class.forName("org.sqlite.JDBC");
+            // Load the SQLite JDBC driver (only the first connection does any work)
+            if (!loadDriver()) {
+                return null;
+            }
             
             // Create the connection to the database
             String url = "jdbc:sqlite:" + dbFilePath;
-            conn = DriverManager.getConnection(url);
+            conn = DriverManager.getConnection(url, config.toProperties());
             
             System.out.println("Connection to SQLite database established.");
-        } catch (ClassNotFoundException e) {
-            System.err.println("SQLite JDBC Driver not found: " + e.getMessage());
         } catch (SQLException e) {
             System.err.println("SQLite connection error: " + e.getMessage());
         }
@@ -52,6 +91,7 @@ public class DBConnect {
     public static boolean disconnect(Connection conn) {
         try {
             if (conn != null) {
+                PreparedStatementCache.remove(conn);
                 conn.close();
                 System.out.println("Connection to SQLite database closed.");
                 return true;
@@ -67,12 +107,27 @@ public class DBConnect {
      * @return boolean true if driver is available, false otherwise
      */
     public static boolean isSQLiteDriverAvailable() {
-        try {
-            Class.forName("org.sqlite.JDBC");
+        return loadDriver();
+    }
+    
+    /**
+     * Loads and registers the SQLite JDBC driver the first time it is called
+     * @return boolean true if the driver is loaded, false if it cannot be found
+     */
+    static boolean loadDriver() {
+        if (driverLoaded) {
             return true;
-        } catch (ClassNotFoundException e) {
-            System.err.println("SQLite JDBC driver not found: " + e.getMessage());
-            return false;
+        }
+        synchronized (DBConnect.class) {
+            if (!driverLoaded) {
+                try {
+                    Class.forName(DRIVER_CLASS);
+                    driverLoaded = true;
+                } catch (ClassNotFoundException e) {
+                    System.err.println("SQLite JDBC driver not found: " + e.getMessage());
+                }
+            }
+            return driverLoaded;
         }
     }
     
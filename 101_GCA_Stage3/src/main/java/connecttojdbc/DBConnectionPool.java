@@ -0,0 +1,375 @@
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is used to keep a bounded pool of open connections to an SQLite database
+ * so that callers can borrow and return connections instead of opening a new one per call.
+ * Pools are shared per database file, so use getPool() rather than creating one directly.
+ * @since 16/10/2026
+ * @see DBConnect
+ * @see DBCommand
+ */
+public class DBConnectionPool {
+
+    // Default maximum number of open connections per database file
+    public static final int DEFAULT_MAX_SIZE = 4;
+
+    // Default time an unused connection may sit in the pool before it is closed
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+
+    // Default time a caller will wait for a connection before giving up
+    public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 5_000;
+
+    // One pool per (absolute) database file path
+    private static final Map<String, DBConnectionPool> pools = new ConcurrentHashMap<>();
+
+    private final String dbFilePath;
+    private final boolean readOnly;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+
+    // Limits the number of connections that can be borrowed at the same time
+    private final Semaphore permits;
+
+    // Idle connections, most recently returned first (guarded by this)
+    private final Deque<IdleConnection> idle = new ArrayDeque<>();
+
+    // Connections currently handed out, so release() only takes back its own connections, and only once
+    private final Set<Connection> borrowed = ConcurrentHashMap.newKeySet();
+
+    // Pool metrics
+    private final AtomicInteger borrowedCount = new AtomicInteger();
+    private final LongAdder borrowTotal = new LongAdder();
+    private final LongAdder createdTotal = new LongAdder();
+    private final LongAdder evictedTotal = new LongAdder();
+    private final LongAdder waitNanosTotal = new LongAdder();
+
+    private volatile boolean closed = false;
+
+    /**
+     * An idle connection together with the time it was returned to the pool
+     */
+    private record IdleConnection(Connection conn, long returnedAtMillis) { }
+
+    /**
+     * Creates a pool for a single database file
+     * @param dbFilePath Path to the SQLite database file
+     * @param readOnly true to open read-only connections
+     * @param maxSize Maximum number of open connections
+     * @param idleTimeoutMillis Time after which an unused connection is closed
+     */
+    private DBConnectionPool(String dbFilePath, boolean readOnly, int maxSize, long idleTimeoutMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1: " + maxSize);
+        }
+        this.dbFilePath = dbFilePath;
+        this.readOnly = readOnly;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /*****************************************************************/
+    /*                       POOL REGISTRY                           */
+    /*****************************************************************/
+
+    /**
+     * Returns the shared pool for a database file, creating it with default settings if needed
+     * @param dbFilePath Path to the SQLite database file
+     * @return DBConnectionPool for the database file
+     */
+    public static DBConnectionPool getPool(String dbFilePath) {
+        return getPool(dbFilePath, DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Returns the shared pool for a database file, creating it with the given settings if needed.
+     * If the pool already exists the settings passed here are ignored.
+     * @param dbFilePath Path to the SQLite database file
+     * @param maxSize Maximum number of open connections
+     * @param idleTimeoutMillis Time after which an unused connection is closed
+     * @return DBConnectionPool for the database file
+     */
+    public static DBConnectionPool getPool(String dbFilePath, int maxSize, long idleTimeoutMillis) {
+        String key = new File(dbFilePath).getAbsolutePath();
+        return pools.computeIfAbsent(key, k -> new DBConnectionPool(dbFilePath, false, maxSize, idleTimeoutMillis));
+    }
+
+    /**
+     * Returns the shared pool of read-only connections for a database file, creating it if needed.
+     * If the pool already exists the settings passed here are ignored.
+     * @param dbFilePath Path to the SQLite database file
+     * @param maxSize Maximum number of open connections
+     * @param idleTimeoutMillis Time after which an unused connection is closed
+     * @return DBConnectionPool of read-only connections for the database file
+     * @see DBConnect#connectReadOnly(String)
+     */
+    public static DBConnectionPool getReadOnlyPool(String dbFilePath, int maxSize, long idleTimeoutMillis) {
+        String key = "ro:" + new File(dbFilePath).getAbsolutePath();
+        return pools.computeIfAbsent(key, k -> new DBConnectionPool(dbFilePath, true, maxSize, idleTimeoutMillis));
+    }
+
+    /**
+     * Closes every pool and all of the idle connections they hold
+     */
+    public static void shutdownAll() {
+        for (DBConnectionPool pool : pools.values()) {
+            pool.close();
+        }
+        pools.clear();
+    }
+
+    /*****************************************************************/
+    /*                       BORROW / RELEASE                        */
+    /*****************************************************************/
+
+    /**
+     * Borrows a connection, waiting up to the default timeout for one to become free
+     * @return Connection object if successful, null otherwise
+     */
+    public Connection borrow() {
+        return borrow(DEFAULT_BORROW_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Borrows a connection from the pool. An idle connection is reused when possible,
+     * otherwise a new one is opened as long as the pool is below its maximum size.
+     * The connection must be handed back with release() rather than closed.
+     * @param timeoutMillis Maximum time to wait for a free connection
+     * @return Connection object if successful, null otherwise
+     */
+    public Connection borrow(long timeoutMillis) {
+        if (closed) {
+            System.err.println("Connection pool is closed: " + dbFilePath);
+            return null;
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                System.err.println("Timed out waiting for a pooled connection: " + dbFilePath);
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted waiting for a pooled connection: " + dbFilePath);
+            return null;
+        }
+        waitNanosTotal.add(System.nanoTime() - start);
+
+        // Reuse an idle connection if there is one, otherwise open a new one
+        Connection conn = takeIdle();
+        if (conn == null) {
+            conn = openConnection();
+            if (conn == null) {
+                permits.release();
+                return null;
+            }
+            createdTotal.increment();
+        }
+
+        borrowed.add(conn);
+        borrowedCount.incrementAndGet();
+        borrowTotal.increment();
+        return conn;
+    }
+
+    /**
+     * Returns a borrowed connection to the pool. Any open transaction is rolled back
+     * and auto-commit is restored so the next borrower gets a clean connection.
+     * Connections this pool did not hand out, or has already taken back, are ignored.
+     * @param conn Connection object previously returned by borrow()
+     */
+    public void release(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        if (!borrowed.remove(conn)) {
+            System.err.println("Ignoring release of a connection not borrowed from this pool: " + dbFilePath);
+            return;
+        }
+        borrowedCount.decrementAndGet();
+
+        try {
+            if (closed || conn.isClosed()) {
+                closeQuietly(conn);
+            } else {
+                if (!conn.getAutoCommit()) {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+                synchronized (this) {
+                    idle.addFirst(new IdleConnection(conn, System.currentTimeMillis()));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error returning connection to pool: " + e.getMessage());
+            closeQuietly(conn);
+        } finally {
+            permits.release();
+        }
+
+        evictIdle();
+    }
+
+    /**
+     * Opens connections up front so that the first callers do not pay the connection setup cost
+     * @param count Number of connections to open (capped at the pool size)
+     * @return int number of idle connections in the pool afterwards
+     */
+    public int warmUp(int count) {
+        int target = Math.min(count, maxSize);
+        while (getIdleCount() + borrowedCount.get() < target && !closed) {
+            Connection conn = openConnection();
+            if (conn == null) {
+                break;
+            }
+            createdTotal.increment();
+            synchronized (this) {
+                idle.addLast(new IdleConnection(conn, System.currentTimeMillis()));
+            }
+        }
+        return getIdleCount();
+    }
+
+    /**
+     * Closes idle connections that have not been used within the idle timeout
+     * @return int number of connections closed
+     */
+    public int evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        int evicted = 0;
+        synchronized (this) {
+            // Oldest connections are at the end of the deque
+            Iterator<IdleConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                IdleConnection entry = it.next();
+                if (entry.returnedAtMillis() > cutoff) {
+                    break;
+                }
+                it.remove();
+                closeQuietly(entry.conn());
+                evicted++;
+            }
+        }
+        evictedTotal.add(evicted);
+        return evicted;
+    }
+
+    /**
+     * Closes all idle connections and stops the pool from handing out new ones.
+     * Connections that are still borrowed are closed when they are released.
+     */
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            for (IdleConnection entry : idle) {
+                DBConnect.disconnect(entry.conn());
+            }
+            idle.clear();
+        }
+    }
+
+    /*****************************************************************/
+    /*                       METRICS                                 */
+    /*****************************************************************/
+
+    /**
+     * @return int number of connections currently borrowed
+     */
+    public int getBorrowedCount() {
+        return borrowedCount.get();
+    }
+
+    /**
+     * @return int number of open connections waiting in the pool
+     */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @return long number of connections opened by this pool so far
+     */
+    public long getCreatedCount() {
+        return createdTotal.sum();
+    }
+
+    /**
+     * @return double average time in milliseconds that callers waited for a connection
+     */
+    public double getAverageWaitMillis() {
+        long borrows = borrowTotal.sum();
+        return borrows == 0 ? 0 : waitNanosTotal.sum() / 1_000_000.0 / borrows;
+    }
+
+    /**
+     * Prints the current pool metrics
+     */
+    public void printStats() {
+        System.out.println("Connection pool [" + dbFilePath + (readOnly ? ", read-only" : "") + "]"
+                + " size: " + maxSize
+                + ", borrowed: " + getBorrowedCount()
+                + ", idle: " + getIdleCount()
+                + ", created: " + getCreatedCount()
+                + ", evicted: " + evictedTotal.sum()
+                + ", borrows: " + borrowTotal.sum()
+                + String.format(", avg wait: %.3f ms", getAverageWaitMillis()));
+    }
+
+    /*****************************************************************/
+    /*                       UTILITY METHODS                         */
+    /*****************************************************************/
+
+    /**
+     * @return Connection newly opened to the database file, or null if it could not be opened
+     */
+    private Connection openConnection() {
+        return readOnly ? DBConnect.connectReadOnly(dbFilePath) : DBConnect.connect(dbFilePath);
+    }
+
+    /**
+     * Takes the most recently used idle connection, discarding any that have been closed
+     * @return Connection object, or null if the pool has none idle
+     */
+    private Connection takeIdle() {
+        synchronized (this) {
+            IdleConnection entry;
+            while ((entry = idle.pollFirst()) != null) {
+                try {
+                    if (!entry.conn().isClosed()) {
+                        return entry.conn();
+                    }
+                } catch (SQLException e) {
+                    closeQuietly(entry.conn());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes a connection without reporting errors
+     * @param conn Connection object to close
+     */
+    private static void closeQuietly(Connection conn) {
+        PreparedStatementCache.remove(conn);
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // nothing more we can do with a broken connection
+        }
+    }
+}
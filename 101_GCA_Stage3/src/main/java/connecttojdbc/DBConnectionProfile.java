@@ -0,0 +1,146 @@
+
+import java.util.Locale;
+import org.sqlite.SQLiteConfig;
+
+/**
+ * This enum lists named sets of SQLite settings (pragmas) that are applied when a connection is opened,
+ * so the I/O behaviour can be tuned for a workload without changing code.
+ * The profile used by DBConnect.connect() is chosen with the system property dbs1.profile
+ * (or the environment variable DBS1_PROFILE), e.g. -Ddbs1.profile=READ_HEAVY.
+ * Note that journal_mode=WAL is stored in the database file itself, so it stays on after the first
+ * connection with a WAL profile (SQLite then also keeps -wal and -shm files next to the database).
+ * @since 16/10/2026
+ * @see DBConnect
+ */
+public enum DBConnectionProfile {
+
+    /**
+     * SQLite's own defaults: rollback journal, full synchronous, small page cache, no memory-mapped I/O
+     */
+    DEFAULT(null, null, 0, 0, null, 0),
+
+    /**
+     * Many readers: WAL so reads do not block on writes, a large cache and memory-mapped reads
+     */
+    READ_HEAVY(SQLiteConfig.JournalMode.WAL, SQLiteConfig.SynchronousMode.NORMAL,
+            -64 * 1024, 256L * 1024 * 1024, SQLiteConfig.TempStore.MEMORY, 5_000),
+
+    /**
+     * Large imports: no fsync per commit and a very large cache. An application crash is safe, but an
+     * operating system crash or power cut can corrupt the database file (SQLite's warning for
+     * synchronous=OFF), so only use it for a file that can be rebuilt from its source data.
+     */
+    BULK_LOAD(SQLiteConfig.JournalMode.WAL, SQLiteConfig.SynchronousMode.OFF,
+            -256 * 1024, 256L * 1024 * 1024, SQLiteConfig.TempStore.MEMORY, 30_000),
+
+    /**
+     * Every commit is flushed to disk before it returns
+     */
+    DURABLE(SQLiteConfig.JournalMode.WAL, SQLiteConfig.SynchronousMode.FULL,
+            -16 * 1024, 0, SQLiteConfig.TempStore.DEFAULT, 10_000);
+
+    // System property and environment variable used to pick the active profile
+    public static final String PROFILE_PROPERTY = "dbs1.profile";
+    public static final String PROFILE_ENV = "DBS1_PROFILE";
+
+    private final SQLiteConfig.JournalMode journalMode;
+    private final SQLiteConfig.SynchronousMode synchronous;
+    private final int cacheSize;
+    private final long mmapSize;
+    private final SQLiteConfig.TempStore tempStore;
+    private final int busyTimeoutMillis;
+
+    /**
+     * @param journalMode journal_mode, or null to leave the default
+     * @param synchronous synchronous, or null to leave the default
+     * @param cacheSize cache_size (negative values are in KiB, positive in pages), or 0 to leave the default
+     * @param mmapSize mmap_size in bytes, or 0 for no memory-mapped I/O
+     * @param tempStore temp_store, or null to leave the default
+     * @param busyTimeoutMillis busy_timeout in milliseconds, or 0 to leave the default
+     */
+    DBConnectionProfile(SQLiteConfig.JournalMode journalMode, SQLiteConfig.SynchronousMode synchronous,
+            int cacheSize, long mmapSize, SQLiteConfig.TempStore tempStore, int busyTimeoutMillis) {
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.cacheSize = cacheSize;
+        this.mmapSize = mmapSize;
+        this.tempStore = tempStore;
+        this.busyTimeoutMillis = busyTimeoutMillis;
+    }
+
+    /**
+     * Returns the profile named by the dbs1.profile system property or DBS1_PROFILE environment variable
+     * @return DBConnectionProfile to use, DEFAULT if none (or an unknown one) is named
+     */
+    public static DBConnectionProfile active() {
+        String name = System.getProperty(PROFILE_PROPERTY, System.getenv(PROFILE_ENV));
+        if (name == null || name.isBlank()) {
+            return DEFAULT;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown connection profile: " + name + ", using " + DEFAULT);
+            return DEFAULT;
+        }
+    }
+
+    /**
+     * Builds the SQLiteConfig that applies this profile's pragmas when a connection is opened
+     * @return SQLiteConfig for this profile
+     */
+    public SQLiteConfig toConfig() {
+        return buildConfig(false);
+    }
+    
+    /**
+     * Builds the SQLiteConfig for a read-only connection with this profile's pragmas. The journal mode
+     * is left out, as a read-only connection cannot change it (it uses whatever mode the file is in).
+     * @return SQLiteConfig for a read-only connection
+     */
+    public SQLiteConfig toReadOnlyConfig() {
+        return buildConfig(true);
+    }
+    
+    /**
+     * @param readOnly true to open the database read-only (and leave the journal mode alone)
+     * @return SQLiteConfig for this profile
+     */
+    private SQLiteConfig buildConfig(boolean readOnly) {
+        SQLiteConfig config = new SQLiteConfig();
+        if (readOnly) {
+            config.setReadOnly(true);
+        } else if (journalMode != null) {
+            config.setJournalMode(journalMode);
+        }
+        if (synchronous != null) {
+            config.setSynchronous(synchronous);
+        }
+        if (cacheSize != 0) {
+            config.setCacheSize(cacheSize);
+        }
+        if (mmapSize > 0) {
+            config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(mmapSize));
+        }
+        if (tempStore != null) {
+            config.setTempStore(tempStore);
+        }
+        if (busyTimeoutMillis > 0) {
+            config.setBusyTimeout(busyTimeoutMillis);
+        }
+        return config;
+    }
+
+    /**
+     * @return String summary of the settings in this profile
+     */
+    public String describe() {
+        return name()
+                + " (journal_mode=" + (journalMode == null ? "default" : journalMode)
+                + ", synchronous=" + (synchronous == null ? "default" : synchronous)
+                + ", cache_size=" + (cacheSize == 0 ? "default" : cacheSize)
+                + ", mmap_size=" + mmapSize
+                + ", temp_store=" + (tempStore == null ? "default" : tempStore)
+                + ", busy_timeout=" + (busyTimeoutMillis == 0 ? "default" : busyTimeoutMillis) + ")";
+    }
+}
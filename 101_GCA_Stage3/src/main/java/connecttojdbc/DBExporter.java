@@ -0,0 +1,520 @@
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Base64;
+
+/**
+ * This class is used to export the result of any query to a file in a machine-readable format:
+ * CSV, JSON Lines, or a compact binary columnar format. Rows are streamed from the ResultSet
+ * through a large direct buffer into a FileChannel, so memory use does not grow with the result.
+ *
+ * The binary columnar format (big-endian) is:
+ * <pre>
+ *   "DBSCOL02"                              8-byte magic
+ *   int columnCount
+ *   per column: short nameLength, UTF-8 name bytes
+ *   per row group:
+ *     int rowCount (greater than 0)
+ *     per column: byte type (1=integer, 2=real, 3=text, 4=blob),
+ *                 null bitmap ((rowCount + 7) / 8 bytes, bit set = NULL), then each non-null value
+ *                 as long, double, or int length + bytes for text/blob
+ *   int 0                                   end marker
+ * </pre>
+ * Values are written by their own type rather than the column's declared type, because an SQLite
+ * column (and every column without a declared type) can hold a different type on each row. A row
+ * group's column gets the narrowest type that holds all of its values without loss.
+ * @since 16/10/2026
+ * @see DBOutputFormatter
+ */
+public class DBExporter {
+
+    // Default number of rows between flushes of the buffer to the file (also the columnar row group size)
+    public static final int DEFAULT_FLUSH_INTERVAL_ROWS = 65_536;
+
+    // Size of the direct buffer in front of the file
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // Column types in the binary columnar format
+    private static final byte TYPE_INTEGER = 1;
+    private static final byte TYPE_REAL = 2;
+    private static final byte TYPE_TEXT = 3;
+    private static final byte TYPE_BLOB = 4;
+
+    private static final byte[] COLUMNAR_MAGIC = "DBSCOL02".getBytes(StandardCharsets.US_ASCII);
+
+    // Largest integer a double holds exactly, so integers up to it can share a REAL row group
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+    /*****************************************************************/
+    /*                       CSV                                     */
+    /*****************************************************************/
+
+    /**
+     * Exports a ResultSet to a CSV file using the default flush interval
+     * @param resultSet ResultSet object containing query results
+     * @param file Path of the file to create or overwrite
+     * @return long number of rows written, or -1 if the export failed
+     */
+    public static long exportCsv(ResultSet resultSet, Path file) {
+        return exportCsv(resultSet, file, DEFAULT_FLUSH_INTERVAL_ROWS);
+    }
+
+    /**
+     * Exports a ResultSet to a CSV file (RFC 4180) with a header row of column names.
+     * Fields containing a comma, quote or line break are quoted and quotes are doubled.
+     * NULL is written as an empty field and an empty string as "", so the two can be told apart.
+     * @param resultSet ResultSet object containing query results
+     * @param file Path of the file to create or overwrite
+     * @param flushIntervalRows Number of rows between writes of the buffer to the file
+     * @return long number of rows written, or -1 if the export failed
+     */
+    public static long exportCsv(ResultSet resultSet, Path file, int flushIntervalRows) {
+        if (resultSet == null) {
+            System.out.println("No results were returned!");
+            return -1;
+        }
+        checkFlushInterval(flushIntervalRows);
+
+        try (ChannelSink sink = new ChannelSink(file)) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            StringBuilder line = new StringBuilder(1024);
+
+            // Header row
+            for (int i = 1; i <= columnCount; i++) {
+                appendCsvField(line, metaData.getColumnName(i));
+                line.append(i < columnCount ? ',' : '\n');
+            }
+            sink.write(line);
+
+            long rowCount = 0;
+            while (resultSet.next()) {
+                line.setLength(0);
+                for (int i = 1; i <= columnCount; i++) {
+                    appendCsvValue(line, resultSet.getObject(i));
+                    line.append(i < columnCount ? ',' : '\n');
+                }
+                sink.write(line);
+
+                if (++rowCount % flushIntervalRows == 0) {
+                    sink.flush();
+                }
+            }
+            return rowCount;
+        } catch (SQLException | IOException e) {
+            System.err.println("CSV export error: " + e.getMessage());
+            System.err.println("File: " + file);
+        }
+        return -1;
+    }
+
+    /*****************************************************************/
+    /*                       JSON LINES                              */
+    /*****************************************************************/
+
+    /**
+     * Exports a ResultSet to a JSON Lines file using the default flush interval
+     * @param resultSet ResultSet object containing query results
+     * @param file Path of the file to create or overwrite
+     * @return long number of rows written, or -1 if the export failed
+     */
+    public static long exportJsonLines(ResultSet resultSet, Path file) {
+        return exportJsonLines(resultSet, file, DEFAULT_FLUSH_INTERVAL_ROWS);
+    }
+
+    /**
+     * Exports a ResultSet to a JSON Lines file: one JSON object per row, keyed by column name.
+     * Integers and reals are written as JSON numbers, NULL as null and blobs as Base64 strings.
+     * @param resultSet ResultSet object containing query results
+     * @param file Path of the file to create or overwrite
+     * @param flushIntervalRows Number of rows between writes of the buffer to the file
+     * @return long number of rows written, or -1 if the export failed
+     */
+    public static long exportJsonLines(ResultSet resultSet, Path file, int flushIntervalRows) {
+        if (resultSet == null) {
+            System.out.println("No results were returned!");
+            return -1;
+        }
+        checkFlushInterval(flushIntervalRows);
+
+        try (ChannelSink sink = new ChannelSink(file)) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columnCount = metaData.getColumnCount();
+
+            // Pre-escape the keys once, e.g. "GameName":
+            String[] keys = new String[columnCount];
+            StringBuilder line = new StringBuilder(1024);
+            for (int i = 0; i < columnCount; i++) {
+                line.setLength(0);
+                appendJsonString(line, metaData.getColumnName(i + 1));
+                keys[i] = line.append(':').toString();
+            }
+
+            long rowCount = 0;
+            while (resultSet.next()) {
+                line.setLength(0);
+                line.append('{');
+                for (int i = 1; i <= columnCount; i++) {
+                    if (i > 1) line.append(',');
+                    line.append(keys[i - 1]);
+                    appendJsonValue(line, resultSet.getObject(i));
+                }
+                line.append("}\n");
+                sink.write(line);
+
+                if (++rowCount % flushIntervalRows == 0) {
+                    sink.flush();
+                }
+            }
+            return rowCount;
+        } catch (SQLException | IOException e) {
+            System.err.println("JSON Lines export error: " + e.getMessage());
+            System.err.println("File: " + file);
+        }
+        return -1;
+    }
+
+    /*****************************************************************/
+    /*                       BINARY COLUMNAR                         */
+    /*****************************************************************/
+
+    /**
+     * Exports a ResultSet to the binary columnar format using the default row group size
+     * @param resultSet ResultSet object containing query results
+     * @param file Path of the file to create or overwrite
+     * @return long number of rows written, or -1 if the export failed
+     */
+    public static long exportColumnar(ResultSet resultSet, Path file) {
+        return exportColumnar(resultSet, file, DEFAULT_FLUSH_INTERVAL_ROWS);
+    }
+
+    /**
+     * Exports a ResultSet to the binary columnar format described at the top of this class.
+     * Rows are collected into row groups of flushIntervalRows rows, and each group is written
+     * column by column, so integers and reals are stored as raw 8-byte values without any text.
+     * @param resultSet ResultSet object containing query results
+     * @param file Path of the file to create or overwrite
+     * @param flushIntervalRows Number of rows in each row group
+     * @return long number of rows written, or -1 if the export failed
+     */
+    public static long exportColumnar(ResultSet resultSet, Path file, int flushIntervalRows) {
+        if (resultSet == null) {
+            System.out.println("No results were returned!");
+            return -1;
+        }
+        checkFlushInterval(flushIntervalRows);
+
+        try (ChannelSink sink = new ChannelSink(file)) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columnCount = metaData.getColumnCount();
+
+            // File header
+            sink.put(COLUMNAR_MAGIC);
+            sink.putInt(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                byte[] name = metaData.getColumnName(i + 1).getBytes(StandardCharsets.UTF_8);
+                sink.putShort((short) name.length);
+                sink.put(name);
+            }
+
+            // Column values of one row group (the group's types are only known once it is full)
+            int groupSize = flushIntervalRows;
+            Object[][] values = new Object[columnCount][groupSize];
+
+            long rowCount = 0;
+            int rowsInGroup = 0;
+            while (resultSet.next()) {
+                for (int c = 0; c < columnCount; c++) {
+                    values[c][rowsInGroup] = resultSet.getObject(c + 1);
+                }
+                rowsInGroup++;
+                rowCount++;
+
+                if (rowsInGroup == groupSize) {
+                    writeRowGroup(sink, rowsInGroup, values);
+                    rowsInGroup = 0;
+                }
+            }
+            if (rowsInGroup > 0) {
+                writeRowGroup(sink, rowsInGroup, values);
+            }
+
+            // End marker
+            sink.putInt(0);
+            return rowCount;
+        } catch (SQLException | IOException e) {
+            System.err.println("Columnar export error: " + e.getMessage());
+            System.err.println("File: " + file);
+        }
+        return -1;
+    }
+
+    /**
+     * Writes one row group, column by column, each column with the type that fits its values
+     */
+    private static void writeRowGroup(ChannelSink sink, int rows, Object[][] values) throws IOException {
+        sink.putInt(rows);
+        for (Object[] column : values) {
+            byte type = groupType(column, rows);
+            sink.put(type);
+
+            // Null bitmap
+            for (int start = 0; start < rows; start += 8) {
+                int bits = 0;
+                for (int r = start; r < Math.min(start + 8, rows); r++) {
+                    if (column[r] == null) bits |= 1 << (r - start);
+                }
+                sink.put((byte) bits);
+            }
+
+            // Non-null values
+            for (int r = 0; r < rows; r++) {
+                Object value = column[r];
+                column[r] = null;
+                if (value == null) continue;
+                switch (type) {
+                    case TYPE_INTEGER -> sink.putLong(((Number) value).longValue());
+                    case TYPE_REAL -> sink.putDouble(((Number) value).doubleValue());
+                    case TYPE_BLOB -> {
+                        sink.putInt(((byte[]) value).length);
+                        sink.put((byte[]) value);
+                    }
+                    default -> {
+                        byte[] text = textOf(value).getBytes(StandardCharsets.UTF_8);
+                        sink.putInt(text.length);
+                        sink.put(text);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks the narrowest type that holds every value of a row group's column without loss:
+     * INTEGER if all are integers, REAL if all are numbers (and the integers among them are exact
+     * as doubles), BLOB if all are blobs, otherwise TEXT
+     * @return byte TYPE_ value for the column
+     */
+    private static byte groupType(Object[] column, int rows) {
+        boolean integers = true;
+        boolean numbers = true;
+        boolean blobs = true;
+        for (int r = 0; r < rows; r++) {
+            Object value = column[r];
+            if (value == null) continue;
+            boolean integer = isInteger(value);
+            integers &= integer;
+            numbers &= integer ? Math.abs(((Number) value).longValue()) <= MAX_EXACT_DOUBLE : value instanceof Double;
+            blobs &= value instanceof byte[];
+        }
+        if (integers) return TYPE_INTEGER;
+        if (numbers) return TYPE_REAL;
+        return blobs ? TYPE_BLOB : TYPE_TEXT;
+    }
+
+    /*****************************************************************/
+    /*                       UTILITY METHODS                         */
+    /*****************************************************************/
+
+    private static void checkFlushInterval(int flushIntervalRows) {
+        if (flushIntervalRows < 1) {
+            throw new IllegalArgumentException("Flush interval must be at least 1 row: " + flushIntervalRows);
+        }
+    }
+
+    private static boolean isInteger(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * @return String text form of a non-null value (Base64 for a blob)
+     */
+    private static String textOf(Object value) {
+        return value instanceof byte[] ? Base64.getEncoder().encodeToString((byte[]) value) : value.toString();
+    }
+
+    /**
+     * Appends one column value as a CSV field, by the value's own type (nothing for NULL)
+     */
+    private static void appendCsvValue(StringBuilder line, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (isInteger(value)) {
+            line.append(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            line.append(((Double) value).doubleValue());
+        } else if (value instanceof byte[]) {
+            line.append(textOf(value));
+        } else {
+            appendCsvField(line, value.toString());
+        }
+    }
+
+    /**
+     * Appends a text field to a CSV line, quoting it if needed
+     */
+    private static void appendCsvField(StringBuilder line, String value) {
+        boolean quote = value.isEmpty();
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char ch = value.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"') line.append('"');
+            line.append(ch);
+        }
+        line.append('"');
+    }
+
+    /**
+     * Appends one column value as a JSON value, by the value's own type
+     */
+    private static void appendJsonValue(StringBuilder line, Object value) {
+        if (value == null) {
+            line.append("null");
+        } else if (isInteger(value)) {
+            line.append(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            double d = (Double) value;
+            // JSON has no NaN or Infinity
+            if (Double.isNaN(d) || Double.isInfinite(d)) line.append("null"); else line.append(d);
+        } else if (value instanceof byte[]) {
+            line.append('"').append(textOf(value)).append('"');
+        } else {
+            appendJsonString(line, value.toString());
+        }
+    }
+
+    /**
+     * Appends a quoted, escaped JSON string
+     */
+    private static void appendJsonString(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (ch < 0x20) {
+                        line.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        line.append(ch);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * A FileChannel with a large direct buffer in front of it. Text is encoded to UTF-8
+     * straight into the buffer, and the buffer is only written out when it is full,
+     * when flush() is called, or when the sink is closed.
+     */
+    private static final class ChannelSink implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+        ChannelSink(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    flush();
+                } else if (result.isError()) {
+                    result.throwException();
+                } else {
+                    break;
+                }
+            }
+        }
+
+        void put(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void put(byte[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                if (!buffer.hasRemaining()) flush();
+                int length = Math.min(buffer.remaining(), values.length - offset);
+                buffer.put(values, offset, length);
+                offset += length;
+            }
+        }
+
+        void putShort(short value) throws IOException {
+            ensure(Short.BYTES);
+            buffer.putShort(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        /**
+         * Writes everything buffered so far to the file
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+import org.sqlite.util.OSInfo;
+
+/**
+ * This class is used to cut the start-up time of short runs of the application.
+ *
+ * On its first connection, sqlite-jdbc copies its native library out of the jar into a temporary
+ * file and loads it from there, and it does this again on every run. In fast-start mode the library
+ * is copied once into a cache folder (per driver version and platform) and the driver is told to
+ * load it from there, through its org.sqlite.lib.path and org.sqlite.lib.name properties. The driver
+ * is then loaded once, up front, by DBConnect.loadDriver().
+ *
+ * The rest of the start-up cost is the JVM loading and verifying classes. The fast-start build profile
+ * (mvn -P fast-start package) makes an AppCDS archive of the classes a run uses, which later runs map
+ * in instead of loading one by one:
+ * <pre>
+ *   java -XX:SharedArchiveFile=target/app-cds.jsa -Ddbs1.fastStart=true -jar target/DBS1_GCA_Stage3-1.0-SNAPSHOT.jar
+ * </pre>
+ * Turn fast start on with -Ddbs1.fastStart=true, and choose the cache folder with -Ddbs1.nativeCacheDir=...
+ * (by default .cache/dbs1/sqlite-native in the user's home folder). printReport() shows where the time went,
+ * including the time from JVM start to the first query, so runs with and without it can be compared.
+ * @since 16/10/2026
+ * @see DBConnect
+ */
+public final class DBFastStart {
+
+    // System properties read at start-up
+    public static final String ENABLED_PROPERTY = "dbs1.fastStart";
+    public static final String CACHE_DIR_PROPERTY = "dbs1.nativeCacheDir";
+
+    // sqlite-jdbc's properties for loading its native library from a given file
+    private static final String LIB_PATH_PROPERTY = "org.sqlite.lib.path";
+    private static final String LIB_NAME_PROPERTY = "org.sqlite.lib.name";
+
+    // Where the driver jar keeps its version and native libraries
+    private static final String DRIVER_POM = "/META-INF/maven/org.xerial/sqlite-jdbc/pom.properties";
+    private static final String NATIVE_ROOT = "/org/sqlite/native/";
+
+    // Start-up measurements (written once, by the thread that runs Main)
+    private static long nativeSetupNanos = -1;
+    private static String nativeSource = "extracted by the driver";
+    private static long driverLoadNanos = -1;
+    private static volatile Duration timeToFirstQuery;
+
+    private DBFastStart() {
+    }
+
+    /**
+     * @return boolean true if fast start is turned on
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Loads the SQLite driver, first pointing it at the cached native library when fast start is on.
+     * Call this before anything else touches the driver, as the native library is loaded only once.
+     * @return boolean true if the driver is loaded
+     */
+    public static boolean start() {
+        if (isEnabled() && System.getProperty(LIB_PATH_PROPERTY) == null) {
+            long start = System.nanoTime();
+            Path library = cachedNativeLibrary();
+            if (library != null) {
+                System.setProperty(LIB_PATH_PROPERTY, library.getParent().toString());
+                System.setProperty(LIB_NAME_PROPERTY, library.getFileName().toString());
+            }
+            nativeSetupNanos = System.nanoTime() - start;
+        }
+        long start = System.nanoTime();
+        boolean loaded = DBConnect.loadDriver();
+        driverLoadNanos = System.nanoTime() - start;
+        return loaded;
+    }
+
+    /**
+     * Records the time from JVM start to now, the first time it is called
+     */
+    public static void markFirstQuery() {
+        if (timeToFirstQuery == null) {
+            Instant jvmStart = ProcessHandle.current().info().startInstant().orElse(null);
+            timeToFirstQuery = jvmStart == null ? Duration.ZERO : Duration.between(jvmStart, Instant.now());
+        }
+    }
+
+    /**
+     * Prints how long the native library set-up and driver load took, and the time to the first query
+     */
+    public static void printReport() {
+        System.out.println("\nStart-up (fast start " + (isEnabled() ? "on" : "off") + "):");
+        if (nativeSetupNanos >= 0) {
+            System.out.printf("  native library: %s (%.2f ms)%n", nativeSource, nativeSetupNanos / 1_000_000.0);
+        }
+        if (driverLoadNanos >= 0) {
+            System.out.printf("  driver load: %.2f ms%n", driverLoadNanos / 1_000_000.0);
+        }
+        if (timeToFirstQuery != null) {
+            System.out.println("  time to first query: " + timeToFirstQuery.toMillis() + " ms since JVM start");
+        }
+    }
+
+    /*****************************************************************/
+    /*                       NATIVE LIBRARY                          */
+    /*****************************************************************/
+
+    /**
+     * Returns the cached copy of the driver's native library for this platform, copying it out of
+     * the driver jar if this driver version has not been cached yet
+     * @return Path of the library, or null to let the driver extract it as usual
+     */
+    private static Path cachedNativeLibrary() {
+        String folder = OSInfo.getNativeLibFolderPathForCurrentOS();
+        String name = nativeLibraryName();
+        String resource = NATIVE_ROOT + folder + "/" + name;
+        if (DBFastStart.class.getResource(resource) == null) {
+            nativeSource = "extracted by the driver (no bundled library for " + folder + ")";
+            return null;
+        }
+
+        Path library = cacheRoot().resolve(driverVersion()).resolve(folder).resolve(name);
+        if (Files.isRegularFile(library)) {
+            nativeSource = "cached at " + library;
+            return library;
+        }
+        try (InputStream in = DBFastStart.class.getResourceAsStream(resource)) {
+            Files.createDirectories(library.getParent());
+            // Copy to a temporary name first, so another run never loads a half-written file
+            Path partial = Files.createTempFile(library.getParent(), name, ".part");
+            Files.copy(in, partial, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(partial, library, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            nativeSource = "copied to cache " + library;
+            return library;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not cache the SQLite native library: " + e.getMessage());
+            nativeSource = "extracted by the driver (cache failed)";
+            return null;
+        }
+    }
+
+    /**
+     * @return Path of the cache folder, from dbs1.nativeCacheDir or the user's home folder
+     */
+    private static Path cacheRoot() {
+        String dir = System.getProperty(CACHE_DIR_PROPERTY);
+        if (dir != null && !dir.isBlank()) {
+            return Path.of(dir);
+        }
+        return Path.of(System.getProperty("user.home"), ".cache", "dbs1", "sqlite-native");
+    }
+
+    /**
+     * @return String version of the sqlite-jdbc jar, so each version gets its own cached library
+     */
+    private static String driverVersion() {
+        try (InputStream in = DBFastStart.class.getResourceAsStream(DRIVER_POM)) {
+            if (in != null) {
+                Properties pom = new Properties();
+                pom.load(in);
+                return pom.getProperty("version", "unknown");
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read the SQLite driver version: " + e.getMessage());
+        }
+        return "unknown";
+    }
+
+    /**
+     * @return String file name of the native library in the driver jar
+     */
+    private static String nativeLibraryName() {
+        String name = System.mapLibraryName("sqlitejdbc");
+        // Older JDKs on macOS map to .jnilib, but the jar holds a .dylib
+        return name.endsWith(".jnilib") ? name.replace(".jnilib", ".dylib") : name;
+    }
+}
@@ -0,0 +1,885 @@
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * This class is used to load SQL scripts and CSV files (such as schema.sql and populate.sql in
+ * src/main/resources/sql) into an SQLite database.
+ *
+ * Files are memory-mapped in large windows and scanned in place: the tokenizer only looks at bytes,
+ * and a statement or field becomes a String once, when it is handed to JDBC. Statements and rows
+ * are sent in batches and committed in large transactions, so a rebuild is limited by the disk
+ * rather than by parsing or per-row commits. Use the BULK_LOAD connection profile for the fastest loads.
+ *
+ * SQL scripts are split on semicolons outside quotes, comments and CREATE TRIGGER bodies. BEGIN,
+ * COMMIT and END statements in a script are skipped, because the importer manages the transactions.
+ * CSV files need a header row of column names; an empty unquoted field is loaded as NULL and ""
+ * as an empty string (the convention DBExporter.exportCsv writes).
+ *
+ * If a statement or batch fails, the open transaction is rolled back and the import stops;
+ * transactions committed before it are kept. When called inside the caller's own transaction the
+ * importer never commits, and a failed file is rolled back to a savepoint taken when it started.
+ * @since 16/10/2026
+ * @see DBExporter
+ * @see DBConnectionProfile#BULK_LOAD
+ */
+public class DBImporter {
+
+    // Folder of scripts loaded by importResources()
+    public static final String DEFAULT_SQL_FOLDER = "src/main/resources/sql";
+
+    // System property that makes Main import the folder before running queries
+    public static final String IMPORT_PROPERTY = "dbs1.importSql";
+
+    // System property naming the database file Main imports into (created, or replaced, for the import)
+    public static final String IMPORT_TARGET_PROPERTY = "dbs1.importTarget";
+    public static final String DEFAULT_IMPORT_TARGET = "target/imported_database.sqlite";
+
+    // Default number of statements or rows sent to SQLite in one batch
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+
+    // Default number of statements or rows committed in one transaction
+    public static final int DEFAULT_COMMIT_SIZE = 100_000;
+
+    // Scripts run first, in this order, by importResources(); queries.sql is never run
+    private static final List<String> SCRIPT_ORDER = List.of("schema.sql", "populate.sql");
+    private static final String QUERIES_SCRIPT = "queries.sql";
+
+    // Bytes of the file mapped at a time (a single statement or row must fit in one window)
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    // Bytes between progress reports
+    private static final long PROGRESS_INTERVAL_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * Receives progress reports while a file is imported
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * @param file Path of the file being imported
+         * @param bytesDone Bytes of the file processed so far
+         * @param totalBytes Size of the file in bytes
+         * @param items Statements or rows imported so far
+         * @param elapsedNanos Time since the import of the file started
+         */
+        void progress(Path file, long bytesDone, long totalBytes, long items, long elapsedNanos);
+    }
+
+    /**
+     * Prints percentage, item count and throughput to the console
+     */
+    public static final ProgressListener CONSOLE_PROGRESS = (file, bytesDone, totalBytes, items, elapsedNanos) ->
+            System.out.printf("Importing %s: %5.1f%%  %,d items  %.1f MB/s%n", file.getFileName(),
+                    totalBytes == 0 ? 100.0 : 100.0 * bytesDone / totalBytes, items,
+                    bytesDone / Math.max(elapsedNanos / 1e9, 1e-9) / (1024 * 1024));
+
+    /**
+     * Ignores progress
+     */
+    public static final ProgressListener NO_PROGRESS = (file, bytesDone, totalBytes, items, elapsedNanos) -> { };
+
+    /*****************************************************************/
+    /*                       FOLDERS                                 */
+    /*****************************************************************/
+
+    /**
+     * Imports the scripts and CSV files of src/main/resources/sql, reporting progress to the console
+     * @param conn Connection object
+     * @return boolean true if every file was imported
+     * @see #importResources(Connection, Path, ProgressListener)
+     */
+    public static boolean importResources(Connection conn) {
+        return importResources(conn, Path.of(DEFAULT_SQL_FOLDER), CONSOLE_PROGRESS);
+    }
+
+    /**
+     * Imports a folder: schema.sql, then populate.sql, then the other .sql files by name, then each
+     * .csv file by name into the table named after the file (games.csv into games).
+     * queries.sql is skipped, as it holds the queries to run against the data rather than data.
+     * @param conn Connection object
+     * @param folder Path of the folder
+     * @param listener ProgressListener for each file
+     * @return boolean true if every file was imported (stops at the first failure)
+     */
+    public static boolean importResources(Connection conn, Path folder, ProgressListener listener) {
+        List<Path> scripts = new ArrayList<>();
+        List<Path> csvFiles = new ArrayList<>();
+        try (Stream<Path> files = Files.list(folder)) {
+            files.sorted().forEach(file -> {
+                String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+                if (name.endsWith(".sql") && !name.equals(QUERIES_SCRIPT)) {
+                    scripts.add(file);
+                } else if (name.endsWith(".csv")) {
+                    csvFiles.add(file);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Import error: " + e.getMessage());
+            System.err.println("Folder: " + folder);
+            return false;
+        }
+
+        // Known scripts first, in dependency order; the rest keep their name order
+        scripts.sort((a, b) -> Integer.compare(scriptRank(a), scriptRank(b)));
+
+        for (Path script : scripts) {
+            if (importSql(conn, script, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_SIZE, listener) < 0) {
+                return false;
+            }
+        }
+        for (Path csvFile : csvFiles) {
+            String fileName = csvFile.getFileName().toString();
+            String table = fileName.substring(0, fileName.length() - ".csv".length());
+            if (importCsv(conn, csvFile, table, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_SIZE, listener) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param script Path of an SQL script
+     * @return int position of the script in SCRIPT_ORDER, or after them all
+     */
+    private static int scriptRank(Path script) {
+        int rank = SCRIPT_ORDER.indexOf(script.getFileName().toString().toLowerCase(Locale.ROOT));
+        return rank < 0 ? SCRIPT_ORDER.size() : rank;
+    }
+
+    /*****************************************************************/
+    /*                       SQL SCRIPTS                             */
+    /*****************************************************************/
+
+    /**
+     * Runs the statements of an SQL script using the default batch and commit sizes
+     * @param conn Connection object
+     * @param file Path of the script
+     * @return long number of statements run, or -1 if the import failed
+     */
+    public static long importSql(Connection conn, Path file) {
+        return importSql(conn, file, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_SIZE, CONSOLE_PROGRESS);
+    }
+
+    /**
+     * Runs the statements of an SQL script, batchSize statements at a time, committing every commitSize
+     * @param conn Connection object
+     * @param file Path of the script
+     * @param batchSize Number of statements per batch
+     * @param commitSize Number of statements per transaction
+     * @param listener ProgressListener for the file
+     * @return long number of statements run, or -1 if the import failed
+     */
+    public static long importSql(Connection conn, Path file, int batchSize, int commitSize, ProgressListener listener) {
+        checkSizes(batchSize, commitSize);
+        try (Statement statement = conn.createStatement();
+                BatchTransaction tx = new BatchTransaction(conn, statement, "-- script " + file.getFileName(),
+                        batchSize, commitSize)) {
+            try {
+                return scanFile(file, new SqlLoader(statement, tx), listener);
+            } finally {
+                if (tx.committed) {
+                    // A script may create or drop tables, so nothing cached for the database can be trusted,
+                    // even if the script failed after some of it was committed
+                    DBResultCache.invalidateAll(conn);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("SQL import error: " + e.getMessage());
+            System.err.println("File: " + file);
+        }
+        return -1;
+    }
+
+    /**
+     * Splits an SQL script into statements and adds them to the batch. A semicolon ends a statement
+     * unless it is inside a quote, a comment or a trigger body, and a trigger body ends at a semicolon
+     * that follows the keyword END (the rules of sqlite3_complete()).
+     */
+    private static final class SqlLoader implements ItemHandler {
+
+        private final Statement statement;
+        private final BatchTransaction tx;
+
+        // Byte range of the current statement, from its first significant byte to before the semicolon
+        private int textStart;
+        private int textEnd;
+
+        // First words of the statement, used to spot CREATE TRIGGER and transaction control
+        private final String[] firstWords = new String[3];
+        private int wordCount;
+        private boolean lastWordEnd;
+
+        private byte[] scratch = new byte[4096];
+
+        SqlLoader(Statement statement, BatchTransaction tx) {
+            this.statement = statement;
+            this.tx = tx;
+        }
+
+        @Override
+        public int handle(MappedByteBuffer window, int start, int limit, boolean lastWindow) throws SQLException {
+            int end = scan(window, start, limit, lastWindow);
+            if (end >= 0 && isExecutable()) {
+                statement.addBatch(text(window));
+                tx.added();
+            }
+            return end;
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            tx.flush();
+        }
+
+        @Override
+        public long itemCount() {
+            return tx.itemCount;
+        }
+
+        /**
+         * Finds the end of the statement starting at start
+         * @return int offset after the statement's semicolon, or -1 if it continues past the window
+         */
+        private int scan(ByteBuffer window, int start, int limit, boolean lastWindow) {
+            textStart = -1;
+            wordCount = 0;
+            Arrays.fill(firstWords, null);
+            lastWordEnd = false;
+
+            int i = start;
+            while (i >= 0 && i < limit) {
+                byte b = window.get(i);
+                if (b == ';') {
+                    if (!isTrigger() || lastWordEnd) {
+                        textEnd = i;
+                        return i + 1;
+                    }
+                    lastWordEnd = false;
+                    i++;
+                } else if (b == '-' && i + 1 < limit && window.get(i + 1) == '-') {
+                    i = skipPast(window, i + 2, limit, (byte) '\n');
+                } else if (b == '/' && i + 1 < limit && window.get(i + 1) == '*') {
+                    i = skipBlockComment(window, i + 2, limit);
+                } else if (b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f') {
+                    i++;
+                } else {
+                    if (textStart < 0) {
+                        textStart = i;
+                    }
+                    if (isWordByte(b)) {
+                        int wordEnd = i + 1;
+                        while (wordEnd < limit && isWordByte(window.get(wordEnd))) {
+                            wordEnd++;
+                        }
+                        word(window, i, wordEnd);
+                        i = wordEnd;
+                    } else {
+                        lastWordEnd = false;
+                        if (b == '\'' || b == '"' || b == '`') {
+                            // A doubled quote is read as two quoted strings side by side
+                            i = skipPast(window, i + 1, limit, b);
+                        } else if (b == '[') {
+                            i = skipPast(window, i + 1, limit, (byte) ']');
+                        } else {
+                            i++;
+                        }
+                    }
+                }
+            }
+            if (!lastWindow) {
+                return -1;
+            }
+            // The last statement of the file does not need a semicolon
+            textEnd = limit;
+            return limit;
+        }
+
+        /**
+         * @return boolean true if the statement found by scan() is not empty and is not BEGIN, COMMIT or END
+         */
+        private boolean isExecutable() {
+            String first = firstWords[0];
+            return textStart >= 0 && !("BEGIN".equals(first) || "COMMIT".equals(first) || "END".equals(first));
+        }
+
+        /**
+         * @return String text of the statement found by scan(), without its semicolon
+         */
+        private String text(ByteBuffer window) {
+            int length = textEnd - textStart;
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            window.get(textStart, scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Notes a keyword or identifier (only the first three words of a statement are kept)
+         */
+        private void word(ByteBuffer window, int start, int end) {
+            lastWordEnd = end - start == 3 && matchesKeyword(window, start, "END");
+            if (wordCount < firstWords.length) {
+                byte[] bytes = new byte[Math.min(end - start, 16)];
+                window.get(start, bytes);
+                firstWords[wordCount++] = new String(bytes, StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+            }
+        }
+
+        /**
+         * @return boolean true if the statement is CREATE [TEMP|TEMPORARY] TRIGGER
+         */
+        private boolean isTrigger() {
+            if (wordCount < 2 || !"CREATE".equals(firstWords[0])) {
+                return false;
+            }
+            if ("TEMP".equals(firstWords[1]) || "TEMPORARY".equals(firstWords[1])) {
+                return "TRIGGER".equals(firstWords[2]);
+            }
+            return "TRIGGER".equals(firstWords[1]);
+        }
+
+        /**
+         * @return int offset after the next occurrence of a byte, or -1 if it is not in the window
+         */
+        private static int skipPast(ByteBuffer window, int i, int limit, byte close) {
+            for (; i < limit; i++) {
+                if (window.get(i) == close) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return int offset after the end of a block comment, or -1 if it is not in the window
+         */
+        private static int skipBlockComment(ByteBuffer window, int i, int limit) {
+            for (; i + 1 < limit; i++) {
+                if (window.get(i) == '*' && window.get(i + 1) == '/') {
+                    return i + 2;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean isWordByte(byte b) {
+            // Negative bytes are parts of non-ASCII UTF-8 characters, which SQLite allows in identifiers
+            return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                    || b == '_' || b == '$' || b < 0;
+        }
+
+        private static boolean matchesKeyword(ByteBuffer window, int start, String keyword) {
+            for (int i = 0; i < keyword.length(); i++) {
+                if (Character.toUpperCase((char) window.get(start + i)) != keyword.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /*****************************************************************/
+    /*                       CSV FILES                               */
+    /*****************************************************************/
+
+    /**
+     * Loads a CSV file into a table using the default batch and commit sizes
+     * @param conn Connection object
+     * @param file Path of the CSV file (with a header row)
+     * @param table Name of the table to insert into
+     * @return long number of rows inserted, or -1 if the import failed
+     */
+    public static long importCsv(Connection conn, Path file, String table) {
+        return importCsv(conn, file, table, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_SIZE, CONSOLE_PROGRESS);
+    }
+
+    /**
+     * Loads a CSV file (RFC 4180, UTF-8) into a table with a batched prepared INSERT.
+     * The header row names the columns to fill. Values are bound as text and converted by the
+     * column's type affinity, as the sqlite3 shell's .import does.
+     * @param conn Connection object
+     * @param file Path of the CSV file (with a header row)
+     * @param table Name of the table to insert into
+     * @param batchSize Number of rows per batch
+     * @param commitSize Number of rows per transaction
+     * @param listener ProgressListener for the file
+     * @return long number of rows inserted, or -1 if the import failed
+     */
+    public static long importCsv(Connection conn, Path file, String table, int batchSize, int commitSize,
+            ProgressListener listener) {
+        checkSizes(batchSize, commitSize);
+        try (CsvLoader loader = new CsvLoader(conn, table, batchSize, commitSize)) {
+            try {
+                return scanFile(file, loader, listener);
+            } finally {
+                if (loader.tx != null && loader.tx.committed) {
+                    // Rows committed before a failure are in the table too
+                    DBResultCache.invalidate(conn, loader.insert);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("CSV import error: " + e.getMessage());
+            System.err.println("File: " + file);
+        }
+        return -1;
+    }
+
+    /**
+     * Splits a CSV file into records, keeping each field as a byte range of the window. The first
+     * record is the header, from which the INSERT is built; each later record is bound and batched.
+     */
+    private static final class CsvLoader implements ItemHandler, AutoCloseable {
+
+        private final Connection conn;
+        private final String table;
+        private final int batchSize;
+        private final int commitSize;
+
+        // Created when the header has been read
+        private String insert;
+        private PreparedStatement prepStmt;
+        private BatchTransaction tx;
+
+        // Byte range of each field of the current record, whether it was quoted and whether it holds doubled quotes
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private boolean[] quoted = new boolean[16];
+        private boolean[] escaped = new boolean[16];
+        private int fieldCount;
+        private int columnCount = 0;
+        private long recordNumber = 0;
+        private boolean atFileStart = true;
+
+        private byte[] scratch = new byte[256];
+
+        CsvLoader(Connection conn, String table, int batchSize, int commitSize) {
+            this.conn = conn;
+            this.table = table;
+            this.batchSize = batchSize;
+            this.commitSize = commitSize;
+        }
+
+        @Override
+        public int handle(MappedByteBuffer window, int start, int limit, boolean lastWindow) throws SQLException {
+            int end = scan(window, start, limit, lastWindow);
+            if (end < 0 || fieldCount == 0) {
+                return end;
+            }
+            if (tx == null) {
+                columnCount = fieldCount;
+                insert = insertStatement(table, headers(window));
+                prepStmt = PreparedStatementCache.prepare(conn, insert);
+                tx = new BatchTransaction(conn, prepStmt, insert, batchSize, commitSize);
+            } else {
+                bind(window);
+                prepStmt.addBatch();
+                tx.added();
+            }
+            return end;
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            if (tx != null) {
+                tx.flush();
+            }
+        }
+
+        @Override
+        public long itemCount() {
+            return tx == null ? 0 : tx.itemCount;
+        }
+
+        @Override
+        public void close() {
+            if (tx != null) {
+                tx.close();
+            }
+        }
+
+        /**
+         * Finds the end of the record starting at start
+         * @return int offset after the record's line break, or -1 if it continues past the window
+         * @throws SQLException if the record is malformed or has the wrong number of fields
+         */
+        private int scan(ByteBuffer window, int start, int limit, boolean lastWindow) throws SQLException {
+            fieldCount = 0;
+            int i = start;
+            if (atFileStart) {
+                atFileStart = false;
+                if (limit - i >= 3 && window.get(i) == (byte) 0xEF && window.get(i + 1) == (byte) 0xBB
+                        && window.get(i + 2) == (byte) 0xBF) {
+                    // UTF-8 byte order mark
+                    i += 3;
+                }
+            }
+            while (true) {
+                int fieldStart = i;
+                int fieldEnd;
+                boolean isQuoted = i < limit && window.get(i) == '"';
+                boolean hasEscapes = false;
+                if (isQuoted) {
+                    fieldStart = ++i;
+                    while (true) {
+                        if (i >= limit) {
+                            if (lastWindow) {
+                                throw new SQLException("Unterminated quoted field in record " + (recordNumber + 1));
+                            }
+                            return -1;
+                        }
+                        if (window.get(i) == '"') {
+                            if (i + 1 < limit && window.get(i + 1) == '"') {
+                                hasEscapes = true;
+                                i += 2;
+                                continue;
+                            }
+                            if (i + 1 == limit && !lastWindow) {
+                                // Cannot tell a closing quote from the first half of a doubled one
+                                return -1;
+                            }
+                            break;
+                        }
+                        i++;
+                    }
+                    fieldEnd = i++;
+                    if (i < limit && window.get(i) == '\r') {
+                        i++;
+                    }
+                } else {
+                    while (i < limit && window.get(i) != ',' && window.get(i) != '\n') {
+                        i++;
+                    }
+                    fieldEnd = i;
+                    if (fieldEnd > fieldStart && window.get(fieldEnd - 1) == '\r') {
+                        fieldEnd--;
+                    }
+                }
+                if (i >= limit && !lastWindow) {
+                    return -1;
+                }
+                addField(fieldStart, fieldEnd, isQuoted, hasEscapes);
+
+                if (i >= limit) {
+                    return finishRecord(limit);
+                }
+                byte b = window.get(i++);
+                if (b == '\n') {
+                    return finishRecord(i);
+                }
+                if (b != ',') {
+                    throw new SQLException("Unexpected character after quoted field in record " + (recordNumber + 1));
+                }
+            }
+        }
+
+        /**
+         * Ends a record, skipping blank lines and checking the field count against the header
+         * @return int offset after the record
+         */
+        private int finishRecord(int end) throws SQLException {
+            if (fieldCount == 1 && starts[0] == ends[0] && !quoted[0]) {
+                // Blank line
+                fieldCount = 0;
+                return end;
+            }
+            recordNumber++;
+            if (columnCount > 0 && fieldCount != columnCount) {
+                throw new SQLException("Record " + recordNumber + " has " + fieldCount + " fields, expected " + columnCount);
+            }
+            return end;
+        }
+
+        private void addField(int start, int end, boolean isQuoted, boolean hasEscapes) {
+            if (fieldCount == starts.length) {
+                int capacity = fieldCount * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                quoted = Arrays.copyOf(quoted, capacity);
+                escaped = Arrays.copyOf(escaped, capacity);
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = end;
+            quoted[fieldCount] = isQuoted;
+            escaped[fieldCount] = hasEscapes;
+            fieldCount++;
+        }
+
+        /**
+         * @return List of the current record's fields, as column names
+         */
+        private List<String> headers(ByteBuffer window) {
+            List<String> names = new ArrayList<>(fieldCount);
+            for (int f = 0; f < fieldCount; f++) {
+                names.add(field(window, f).trim());
+            }
+            return names;
+        }
+
+        /**
+         * Sets the INSERT's parameters from the current record (empty unquoted fields as NULL)
+         */
+        private void bind(ByteBuffer window) throws SQLException {
+            for (int f = 0; f < fieldCount; f++) {
+                if (!quoted[f] && starts[f] == ends[f]) {
+                    prepStmt.setNull(f + 1, Types.NULL);
+                } else {
+                    prepStmt.setString(f + 1, field(window, f));
+                }
+            }
+        }
+
+        private String field(ByteBuffer window, int f) {
+            int length = ends[f] - starts[f];
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            window.get(starts[f], scratch, 0, length);
+            String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            return escaped[f] ? value.replace("\"\"", "\"") : value;
+        }
+    }
+
+    /**
+     * @param table Table name
+     * @param columns Column names
+     * @return String INSERT with a placeholder per column, names quoted
+     */
+    private static String insertStatement(String table, List<String> columns) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(quote(table)).append(" (");
+        StringBuilder values = new StringBuilder(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(quote(columns.get(i)));
+            values.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(values).append(')').toString();
+    }
+
+    private static String quote(String name) {
+        return '"' + name.replace("\"", "\"\"") + '"';
+    }
+
+    /*****************************************************************/
+    /*                       FILE WINDOWS                            */
+    /*****************************************************************/
+
+    /**
+     * Finds and loads the statements or records of a file, one at a time
+     */
+    private interface ItemHandler {
+
+        /**
+         * @param window Mapped bytes of the file
+         * @param start Offset of the first byte of the item
+         * @param limit Offset after the last byte in the window
+         * @param lastWindow true if the window reaches the end of the file
+         * @return int offset after the item, or -1 if it continues past the window
+         * @throws SQLException if the item is malformed or its batch fails
+         */
+        int handle(MappedByteBuffer window, int start, int limit, boolean lastWindow) throws SQLException;
+
+        /**
+         * Runs and commits the items still waiting, at the end of the file
+         */
+        void finish() throws SQLException;
+
+        /**
+         * @return long number of items loaded so far
+         */
+        long itemCount();
+    }
+
+    /**
+     * Maps a file window by window and passes each item to the handler. A window is used up to its
+     * last complete item, and the next window starts where that item ended.
+     * @param file Path of the file
+     * @param handler ItemHandler for each statement or record
+     * @param listener ProgressListener for the file
+     * @return long number of items loaded, or -1 if the file cannot be read
+     * @throws SQLException if an item or batch fails
+     */
+    private static long scanFile(Path file, ItemHandler handler, ProgressListener listener) throws SQLException {
+        long startNanos = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = 0;
+            long nextReport = PROGRESS_INTERVAL_BYTES;
+
+            while (windowStart < size) {
+                int windowLength = (int) Math.min(WINDOW_SIZE, size - windowStart);
+                boolean lastWindow = windowStart + windowLength == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+
+                int pos = 0;
+                while (pos < windowLength) {
+                    int end = handler.handle(window, pos, windowLength, lastWindow);
+                    if (end < 0) {
+                        break;
+                    }
+                    pos = end;
+                    if (windowStart + pos >= nextReport) {
+                        nextReport += PROGRESS_INTERVAL_BYTES;
+                        listener.progress(file, windowStart + pos, size, handler.itemCount(), System.nanoTime() - startNanos);
+                    }
+                }
+                if (pos == 0) {
+                    throw new IOException("Item at byte " + windowStart + " is larger than " + WINDOW_SIZE + " bytes");
+                }
+                windowStart += pos;
+            }
+
+            handler.finish();
+            listener.progress(file, size, size, handler.itemCount(), System.nanoTime() - startNanos);
+            return handler.itemCount();
+        } catch (IOException e) {
+            System.err.println("Import read error: " + e.getMessage());
+            System.err.println("File: " + file);
+        }
+        return -1;
+    }
+
+    private static void checkSizes(int batchSize, int commitSize) {
+        if (batchSize < 1 || commitSize < batchSize) {
+            throw new IllegalArgumentException("Need 1 <= batch size <= commit size: " + batchSize + ", " + commitSize);
+        }
+    }
+
+    /*****************************************************************/
+    /*                       TRANSACTIONS                            */
+    /*****************************************************************/
+
+    /**
+     * Runs a statement's batch every batchSize items and commits every commitSize items, with
+     * auto-commit turned off while it is open. close() restores auto-commit, first rolling back
+     * anything added since the last flush() (which only happens when the import has failed).
+     * If the caller already has a transaction open, nothing is committed: the import runs inside a
+     * savepoint of that transaction, which flush() releases and a failed import rolls back to.
+     */
+    private static final class BatchTransaction implements AutoCloseable {
+
+        private final Connection conn;
+        private final Statement statement;
+        private final String query;
+        private final int batchSize;
+        private final int commitSize;
+        // Savepoint wrapping the import when the caller has its own transaction open (no commits then)
+        private final Savepoint savepoint;
+
+        private int pendingBatch = 0;
+        private int pendingCommit = 0;
+        private long itemCount = 0;
+        private boolean flushed = true;
+        private boolean closed = false;
+        // true once some items have been committed (or, in the caller's transaction, released into it)
+        private boolean committed = false;
+
+        BatchTransaction(Connection conn, Statement statement, String query, int batchSize, int commitSize)
+                throws SQLException {
+            this.conn = conn;
+            this.statement = statement;
+            this.query = query;
+            this.batchSize = batchSize;
+            this.commitSize = commitSize;
+            if (conn.getAutoCommit()) {
+                conn.setAutoCommit(false);
+                this.savepoint = null;
+            } else {
+                this.savepoint = conn.setSavepoint();
+            }
+        }
+
+        /**
+         * Counts an item added to the statement's batch, running the batch and committing as the sizes are reached
+         */
+        void added() throws SQLException {
+            flushed = false;
+            itemCount++;
+            if (++pendingBatch >= batchSize) {
+                executeBatch();
+            }
+            if (++pendingCommit >= commitSize && savepoint == null) {
+                conn.commit();
+                committed = true;
+                pendingCommit = 0;
+            }
+        }
+
+        /**
+         * Runs and commits the items still waiting
+         */
+        void flush() throws SQLException {
+            if (pendingBatch > 0) {
+                executeBatch();
+            }
+            if (savepoint == null) {
+                conn.commit();
+            } else {
+                conn.releaseSavepoint(savepoint);
+            }
+            committed = true;
+            pendingCommit = 0;
+            flushed = true;
+        }
+
+        private void executeBatch() throws SQLException {
+            long start = DBQueryMetrics.start();
+            try {
+                statement.executeBatch();
+                DBQueryMetrics.record(query, start, pendingBatch, false);
+            } catch (SQLException e) {
+                DBQueryMetrics.record(query, start, -1, true);
+                throw e;
+            } finally {
+                pendingBatch = 0;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (!flushed) {
+                try {
+                    statement.clearBatch();
+                    if (savepoint == null) {
+                        conn.rollback();
+                    } else {
+                        // Undo the import but leave the caller's transaction open
+                        conn.rollback(savepoint);
+                        conn.releaseSavepoint(savepoint);
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Rollback failed: " + e.getMessage());
+                }
+            }
+            if (savepoint == null) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    System.err.println("Could not restore auto-commit: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,579 @@
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class is used to suggest indexes for the queries an application actually runs.
+ * While capturing is on, DBCommand and DBAsyncCommand hand every statement (and the first parameters
+ * seen for it) to capture(). advise() then runs EXPLAIN QUERY PLAN on each one, finds tables that are
+ * scanned (or searched through an automatic index) although the query filters or joins on their
+ * columns, and proposes an index per table: equality columns first, then one range column, then
+ * (when few enough) the other columns the query reads, so the index covers the query.
+ *
+ * The proposed indexes are created and ANALYZE is run inside a transaction, each query's plan and
+ * latency are measured again, and the transaction is committed only when asked to apply the advice
+ * (otherwise it is rolled back and the database is left as it was).
+ * Turn capturing on with -Ddbs1.captureQueries=true or setCapturing(true).
+ * @since 16/10/2026
+ * @see DBCommand
+ */
+public class DBIndexAdvisor {
+
+    // System properties: capture queries, and let Main apply the advice instead of only reporting it
+    public static final String CAPTURE_PROPERTY = "dbs1.captureQueries";
+    public static final String APPLY_PROPERTY = "dbs1.applyIndexAdvice";
+
+    // Upper limit on the number of distinct statements captured
+    private static final int MAX_CAPTURED = 500;
+
+    // Number of timed runs per query (the median is reported)
+    private static final int MEASURE_RUNS = 5;
+
+    // Largest index proposed when adding columns to make it covering
+    private static final int MAX_COVERING_COLUMNS = 5;
+
+    private static final Pattern TABLE_REF = Pattern.compile(
+            "\\b(?:FROM|JOIN)\\s+[`\"\\[]?(\\w+)[`\"\\]]?(?:\\s+(?:AS\\s+)?(\\w+))?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PREDICATE = Pattern.compile(
+            "([A-Za-z_]\\w*(?:\\.[A-Za-z_]\\w*)?)\\s*(==|=|<=|>=|<>|!=|<|>|\\bIN\\b|\\bBETWEEN\\b|\\bLIKE\\b|\\bIS\\b)"
+            + "\\s*([A-Za-z_]\\w*(?:\\.[A-Za-z_]\\w*)?|\\?|[:@$]\\w+|'(?:[^']|'')*'|-?\\d[\\w.]*|\\()",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern COLUMN_REF = Pattern.compile("([A-Za-z_]\\w*)\\.([A-Za-z_]\\w*|\\*)|\\b([A-Za-z_]\\w*)\\b");
+    private static final Pattern ORDER_BY = Pattern.compile("\\bORDER\\s+BY\\s+(.+?)(?:\\bLIMIT\\b|$)",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern PLAN_TABLE = Pattern.compile("^(SCAN|SEARCH) (\\w+)(?: AS (\\w+))?(.*)$");
+    private static final Pattern AUTOMATIC_INDEX_COLUMNS = Pattern.compile("AUTOMATIC (?:PARTIAL )?(?:COVERING )?INDEX \\(([^)]*)\\)");
+
+    // Words that can follow a table name but are not an alias
+    private static final Set<String> NOT_ALIASES = Set.of("where", "join", "inner", "left", "right", "full", "cross",
+            "natural", "outer", "on", "using", "group", "order", "limit", "union", "except", "intersect", "window", "as");
+
+    private static volatile boolean capturing = Boolean.getBoolean(CAPTURE_PROPERTY);
+
+    // Captured statements and the first parameters seen for each (guarded by itself)
+    private static final Map<String, Object[]> captured = new LinkedHashMap<>();
+
+    /**
+     * The advice for one captured query
+     * @param query SQL text of the query
+     * @param planBefore EXPLAIN QUERY PLAN lines before the proposed indexes
+     * @param indexes CREATE INDEX statements proposed for the query
+     * @param planAfter EXPLAIN QUERY PLAN lines with all proposed indexes in place
+     * @param millisBefore Median run time before, in milliseconds (NaN if the statement is not a query)
+     * @param millisAfter Median run time after, in milliseconds (NaN if the statement is not a query)
+     */
+    public record Advice(String query, List<String> planBefore, List<String> indexes, List<String> planAfter,
+            double millisBefore, double millisAfter) { }
+
+    /**
+     * The columns a query uses from one table
+     */
+    private static final class TableUse {
+        final String table;
+        final List<String> columns;
+        final Set<String> equalityColumns = new LinkedHashSet<>();
+        final Set<String> rangeColumns = new LinkedHashSet<>();
+        final Set<String> joinColumns = new LinkedHashSet<>();
+        final Set<String> orderColumns = new LinkedHashSet<>();
+        final Set<String> readColumns = new LinkedHashSet<>();
+
+        TableUse(String table, List<String> columns) {
+            this.table = table;
+            this.columns = columns;
+        }
+    }
+
+    /*****************************************************************/
+    /*                       CAPTURE                                 */
+    /*****************************************************************/
+
+    /**
+     * @return boolean true if statements are being captured
+     */
+    public static boolean isCapturing() {
+        return capturing;
+    }
+
+    /**
+     * Turns capturing on or off
+     * @param on true to capture statements
+     */
+    public static void setCapturing(boolean on) {
+        capturing = on;
+    }
+
+    /**
+     * Records a statement for advise() (does nothing unless capturing is on)
+     * @param query SQL text
+     * @param params Object array containing parameter values (may be null)
+     */
+    public static void capture(String query, Object[] params) {
+        if (!capturing) {
+            return;
+        }
+        String start = query.stripLeading().toUpperCase(Locale.ROOT);
+        if (!(start.startsWith("SELECT") || start.startsWith("WITH") || start.startsWith("UPDATE")
+                || start.startsWith("DELETE"))) {
+            return;
+        }
+        synchronized (captured) {
+            if (captured.size() < MAX_CAPTURED || captured.containsKey(query)) {
+                captured.putIfAbsent(query, params == null ? null : params.clone());
+            }
+        }
+    }
+
+    /**
+     * @return List of the captured statements, in the order they were first seen
+     */
+    public static List<String> getCapturedQueries() {
+        synchronized (captured) {
+            return new ArrayList<>(captured.keySet());
+        }
+    }
+
+    /**
+     * Forgets all captured statements
+     */
+    public static void clearCaptured() {
+        synchronized (captured) {
+            captured.clear();
+        }
+    }
+
+    /*****************************************************************/
+    /*                       ADVICE                                  */
+    /*****************************************************************/
+
+    /**
+     * Proposes indexes for the captured statements and measures their effect
+     * @param conn Connection to a writable database with no statements in progress, as the indexes are
+     *        tried in a transaction, or in a savepoint if the caller has a transaction open (they are only
+     *        kept if apply is true)
+     * @param apply true to keep the proposed indexes and statistics (committing them, or leaving them in
+     *        the caller's transaction), false to roll them back
+     * @return List of Advice, one per captured statement, or null if the database cannot be read
+     */
+    public static List<Advice> advise(Connection conn, boolean apply) {
+        Map<String, Object[]> queries;
+        synchronized (captured) {
+            queries = new LinkedHashMap<>(captured);
+        }
+
+        try {
+            // Plans, latencies and proposals with the current schema
+            Map<String, List<String>> plansBefore = new LinkedHashMap<>();
+            Map<String, Double> timesBefore = new HashMap<>();
+            Map<String, List<String>> proposals = new LinkedHashMap<>();
+            Set<String> allIndexes = new LinkedHashSet<>();
+            for (Map.Entry<String, Object[]> entry : queries.entrySet()) {
+                String query = entry.getKey();
+                try {
+                    List<String> plan = explain(conn, query, entry.getValue());
+                    plansBefore.put(query, plan);
+                    timesBefore.put(query, measure(conn, query, entry.getValue()));
+                    List<String> indexes = propose(conn, query, plan);
+                    proposals.put(query, indexes);
+                    allIndexes.addAll(indexes);
+                } catch (SQLException e) {
+                    System.err.println("Index advisor could not explain query: " + e.getMessage());
+                    System.err.println("Query: " + query);
+                }
+            }
+
+            // Try the indexes in a transaction (or a savepoint of the caller's), so they can be rolled back
+            List<Advice> advice = new ArrayList<>();
+            boolean ownTransaction = conn.getAutoCommit();
+            Savepoint savepoint = ownTransaction ? null : conn.setSavepoint();
+            conn.setAutoCommit(false);
+            try (Statement statement = conn.createStatement()) {
+                for (String index : allIndexes) {
+                    statement.executeUpdate(index);
+                }
+                if (!allIndexes.isEmpty()) {
+                    statement.executeUpdate("ANALYZE");
+                }
+                for (String query : plansBefore.keySet()) {
+                    Object[] params = queries.get(query);
+                    advice.add(new Advice(query, plansBefore.get(query), proposals.get(query),
+                            explain(conn, query, params), timesBefore.get(query), measure(conn, query, params)));
+                }
+                if (!apply) {
+                    rollback(conn, savepoint);
+                } else if (ownTransaction) {
+                    conn.commit();
+                } else {
+                    conn.releaseSavepoint(savepoint);
+                }
+            } catch (SQLException e) {
+                rollback(conn, savepoint);
+                throw e;
+            } finally {
+                conn.setAutoCommit(ownTransaction);
+            }
+            return advice;
+        } catch (SQLException e) {
+            System.err.println("Index advisor error: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Prints the plans, proposed indexes and latencies for each query
+     * @param advice List of Advice returned by advise()
+     * @param applied true if the indexes were kept
+     */
+    public static void printReport(List<Advice> advice, boolean applied) {
+        if (advice == null) {
+            return;
+        }
+        StringBuilder out = new StringBuilder("\nIndex advice (" + advice.size() + " queries, indexes "
+                + (applied ? "applied" : "not applied") + ")\n");
+        for (Advice item : advice) {
+            out.append("\nQuery: ").append(item.query()).append('\n');
+            out.append("  Plan before:\n");
+            for (String line : item.planBefore()) {
+                out.append("    ").append(line).append('\n');
+            }
+            if (item.indexes().isEmpty()) {
+                out.append("  No index proposed\n");
+                continue;
+            }
+            for (String index : item.indexes()) {
+                out.append("  Proposed: ").append(index).append('\n');
+            }
+            out.append("  Plan after (with ANALYZE):\n");
+            for (String line : item.planAfter()) {
+                out.append("    ").append(line).append('\n');
+            }
+            if (!Double.isNaN(item.millisBefore())) {
+                out.append(String.format("  Latency: %.3f ms -> %.3f ms%n", item.millisBefore(), item.millisAfter()));
+            }
+        }
+        System.out.print(out);
+    }
+
+    /**
+     * Undoes the trial indexes: rolls back the advisor's own transaction, or back to its savepoint
+     * in the caller's
+     * @param conn Connection object
+     * @param savepoint Savepoint taken in the caller's transaction, or null if the advisor began its own
+     * @throws SQLException if the rollback fails
+     */
+    private static void rollback(Connection conn, Savepoint savepoint) throws SQLException {
+        if (savepoint == null) {
+            conn.rollback();
+        } else {
+            conn.rollback(savepoint);
+        }
+    }
+
+    /*****************************************************************/
+    /*                       ANALYSIS                                */
+    /*****************************************************************/
+
+    /**
+     * Runs EXPLAIN QUERY PLAN for a statement
+     * @param conn Connection object
+     * @param query SQL text
+     * @param params Object array containing parameter values (may be null)
+     * @return List of plan lines, indented by depth
+     * @throws SQLException if the statement cannot be explained
+     */
+    private static List<String> explain(Connection conn, String query, Object[] params) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        Map<Integer, Integer> depthById = new HashMap<>();
+        try (PreparedStatement prepStmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + query)) {
+            DBParameterBinder.bind(prepStmt, params);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                while (resultSet.next()) {
+                    int depth = depthById.getOrDefault(resultSet.getInt("parent"), -1) + 1;
+                    depthById.put(resultSet.getInt("id"), depth);
+                    plan.add("  ".repeat(depth) + resultSet.getString("detail"));
+                }
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Times a query (reading every row) and returns the median of several runs
+     * @param conn Connection object
+     * @param query SQL text
+     * @param params Object array containing parameter values (may be null)
+     * @return double median run time in milliseconds, or NaN if the statement is not a query
+     * @throws SQLException if the query fails
+     */
+    private static double measure(Connection conn, String query, Object[] params) throws SQLException {
+        String start = query.stripLeading().toUpperCase(Locale.ROOT);
+        if (!(start.startsWith("SELECT") || start.startsWith("WITH"))) {
+            // Never run writes just to time them
+            return Double.NaN;
+        }
+        double[] runs = new double[MEASURE_RUNS];
+        try (PreparedStatement prepStmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < MEASURE_RUNS; i++) {
+                long begin = System.nanoTime();
+                DBParameterBinder.bind(prepStmt, params);
+                try (ResultSet resultSet = prepStmt.executeQuery()) {
+                    while (resultSet.next()) {
+                        // Read every row, as a caller would
+                    }
+                }
+                runs[i] = (System.nanoTime() - begin) / 1_000_000.0;
+            }
+        }
+        Arrays.sort(runs);
+        return runs[MEASURE_RUNS / 2];
+    }
+
+    /**
+     * Proposes CREATE INDEX statements for the tables a query scans without using an index
+     * @param conn Connection object
+     * @param query SQL text
+     * @param plan EXPLAIN QUERY PLAN lines for the query
+     * @return List of CREATE INDEX statements (empty if none are needed)
+     * @throws SQLException if the schema cannot be read
+     */
+    private static List<String> propose(Connection conn, String query, List<String> plan) throws SQLException {
+        Map<String, TableUse> uses = tableUses(conn, query);
+        List<String> indexes = new ArrayList<>();
+        String outerTable = null;
+
+        for (String line : plan) {
+            Matcher matcher = PLAN_TABLE.matcher(line.strip());
+            if (!matcher.matches()) {
+                continue;
+            }
+            TableUse use = uses.get((matcher.group(3) != null ? matcher.group(3) : matcher.group(2)).toLowerCase(Locale.ROOT));
+            if (use == null) {
+                use = uses.get(matcher.group(2).toLowerCase(Locale.ROOT));
+            }
+            if (use == null) {
+                continue;
+            }
+            boolean outer = outerTable == null;
+            if (outer) {
+                outerTable = use.table;
+            }
+
+            List<String> keys = new ArrayList<>();
+            String detail = matcher.group(4);
+            Matcher automatic = AUTOMATIC_INDEX_COLUMNS.matcher(detail);
+            if (matcher.group(1).equals("SEARCH") && automatic.find()) {
+                // SQLite builds this index on every run; make it permanent
+                for (String term : automatic.group(1).split(" AND ")) {
+                    String column = term.replaceAll("[^\\w].*$", "").strip();
+                    if (use.columns.contains(column) && !keys.contains(column)) {
+                        keys.add(column);
+                    }
+                }
+            } else if (matcher.group(1).equals("SCAN") && !detail.contains("USING")) {
+                keys.addAll(use.equalityColumns);
+                // The outermost table of a join is read in full anyway, so its join columns do not help
+                if (!outer) {
+                    for (String column : use.joinColumns) {
+                        if (!keys.contains(column)) {
+                            keys.add(column);
+                        }
+                    }
+                }
+                for (String column : use.rangeColumns) {
+                    if (!keys.contains(column)) {
+                        keys.add(column);
+                        break;
+                    }
+                }
+                // With nothing to filter on, an index in ORDER BY order still saves the sort
+                if (keys.isEmpty() && outer && !use.orderColumns.isEmpty()
+                        && plan.stream().anyMatch(l -> l.contains("TEMP B-TREE FOR ORDER BY"))) {
+                    keys.addAll(use.orderColumns);
+                }
+            }
+            if (keys.isEmpty()) {
+                continue;
+            }
+
+            // Add the other columns the query reads, if that keeps the index small, to make it covering
+            List<String> indexColumns = new ArrayList<>(keys);
+            for (String column : use.readColumns) {
+                if (!indexColumns.contains(column)) {
+                    indexColumns.add(column);
+                }
+            }
+            if (indexColumns.size() > MAX_COVERING_COLUMNS) {
+                indexColumns = keys;
+            }
+            indexes.add("CREATE INDEX IF NOT EXISTS idx_" + use.table.toLowerCase(Locale.ROOT) + "_"
+                    + String.join("_", indexColumns).toLowerCase(Locale.ROOT)
+                    + " ON " + use.table + " (" + String.join(", ", indexColumns) + ")");
+        }
+        return indexes;
+    }
+
+    /**
+     * Works out which columns of each table in the query are filtered, joined, sorted and read
+     * @param conn Connection object, used to read each table's columns
+     * @param query SQL text
+     * @return Map of TableUse by lower-case table name and alias
+     * @throws SQLException if the schema cannot be read
+     */
+    private static Map<String, TableUse> tableUses(Connection conn, String query) throws SQLException {
+        Map<String, TableUse> uses = new LinkedHashMap<>();
+        Set<TableUse> tables = new LinkedHashSet<>();
+        Matcher tableMatcher = TABLE_REF.matcher(query);
+        while (tableMatcher.find()) {
+            String name = tableMatcher.group(1);
+            TableUse use = uses.get(name.toLowerCase(Locale.ROOT));
+            if (use == null) {
+                List<String> columns = tableColumns(conn, name);
+                if (columns.isEmpty()) {
+                    // A CTE, subquery or view: nothing to index
+                    continue;
+                }
+                use = new TableUse(name, columns);
+                uses.put(name.toLowerCase(Locale.ROOT), use);
+                tables.add(use);
+            }
+            String alias = tableMatcher.group(2);
+            if (alias != null && !NOT_ALIASES.contains(alias.toLowerCase(Locale.ROOT))) {
+                uses.put(alias.toLowerCase(Locale.ROOT), use);
+            }
+        }
+
+        // Filters (column op value) and joins (column = column)
+        Matcher predicate = PREDICATE.matcher(query);
+        while (predicate.find()) {
+            ColumnRef left = resolve(predicate.group(1), uses, tables);
+            if (left == null) {
+                continue;
+            }
+            String op = predicate.group(2).toUpperCase(Locale.ROOT);
+            ColumnRef right = resolve(predicate.group(3), uses, tables);
+            if (right != null) {
+                if (op.equals("=") || op.equals("==")) {
+                    left.use().joinColumns.add(left.column());
+                    right.use().joinColumns.add(right.column());
+                }
+            } else if (op.equals("=") || op.equals("==") || op.equals("IN") || op.equals("IS")) {
+                left.use().equalityColumns.add(left.column());
+            } else if (!op.equals("<>") && !op.equals("!=")) {
+                left.use().rangeColumns.add(left.column());
+            }
+        }
+
+        // Columns in ORDER BY
+        Matcher orderBy = ORDER_BY.matcher(query);
+        if (orderBy.find()) {
+            for (String term : orderBy.group(1).split(",")) {
+                ColumnRef ref = resolve(term.strip().split("\\s+")[0], uses, tables);
+                if (ref != null) {
+                    ref.use().orderColumns.add(ref.column());
+                }
+            }
+        }
+
+        // Every column read (qualified, unqualified, or through *)
+        Matcher column = COLUMN_REF.matcher(query.replaceAll("'(?:[^']|'')*'", "''"));
+        while (column.find()) {
+            if (column.group(2) != null && column.group(2).equals("*")) {
+                TableUse use = uses.get(column.group(1).toLowerCase(Locale.ROOT));
+                if (use != null) {
+                    use.readColumns.addAll(use.columns);
+                }
+                continue;
+            }
+            ColumnRef ref = resolve(column.group(0), uses, tables);
+            if (ref != null) {
+                ref.use().readColumns.add(ref.column());
+            }
+        }
+        if (query.matches("(?is)\\s*SELECT\\s+(DISTINCT\\s+)?\\*.*")) {
+            for (TableUse use : tables) {
+                use.readColumns.addAll(use.columns);
+            }
+        }
+        return uses;
+    }
+
+    /**
+     * A column and the table it belongs to
+     */
+    private record ColumnRef(TableUse use, String column) { }
+
+    /**
+     * Resolves table.column or a bare column name to a column of one of the query's tables
+     * @param reference Column reference from the query
+     * @param uses Map of TableUse by lower-case table name and alias
+     * @param tables The distinct tables in the query
+     * @return ColumnRef, or null if the reference is not a column of exactly one table
+     */
+    private static ColumnRef resolve(String reference, Map<String, TableUse> uses, Set<TableUse> tables) {
+        int dot = reference.indexOf('.');
+        if (dot > 0) {
+            TableUse use = uses.get(reference.substring(0, dot).toLowerCase(Locale.ROOT));
+            String column = use == null ? null : findColumn(use, reference.substring(dot + 1));
+            return column == null ? null : new ColumnRef(use, column);
+        }
+        ColumnRef found = null;
+        for (TableUse use : tables) {
+            String column = findColumn(use, reference);
+            if (column != null) {
+                if (found != null) {
+                    // Ambiguous: in more than one table
+                    return null;
+                }
+                found = new ColumnRef(use, column);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param use TableUse of a table
+     * @param name Column name in any case
+     * @return String column name as declared, or null if the table has no such column
+     */
+    private static String findColumn(TableUse use, String name) {
+        for (String column : use.columns) {
+            if (column.equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param conn Connection object
+     * @param table Table name
+     * @return List of the table's column names (empty if there is no such table)
+     * @throws SQLException if the schema cannot be read
+     */
+    private static List<String> tableColumns(Connection conn, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement prepStmt = conn.prepareStatement("SELECT name FROM pragma_table_info(?)")) {
+            prepStmt.setString(1, table);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                while (resultSet.next()) {
+                    columns.add(resultSet.getString(1));
+                }
+            }
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,399 @@
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class is used to read an ordered query a page at a time with keyset (seek) pagination.
+ * Instead of OFFSET, which makes SQLite step over every row before the page, each page starts with a
+ * WHERE condition on the sort keys of the row next to it, e.g. for ORDER BY FirstName, PlayerID:
+ * <pre>
+ *   SELECT * FROM (query) WHERE (FirstName, PlayerID) &gt; (?, ?) ORDER BY FirstName, PlayerID LIMIT 51
+ * </pre>
+ * so with an index on the keys, page 1000 costs the same as page 1.
+ *
+ * The query is given without ORDER BY or LIMIT, and its sort keys are added with orderBy() using
+ * result column names. Together the keys must identify a row (end with a unique column such as an ID),
+ * and they should not be NULL, otherwise rows can be skipped or repeated between pages.
+ * Each Page holds continuation tokens for the pages before and after it, which can be kept (e.g. in
+ * a URL) and passed to fetch() later. The same four SQL strings are used for every page, so on each
+ * connection they are prepared once and the statements are reused from the PreparedStatementCache.
+ * Sort key names are put into the SQL as they are, so they must not come from user input.
+ * @since 16/10/2026
+ * @see DBCommand#executePreparedQuery(Connection, String, Object[])
+ * @param <T> Type of object created for each row
+ */
+public final class DBKeysetPager<T> {
+
+    /**
+     * Sort direction of a key
+     */
+    public enum Direction { ASC, DESC }
+
+    /**
+     * One page of rows
+     * @param rows Rows of the page, in query order
+     * @param previousToken Token for the page before, or null on the first page
+     * @param nextToken Token for the page after, or null on the last page
+     * @param <T> Type of object created for each row
+     */
+    public record Page<T>(List<T> rows, String previousToken, String nextToken) {
+
+        /**
+         * @return boolean true if there is a page after this one
+         */
+        public boolean hasNext() {
+            return nextToken != null;
+        }
+
+        /**
+         * @return boolean true if there is a page before this one
+         */
+        public boolean hasPrevious() {
+            return previousToken != null;
+        }
+    }
+
+    // First byte of a token: which way to read from the key values it holds
+    private static final byte TOKEN_AFTER = 'A';
+    private static final byte TOKEN_BEFORE = 'B';
+
+    // Type tags of the key values in a token
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_LONG = 1;
+    private static final byte VALUE_DOUBLE = 2;
+    private static final byte VALUE_TEXT = 3;
+
+    private final String query;
+    private final Object[] params;
+    private final int pageSize;
+    private final RowMapper<T> mapper;
+    private final List<String> keyColumns = new ArrayList<>();
+    private final List<Direction> directions = new ArrayList<>();
+
+    // Built on first use, once the keys are known
+    private String firstSql;
+    private String lastSql;
+    private String afterSql;
+    private String beforeSql;
+    private int queryHash;
+
+    /**
+     * Creates a pager for a query (add its sort keys with orderBy())
+     * @param query SQL SELECT without ORDER BY or LIMIT (may have ? placeholders)
+     * @param params Object array containing parameter values (may be null)
+     * @param pageSize Number of rows per page
+     * @param mapper RowMapper that turns each row into an object
+     */
+    public DBKeysetPager(String query, Object[] params, int pageSize, RowMapper<T> mapper) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1: " + pageSize);
+        }
+        this.query = query;
+        this.params = params == null ? new Object[0] : params.clone();
+        this.pageSize = pageSize;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Adds a sort key (keys are compared in the order they are added)
+     * @param column Name of a result column of the query
+     * @param direction Direction to sort it in
+     * @return DBKeysetPager this pager
+     */
+    public DBKeysetPager<T> orderBy(String column, Direction direction) {
+        if (firstSql != null) {
+            throw new IllegalStateException("Sort keys must be added before the first page: " + column);
+        }
+        keyColumns.add(column);
+        directions.add(direction);
+        return this;
+    }
+
+    /*****************************************************************/
+    /*                       PAGES                                   */
+    /*****************************************************************/
+
+    /**
+     * @param conn Connection object
+     * @return Page of the first rows, or null if the query fails
+     */
+    public Page<T> first(Connection conn) {
+        buildSql();
+        return read(conn, firstSql, params, false, false);
+    }
+
+    /**
+     * @param conn Connection object
+     * @return Page of the last rows, or null if the query fails
+     */
+    public Page<T> last(Connection conn) {
+        buildSql();
+        return read(conn, lastSql, params, true, false);
+    }
+
+    /**
+     * Reads the page a continuation token points to
+     * @param conn Connection object
+     * @param token Page.nextToken() or Page.previousToken() of an earlier page (null for the first page)
+     * @return Page the token points to, or null if the query fails
+     * @throws IllegalArgumentException if the token was not made by a pager for this query
+     */
+    public Page<T> fetch(Connection conn, String token) {
+        if (token == null) {
+            return first(conn);
+        }
+        buildSql();
+        Object[] keys = decodeToken(token);
+        boolean backward = Base64.getUrlDecoder().decode(token)[0] == TOKEN_BEFORE;
+        return read(conn, backward ? beforeSql : afterSql, seekParams(keys), backward, true);
+    }
+
+    /**
+     * Runs one page's query and works out its tokens
+     * @param sql Page SQL
+     * @param values Parameter values
+     * @param backward true if the SQL reads in reverse order (the rows are turned back afterwards)
+     * @param seek true if the page starts from a token, so there are rows on the side it came from
+     * @return Page of rows, or null if the query fails
+     */
+    private Page<T> read(Connection conn, String sql, Object[] values, boolean backward, boolean seek) {
+        ResultSet resultSet = DBCommand.executePreparedQuery(conn, sql, values);
+        if (resultSet == null) {
+            return null;
+        }
+        List<T> rows = new ArrayList<>(pageSize);
+        Object[] firstKeys = null;
+        Object[] lastKeys = null;
+        boolean more = false;
+        try (resultSet) {
+            int[] keyIndexes = new int[keyColumns.size()];
+            for (int i = 0; i < keyIndexes.length; i++) {
+                keyIndexes[i] = resultSet.findColumn(keyColumns.get(i));
+            }
+            RowMapper<T> rowMapper = mapper.bindTo(resultSet);
+            while (resultSet.next()) {
+                if (rows.size() == pageSize) {
+                    // One row more than a page was asked for, to know if another page follows
+                    more = true;
+                    break;
+                }
+                rows.add(rowMapper.mapRow(resultSet));
+                lastKeys = readKeys(resultSet, keyIndexes);
+                if (firstKeys == null) {
+                    firstKeys = lastKeys;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Page query error: " + e.getMessage());
+            System.err.println("Query: " + sql);
+            return null;
+        }
+
+        if (rows.isEmpty()) {
+            return new Page<>(rows, null, null);
+        }
+        if (backward) {
+            // Rows were read from the end: put them back in query order
+            Collections.reverse(rows);
+            Object[] swap = firstKeys;
+            firstKeys = lastKeys;
+            lastKeys = swap;
+        }
+        boolean hasBefore = backward ? more : seek;
+        boolean hasAfter = backward ? seek : more;
+        return new Page<>(Collections.unmodifiableList(rows),
+                hasBefore ? encodeToken(TOKEN_BEFORE, firstKeys) : null,
+                hasAfter ? encodeToken(TOKEN_AFTER, lastKeys) : null);
+    }
+
+    /**
+     * @return Object array of the row's key values
+     */
+    private static Object[] readKeys(ResultSet resultSet, int[] keyIndexes) throws SQLException {
+        Object[] keys = new Object[keyIndexes.length];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            keys[i] = resultSet.getObject(keyIndexes[i]);
+        }
+        return keys;
+    }
+
+    /*****************************************************************/
+    /*                       SQL                                     */
+    /*****************************************************************/
+
+    /**
+     * Builds the SQL of the first, last, after-token and before-token pages
+     */
+    private void buildSql() {
+        if (firstSql != null) {
+            return;
+        }
+        if (keyColumns.isEmpty()) {
+            throw new IllegalStateException("Add at least one sort key with orderBy()");
+        }
+        String source = "SELECT * FROM (" + query + ") AS page_source";
+        String limit = " LIMIT " + (pageSize + 1);
+        lastSql = source + orderClause(true) + limit;
+        afterSql = source + " WHERE " + seekCondition(false) + orderClause(false) + limit;
+        beforeSql = source + " WHERE " + seekCondition(true) + orderClause(true) + limit;
+        queryHash = afterSql.hashCode();
+        firstSql = source + orderClause(false) + limit;
+    }
+
+    /**
+     * @param reversed true for the opposite of each key's direction
+     * @return String ORDER BY clause
+     */
+    private String orderClause(boolean reversed) {
+        StringBuilder sql = new StringBuilder(" ORDER BY ");
+        for (int i = 0; i < keyColumns.size(); i++) {
+            boolean descending = (directions.get(i) == Direction.DESC) != reversed;
+            sql.append(i == 0 ? "" : ", ").append(quote(keyColumns.get(i))).append(descending ? " DESC" : " ASC");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Builds the condition for rows after (or before) a row's key values. When every key sorts the
+     * same way a row value comparison is used, which SQLite can answer with one index seek;
+     * otherwise the comparison is spelled out key by key.
+     * @param before true for the rows before the key values
+     * @return String WHERE condition with ? placeholders (see seekParams)
+     */
+    private String seekCondition(boolean before) {
+        if (isUniform()) {
+            boolean greater = (directions.get(0) == Direction.ASC) != before;
+            StringBuilder columns = new StringBuilder("(");
+            StringBuilder marks = new StringBuilder("(");
+            for (int i = 0; i < keyColumns.size(); i++) {
+                columns.append(i == 0 ? "" : ", ").append(quote(keyColumns.get(i)));
+                marks.append(i == 0 ? "?" : ", ?");
+            }
+            return columns.append(')').append(greater ? " > " : " < ").append(marks).append(')').toString();
+        }
+
+        // (k1 > ?) OR (k1 = ? AND k2 < ?) OR ...
+        StringBuilder sql = new StringBuilder("(");
+        for (int i = 0; i < keyColumns.size(); i++) {
+            sql.append(i == 0 ? "(" : " OR (");
+            for (int j = 0; j < i; j++) {
+                sql.append(quote(keyColumns.get(j))).append(" = ? AND ");
+            }
+            boolean greater = (directions.get(i) == Direction.ASC) != before;
+            sql.append(quote(keyColumns.get(i))).append(greater ? " > ?" : " < ?").append(')');
+        }
+        return sql.append(')').toString();
+    }
+
+    /**
+     * @param keys Key values from a token
+     * @return Object array of the query's parameters followed by the seek condition's
+     */
+    private Object[] seekParams(Object[] keys) {
+        List<Object> values = new ArrayList<>(Arrays.asList(params));
+        if (isUniform()) {
+            values.addAll(Arrays.asList(keys));
+        } else {
+            for (int i = 0; i < keys.length; i++) {
+                for (int j = 0; j <= i; j++) {
+                    values.add(keys[j]);
+                }
+            }
+        }
+        return values.toArray();
+    }
+
+    /**
+     * @return boolean true if every key sorts in the same direction
+     */
+    private boolean isUniform() {
+        return !directions.contains(directions.get(0) == Direction.ASC ? Direction.DESC : Direction.ASC);
+    }
+
+    private static String quote(String name) {
+        return '"' + name.replace("\"", "\"\"") + '"';
+    }
+
+    /*****************************************************************/
+    /*                       TOKENS                                  */
+    /*****************************************************************/
+
+    /**
+     * Encodes the way to read and the key values of a boundary row as URL-safe Base64:
+     * way byte, query hash, then a type tag and value per key
+     * @return String token
+     */
+    private String encodeToken(byte way, Object[] keys) {
+        int size = 1 + Integer.BYTES;
+        byte[][] texts = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && !(keys[i] instanceof Number)) {
+                texts[i] = keys[i].toString().getBytes(StandardCharsets.UTF_8);
+                size += 1 + Integer.BYTES + texts[i].length;
+            } else {
+                size += 1 + (keys[i] == null ? 0 : Long.BYTES);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).put(way).putInt(queryHash);
+        for (int i = 0; i < keys.length; i++) {
+            Object key = keys[i];
+            if (texts[i] != null) {
+                buffer.put(VALUE_TEXT).putInt(texts[i].length).put(texts[i]);
+            } else if (key == null) {
+                buffer.put(VALUE_NULL);
+            } else if (key instanceof Double || key instanceof Float) {
+                buffer.put(VALUE_DOUBLE).putDouble(((Number) key).doubleValue());
+            } else {
+                buffer.put(VALUE_LONG).putLong(((Number) key).longValue());
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @param token Token made by encodeToken()
+     * @return Object array of the key values
+     * @throws IllegalArgumentException if the token is malformed or made for another query
+     */
+    private Object[] decodeToken(String token) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+            byte way = buffer.get();
+            if ((way != TOKEN_AFTER && way != TOKEN_BEFORE) || buffer.getInt() != queryHash) {
+                throw new IllegalArgumentException("Token is not for this query");
+            }
+            Object[] keys = new Object[keyColumns.size()];
+            for (int i = 0; i < keys.length; i++) {
+                byte type = buffer.get();
+                switch (type) {
+                    case VALUE_NULL -> keys[i] = null;
+                    case VALUE_LONG -> keys[i] = buffer.getLong();
+                    case VALUE_DOUBLE -> keys[i] = buffer.getDouble();
+                    case VALUE_TEXT -> {
+                        byte[] text = new byte[buffer.getInt()];
+                        buffer.get(text);
+                        keys[i] = new String(text, StandardCharsets.UTF_8);
+                    }
+                    default -> throw new IllegalArgumentException("Unknown value type in token: " + type);
+                }
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Token has trailing data");
+            }
+            return keys;
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException) {
+                throw e;
+            }
+            throw new IllegalArgumentException("Malformed page token", e);
+        }
+    }
+}
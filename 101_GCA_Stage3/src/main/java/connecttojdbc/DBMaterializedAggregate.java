@@ -0,0 +1,301 @@
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+
+/**
+ * This class is used to keep GROUP BY statistics (row count, count, sum, max and average of a numeric
+ * column per group) in a summary table that is updated as rows are written, so reading them costs one
+ * row per group instead of a scan of the whole table.
+ *
+ * The summary table is kept up to date by SQLite triggers on the source table, so every INSERT, UPDATE
+ * and DELETE is counted in the same transaction, whether it comes through DBCommand, DBWriteQueue or
+ * another tool. Inserts only add to the group's totals; a delete or update also recomputes the group's
+ * max if the row removed held it, which the index on (group, value) that install() adds to the source
+ * table answers without a scan. Rows with a NULL group value are not summarised.
+ * rebuild() recomputes the whole summary from the source table and check() compares the two.
+ * install(), uninstall() and rebuild() commit their own transaction, or, if the caller has one open,
+ * run in a savepoint of it and leave it for the caller to commit.
+ * Table and column names are put into the SQL as they are, so they must not come from user input.
+ * @since 16/10/2026
+ * @see DBOutputFormatter#showAggregationResults(String, ResultSet)
+ */
+public class DBMaterializedAggregate {
+
+    // Score statistics per player and per game
+    public static final DBMaterializedAggregate SCORES_BY_PLAYER =
+            new DBMaterializedAggregate("playergames", "PlayerID", "Score", "playergames_scores_by_player");
+    public static final DBMaterializedAggregate SCORES_BY_GAME =
+            new DBMaterializedAggregate("playergames", "GameID", "Score", "playergames_scores_by_game");
+
+    private final String sourceTable;
+    private final String groupColumn;
+    private final String valueColumn;
+    private final String summaryTable;
+
+    /**
+     * Describes a summary table (nothing is created until install() is called)
+     * @param sourceTable Table the rows are written to
+     * @param groupColumn Column the rows are grouped by
+     * @param valueColumn Numeric column the statistics are computed for
+     * @param summaryTable Name of the summary table
+     */
+    public DBMaterializedAggregate(String sourceTable, String groupColumn, String valueColumn, String summaryTable) {
+        this.sourceTable = sourceTable;
+        this.groupColumn = groupColumn;
+        this.valueColumn = valueColumn;
+        this.summaryTable = summaryTable;
+        DBResultCache.addDependentTable(sourceTable, summaryTable);
+    }
+
+    /*****************************************************************/
+    /*                       SETUP                                   */
+    /*****************************************************************/
+
+    /**
+     * Creates the summary table, its triggers and the source table index they use if they do not exist,
+     * filling the table the first time
+     * @param conn Connection object
+     * @return boolean true if the summary is installed
+     */
+    public boolean install(Connection conn) {
+        try {
+            boolean created = !tableExists(conn);
+            runInTransaction(conn, statement -> {
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + summaryTable + " ("
+                        + groupColumn + " PRIMARY KEY, "
+                        + "RowCount INTEGER NOT NULL, "
+                        + valueColumn + "Count INTEGER NOT NULL, "
+                        + valueColumn + "Sum NOT NULL, "
+                        + valueColumn + "Max)");
+                // Lets the triggers find a group's max, and fill() read each group, from the index alone
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS " + indexName() + " ON " + sourceTable
+                        + " (" + groupColumn + ", " + valueColumn + ")");
+                statement.executeUpdate("CREATE TRIGGER IF NOT EXISTS " + summaryTable + "_insert"
+                        + " AFTER INSERT ON " + sourceTable + " BEGIN " + addRowSql("NEW") + " END");
+                statement.executeUpdate("CREATE TRIGGER IF NOT EXISTS " + summaryTable + "_delete"
+                        + " AFTER DELETE ON " + sourceTable + " BEGIN " + removeRowSql("OLD") + " END");
+                statement.executeUpdate("CREATE TRIGGER IF NOT EXISTS " + summaryTable + "_update"
+                        + " AFTER UPDATE OF " + groupColumn + ", " + valueColumn + " ON " + sourceTable
+                        + " BEGIN " + removeRowSql("OLD") + " " + addRowSql("NEW") + " END");
+                if (created) {
+                    fill(statement);
+                }
+            });
+            DBResultCache.invalidate(conn, "CREATE TABLE " + summaryTable);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Materialized aggregate error: " + e.getMessage());
+            System.err.println("Summary table: " + summaryTable);
+        }
+        return false;
+    }
+
+    /**
+     * Drops the triggers, the source table index and the summary table
+     * @param conn Connection object
+     * @return boolean true if they were dropped
+     */
+    public boolean uninstall(Connection conn) {
+        try {
+            runInTransaction(conn, statement -> {
+                for (String suffix : new String[] {"_insert", "_delete", "_update"}) {
+                    statement.executeUpdate("DROP TRIGGER IF EXISTS " + summaryTable + suffix);
+                }
+                statement.executeUpdate("DROP INDEX IF EXISTS " + indexName());
+                statement.executeUpdate("DROP TABLE IF EXISTS " + summaryTable);
+            });
+            DBResultCache.invalidate(conn, "DROP TABLE " + summaryTable);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Materialized aggregate error: " + e.getMessage());
+            System.err.println("Summary table: " + summaryTable);
+        }
+        return false;
+    }
+
+    /*****************************************************************/
+    /*                       READS                                   */
+    /*****************************************************************/
+
+    /**
+     * Reads the statistics of every group from the summary table
+     * @param conn Connection object
+     * @return ResultSet of group, RowCount, count, sum, max and avg columns, ordered by group
+     */
+    public ResultSet query(Connection conn) {
+        return DBCommand.executeQuery(conn, "SELECT " + groupColumn + ", RowCount, "
+                + valueColumn + "Count, " + valueColumn + "Sum, " + valueColumn + "Max, "
+                + valueColumn + "Sum * 1.0 / " + valueColumn + "Count AS " + valueColumn + "Avg"
+                + " FROM " + summaryTable + " ORDER BY " + groupColumn);
+    }
+
+    /*****************************************************************/
+    /*                       MAINTENANCE                             */
+    /*****************************************************************/
+
+    /**
+     * Recomputes the whole summary table from the source table
+     * @param conn Connection object
+     * @return boolean true if the summary was rebuilt
+     */
+    public boolean rebuild(Connection conn) {
+        try {
+            runInTransaction(conn, statement -> {
+                statement.executeUpdate("DELETE FROM " + summaryTable);
+                fill(statement);
+            });
+            DBResultCache.invalidate(conn, "DELETE FROM " + summaryTable);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Materialized aggregate error: " + e.getMessage());
+            System.err.println("Summary table: " + summaryTable);
+        }
+        return false;
+    }
+
+    /**
+     * Compares the summary table with the statistics computed from the source table
+     * @param conn Connection object
+     * @return int number of groups that differ (0 if the summary is consistent), or -1 if the check fails
+     */
+    public int check(Connection conn) {
+        String fresh = freshSql();
+        String sql = "SELECT (SELECT count(*) FROM (SELECT * FROM " + summaryTable + " EXCEPT " + fresh + "))"
+                + " + (SELECT count(*) FROM (" + fresh + " EXCEPT SELECT * FROM " + summaryTable + "))";
+        try (Statement statement = conn.createStatement();
+                ResultSet resultSet = statement.executeQuery(sql)) {
+            int differences = resultSet.next() ? resultSet.getInt(1) : 0;
+            System.out.println("Summary " + summaryTable + ": "
+                    + (differences == 0 ? "consistent" : differences + " rows differ from " + sourceTable));
+            return differences;
+        } catch (SQLException e) {
+            System.err.println("Materialized aggregate check error: " + e.getMessage());
+            System.err.println("Query: " + sql);
+        }
+        return -1;
+    }
+
+    /*****************************************************************/
+    /*                       UTILITY METHODS                         */
+    /*****************************************************************/
+
+    /**
+     * The statements to run with one Statement inside a transaction
+     */
+    @FunctionalInterface
+    private interface TransactionWork {
+        void run(Statement statement) throws SQLException;
+    }
+
+    /**
+     * Runs work in its own transaction, or in a savepoint of the caller's if one is open,
+     * rolling it back if any statement fails
+     * @param conn Connection object
+     * @param work TransactionWork to run
+     * @throws SQLException if the work fails (after rolling back)
+     */
+    private static void runInTransaction(Connection conn, TransactionWork work) throws SQLException {
+        boolean ownTransaction = conn.getAutoCommit();
+        Savepoint savepoint = ownTransaction ? null : conn.setSavepoint();
+        conn.setAutoCommit(false);
+        try (Statement statement = conn.createStatement()) {
+            work.run(statement);
+            if (ownTransaction) {
+                conn.commit();
+            } else {
+                conn.releaseSavepoint(savepoint);
+            }
+        } catch (SQLException e) {
+            if (ownTransaction) {
+                conn.rollback();
+            } else {
+                conn.rollback(savepoint);
+            }
+            throw e;
+        } finally {
+            conn.setAutoCommit(ownTransaction);
+        }
+    }
+
+    /**
+     * Fills the (empty) summary table from the source table
+     * @param statement Statement to run the INSERT with
+     * @throws SQLException if the INSERT fails
+     */
+    private void fill(Statement statement) throws SQLException {
+        statement.executeUpdate("INSERT INTO " + summaryTable + " " + freshSql());
+    }
+
+    /**
+     * @return String SELECT that computes the summary rows from the source table
+     */
+    private String freshSql() {
+        String value = "CAST(" + valueColumn + " AS NUMERIC)";
+        return "SELECT " + groupColumn + ", count(*), count(" + valueColumn + "), coalesce(sum(" + value + "), 0), "
+                + "max(" + value + ") FROM " + sourceTable
+                + " WHERE " + groupColumn + " IS NOT NULL GROUP BY " + groupColumn;
+    }
+
+    /**
+     * @param row NEW or OLD, the trigger row to add
+     * @return String trigger statement that adds a row to its group (creating the group if needed)
+     */
+    private String addRowSql(String row) {
+        String value = "CAST(" + row + "." + valueColumn + " AS NUMERIC)";
+        String max = valueColumn + "Max";
+        return "INSERT INTO " + summaryTable + " SELECT " + row + "." + groupColumn + ", 1, "
+                + row + "." + valueColumn + " IS NOT NULL, coalesce(" + value + ", 0), " + value
+                + " WHERE " + row + "." + groupColumn + " IS NOT NULL"
+                + " ON CONFLICT(" + groupColumn + ") DO UPDATE SET RowCount = RowCount + 1, "
+                + valueColumn + "Count = " + valueColumn + "Count + excluded." + valueColumn + "Count, "
+                + valueColumn + "Sum = " + valueColumn + "Sum + excluded." + valueColumn + "Sum, "
+                + max + " = CASE WHEN excluded." + max + " IS NULL THEN " + max
+                + " WHEN " + max + " IS NULL OR excluded." + max + " > " + max + " THEN excluded." + max
+                + " ELSE " + max + " END;";
+    }
+
+    /**
+     * @param row NEW or OLD, the trigger row to remove
+     * @return String trigger statements that remove a row from its group (dropping the group when empty)
+     */
+    private String removeRowSql(String row) {
+        String value = "CAST(" + row + "." + valueColumn + " AS NUMERIC)";
+        String max = valueColumn + "Max";
+        return "UPDATE " + summaryTable + " SET RowCount = RowCount - 1, "
+                + valueColumn + "Count = " + valueColumn + "Count - (" + row + "." + valueColumn + " IS NOT NULL), "
+                + valueColumn + "Sum = " + valueColumn + "Sum - coalesce(" + value + ", 0), "
+                // Only a removed maximum needs the group to be read again
+                + max + " = CASE WHEN " + value + " >= " + max
+                + " THEN (SELECT max(CAST(" + valueColumn + " AS NUMERIC)) FROM " + sourceTable
+                + " WHERE " + groupColumn + " = " + row + "." + groupColumn + ") ELSE " + max + " END"
+                + " WHERE " + groupColumn + " = " + row + "." + groupColumn + ";"
+                + " DELETE FROM " + summaryTable + " WHERE " + groupColumn + " = " + row + "." + groupColumn
+                + " AND RowCount = 0;";
+    }
+
+    /**
+     * @return String name of the index install() adds to the source table
+     */
+    private String indexName() {
+        return summaryTable + "_source_index";
+    }
+
+    /**
+     * @param conn Connection object
+     * @return boolean true if the summary table exists
+     * @throws SQLException if the schema cannot be read
+     */
+    private boolean tableExists(Connection conn) throws SQLException {
+        try (PreparedStatement prepStmt = conn.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            prepStmt.setString(1, summaryTable);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+}
@@ -1,4 +1,9 @@
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -10,7 +15,13 @@ import java.sql.SQLException;
  * @see Main
  */
 public class DBOutputFormatter {
-      
+    
+    // Separator printed between columns
+    private static final String COLUMN_SEPARATOR = "\t\t";
+    
+    // Size of the reusable text buffer, and of the buffer between it and the console
+    private static final int ROW_BUFFER_SIZE = 16 * 1024;
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
 
     /**
      * Generic method to display any query result in a tabular format
@@ -19,55 +30,29 @@ public class DBOutputFormatter {
      * @return int row count, or -1 if no results
      */
     public static int showGenericQueryResult(String title, ResultSet resultSet) {
+        return showGenericQueryResult(title, resultSet, consoleWriter());
+    }
+    
+    /**
+     * Generic method to write any query result in a tabular format to a Writer.
+     * Output is built up in a reusable buffer and the Writer is flushed once at the end.
+     * @param title String title for the output
+     * @param resultSet ResultSet object containing query results
+     * @param out Writer to send the output to (flushed but not closed)
+     * @return int row count, or -1 if no results
+     */
+    public static int showGenericQueryResult(String title, ResultSet resultSet, Writer out) {
         if(resultSet == null) {
             System.out.println("No results were returned!");
             return -1;
         }
         
-        int rowCount = 0;
-
         try {
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            
-            // Print header
-            System.out.println("");
-            System.out.println(title);
-            System.out.println("");
-            
-            // Print column names
-            for (int i = 1; i <= columnCount; i++) {
-                System.out.print(metaData.getColumnName(i));
-                if (i < columnCount) System.out.print("\t\t");
-            }
-            System.out.println();
-            
-            // Print separator line
-            for (int i = 1; i <= columnCount; i++) {
-                for (int j = 0; j < metaData.getColumnName(i).length(); j++) {
-                    System.out.print("-");
-                }
-                if (i < columnCount) System.out.print("\t\t");
-            }
-            System.out.println();
-            
-            // Print data
-            while (resultSet.next()) {
-                rowCount++;
-                for (int i = 1; i <= columnCount; i++) {
-                    Object value = resultSet.getObject(i);
-                    System.out.print(value == null ? "NULL" : value.toString());
-                    if (i < columnCount) System.out.print("\t\t");
-                }
-                System.out.println();
-            }
-            
-            System.out.println("\nTotal rows: " + rowCount);
-        } catch (SQLException e) {
+            return writeTable(title, resultSet, out, "Total rows: ");
+        } catch (SQLException | IOException e) {
             System.err.println("Error displaying query results: " + e.getMessage());
         }
-        
-        return rowCount;
+        return 0;
     }
     
         /**
@@ -93,19 +78,22 @@ public class DBOutputFormatter {
         
         //print results
         try {
+            // Columns are looked up once, not by name on every row
+            RowMapper<Game> mapper = Game.MAPPER.bindTo(resultSet);
             while(resultSet.next()) {
                 rowCount++;
+                Game game = mapper.mapRow(resultSet);
                 
-                System.out.print(resultSet.getInt("GameID"));
+                System.out.print(game.gameId());
                 System.out.print("\t\t\t");
                 
-                System.out.print(resultSet.getString("GameName"));
+                System.out.print(game.gameName());
                 System.out.print("\t\t");
                 
-                System.out.print(resultSet.getDate("ReleaseDate"));
+                System.out.print(game.releaseDate());
                 System.out.print("\t\t\t");
                 
-                System.out.print(resultSet.getString("Genre"));
+                System.out.print(game.genre());
                 System.out.print("\n");
             }
             
@@ -131,50 +119,12 @@ public class DBOutputFormatter {
             return -1;
         }
         
-        int rowCount = 0;
-
         try {
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            
-            // Print header
-            System.out.println("");
-            System.out.println(title);
-            System.out.println("");
-            
-            // Print column names
-            for (int i = 1; i <= columnCount; i++) {
-                System.out.print(metaData.getColumnName(i));
-                if (i < columnCount) System.out.print("\t\t");
-            }
-            System.out.println();
-            
-            // Print separator line
-            for (int i = 1; i <= columnCount; i++) {
-                for (int j = 0; j < metaData.getColumnName(i).length(); j++) {
-                    System.out.print("-");
-                }
-                if (i < columnCount) System.out.print("\t\t");
-            }
-            System.out.println();
-            
-            // Print data
-            while (resultSet.next()) {
-                rowCount++;
-                for (int i = 1; i <= columnCount; i++) {
-                    Object value = resultSet.getObject(i);
-                    System.out.print(value == null ? "NULL" : value.toString());
-                    if (i < columnCount) System.out.print("\t\t");
-                }
-                System.out.println();
-            }
-            
-            System.out.println("\nTotal groups: " + rowCount);
-        } catch (SQLException e) {
+            return writeTable(title, resultSet, consoleWriter(), "Total groups: ");
+        } catch (SQLException | IOException e) {
             System.err.println("Error displaying aggregation results: " + e.getMessage());
         }
-        
-        return rowCount;
+        return 0;
     }
 
     /**
@@ -216,4 +166,141 @@ public class DBOutputFormatter {
     public static int showViewResults(String title, ResultSet resultSet) {
         return showGenericQueryResult(title, resultSet);
     }
+    
+    /*****************************************************************/
+    /*                       RENDERING                               */
+    /*****************************************************************/
+    
+    /**
+     * Creates a Writer for the console with a large buffer, so output reaches
+     * System.out in a few big writes rather than one call per cell
+     * @return Writer wrapping System.out
+     */
+    private static Writer consoleWriter() {
+        return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);
+    }
+    
+    /**
+     * Writes a title, column header, separator and every row of the ResultSet to the Writer.
+     * Column names are read once; each value is read with getObject(), because SQLite columns
+     * without a declared type can hold a different type on every row.
+     * @param title String title for the output
+     * @param resultSet ResultSet object containing query results
+     * @param out Writer to send the output to
+     * @param totalLabel Label printed before the row count
+     * @return int row count
+     * @throws SQLException if the ResultSet cannot be read
+     * @throws IOException if the Writer fails
+     */
+    private static int writeTable(String title, ResultSet resultSet, Writer out, String totalLabel)
+            throws SQLException, IOException {
+        
+        // Cache column metadata once per result
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = metaData.getColumnName(i + 1);
+        }
+        
+        StringBuilder buffer = new StringBuilder(ROW_BUFFER_SIZE);
+        appendHeader(buffer, title, columnNames);
+        
+        // Print data
+        int rowCount = 0;
+        while (resultSet.next()) {
+            rowCount++;
+            for (int i = 0; i < columnCount; i++) {
+                appendValue(buffer, resultSet.getObject(i + 1));
+                if (i < columnCount - 1) buffer.append(COLUMN_SEPARATOR);
+            }
+            buffer.append('\n');
+            
+            // Hand full buffers to the Writer and reuse them
+            if (buffer.length() >= ROW_BUFFER_SIZE) {
+                out.append(buffer);
+                buffer.setLength(0);
+            }
+        }
+        
+        appendTotal(buffer, totalLabel, rowCount);
+        out.append(buffer);
+        out.flush();
+        return rowCount;
+    }
+    
+    /**
+     * Appends the title, the column names and a separator line under each name
+     * @param buffer StringBuilder to append to
+     * @param title String title for the output
+     * @param columnNames Names of the columns
+     */
+    static void appendHeader(StringBuilder buffer, String title, String[] columnNames) {
+        int columnCount = columnNames.length;
+        
+        // Print header
+        buffer.append('\n').append(title).append("\n\n");
+        
+        // Print column names
+        for (int i = 0; i < columnCount; i++) {
+            buffer.append(columnNames[i]);
+            if (i < columnCount - 1) buffer.append(COLUMN_SEPARATOR);
+        }
+        buffer.append('\n');
+        
+        // Print separator line
+        for (int i = 0; i < columnCount; i++) {
+            for (int j = 0; j < columnNames[i].length(); j++) {
+                buffer.append('-');
+            }
+            if (i < columnCount - 1) buffer.append(COLUMN_SEPARATOR);
+        }
+        buffer.append('\n');
+    }
+    
+    /**
+     * Appends one row of values already read from a ResultSet, formatted as writeTable() formats them
+     * @param buffer StringBuilder to append to
+     * @param values Values of many rows, row after row (null for NULL)
+     * @param offset Index in values of the row's first column
+     * @param columnCount Number of columns in a row
+     */
+    static void appendRow(StringBuilder buffer, Object[] values, int offset, int columnCount) {
+        for (int i = 0; i < columnCount; i++) {
+            appendValue(buffer, values[offset + i]);
+            if (i < columnCount - 1) buffer.append(COLUMN_SEPARATOR);
+        }
+        buffer.append('\n');
+    }
+    
+    /**
+     * Appends the row count line that ends a table
+     * @param buffer StringBuilder to append to
+     * @param totalLabel Label printed before the row count
+     * @param rowCount Number of rows in the table
+     */
+    static void appendTotal(StringBuilder buffer, String totalLabel, long rowCount) {
+        buffer.append('\n').append(totalLabel).append(rowCount).append('\n');
+    }
+    
+    /**
+     * Appends one column value to the buffer, choosing the append by the value's own type
+     * so numbers are written without going through toString()
+     * @param buffer StringBuilder to append to
+     * @param value Value read with getObject() (null for NULL)
+     */
+    static void appendValue(StringBuilder buffer, Object value) {
+        if (value == null) {
+            buffer.append("NULL");
+        } else if (value instanceof Long || value instanceof Integer) {
+            buffer.append(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            buffer.append(((Double) value).doubleValue());
+        } else if (value instanceof byte[]) {
+            // Blobs print as their text, as getString() reads them
+            buffer.append(new String((byte[]) value, StandardCharsets.UTF_8));
+        } else {
+            buffer.append(value);
+        }
+    }
 }
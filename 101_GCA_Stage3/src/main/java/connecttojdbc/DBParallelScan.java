@@ -0,0 +1,570 @@
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * This class is used to scan a table in parallel. The table is split into partitions by ranges of
+ * rowid (or of another integer key column), each partition is read on its own read-only pooled
+ * connection, and the partial results are merged pairwise by a fork-join task tree:
+ * counts and sums are added, group-by maps are merged, and sorted partitions are merged in order.
+ *
+ * Counts, column statistics and group-by statistics are computed by SQLite inside each partition,
+ * so only one row (or one row per group) per partition comes back to Java. If the database is in
+ * WAL mode the scan neither blocks nor is blocked by a writer. When there are more partitions than
+ * pooled connections, partition tasks wait for a connection as a ForkJoinPool.ManagedBlocker, so
+ * the pool can keep its other workers busy meanwhile.
+ * Table, column and where clause text is put into the SQL as it is, so it must not come from user input;
+ * values should be passed as whereParams.
+ * @since 16/10/2026
+ * @see DBConnectionPool#getReadOnlyPool(String, int, long)
+ */
+public class DBParallelScan {
+
+    // Default number of partitions (and of read-only connections used at once)
+    public static final int DEFAULT_PARTITIONS = Runtime.getRuntime().availableProcessors();
+
+    // Runs the partition tasks; shared by all scans
+    private static final ForkJoinPool forkJoinPool = new ForkJoinPool(DEFAULT_PARTITIONS);
+
+    private final DBConnectionPool pool;
+    private final String table;
+    private final String partitionColumn;
+    private final String where;
+    private final Object[] whereParams;
+    private final int partitions;
+
+    /**
+     * Statistics of a numeric column, which can be merged across partitions
+     * @param count Number of non-NULL values
+     * @param sum Sum of the values
+     * @param min Smallest value (NaN if there are none)
+     * @param max Largest value (NaN if there are none)
+     */
+    public record ColumnStats(long count, double sum, double min, double max) {
+
+        // Statistics of no values
+        public static final ColumnStats EMPTY = new ColumnStats(0, 0, Double.NaN, Double.NaN);
+
+        /**
+         * @return double mean of the values (NaN if there are none)
+         */
+        public double mean() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+
+        /**
+         * @param other ColumnStats of another set of values
+         * @return ColumnStats of both sets of values together
+         */
+        public ColumnStats merge(ColumnStats other) {
+            if (other.count == 0) {
+                return this;
+            }
+            if (count == 0) {
+                return other;
+            }
+            return new ColumnStats(count + other.count, sum + other.sum,
+                    Math.min(min, other.min), Math.max(max, other.max));
+        }
+    }
+
+    /**
+     * This interface is used to fold the rows of one partition into an accumulator
+     * @param <A> Type of the accumulator
+     */
+    @FunctionalInterface
+    public interface RowAccumulator<A> {
+        void accumulate(A accumulator, ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * The work done for one partition, given the SQL range predicate's bounds
+     * @param <R> Type of the partial result
+     */
+    @FunctionalInterface
+    private interface PartitionWork<R> {
+        R run(Connection conn, long from, long to) throws SQLException;
+    }
+
+    /**
+     * Creates a scan over a whole table, partitioned by rowid
+     * @param dbFilePath Path to the SQLite database file
+     * @param table Name of the table to scan
+     * @param partitions Number of partitions
+     */
+    public DBParallelScan(String dbFilePath, String table, int partitions) {
+        this(dbFilePath, table, "rowid", null, null, partitions);
+    }
+
+    /**
+     * Creates a scan over the rows of a table that match a where clause
+     * @param dbFilePath Path to the SQLite database file
+     * @param table Name of the table to scan
+     * @param partitionColumn Integer column the table is split on (rowid or an indexed integer key).
+     *        The scan fails if its smallest or largest value is not an integer: for IDs stored as text,
+     *        pass e.g. "CAST(PlayerID AS INTEGER)" (each partition then reads the whole table)
+     * @param where SQL condition rows must match, with ? for values (may be null)
+     * @param whereParams Object array containing values for the where clause (may be null)
+     * @param partitions Number of partitions
+     */
+    public DBParallelScan(String dbFilePath, String table, String partitionColumn, String where, Object[] whereParams,
+            int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Partitions must be at least 1: " + partitions);
+        }
+        this.pool = DBConnectionPool.getReadOnlyPool(dbFilePath, DEFAULT_PARTITIONS,
+                DBConnectionPool.DEFAULT_IDLE_TIMEOUT_MILLIS);
+        this.table = table;
+        this.partitionColumn = partitionColumn;
+        this.where = where;
+        this.whereParams = whereParams;
+        this.partitions = partitions;
+    }
+
+    /*****************************************************************/
+    /*                       AGGREGATION                             */
+    /*****************************************************************/
+
+    /**
+     * Counts the rows in parallel
+     * @return long number of rows, or -1 if the scan fails
+     */
+    public long count() {
+        Long count = run("SELECT count(*)", "", (conn, from, to) -> {
+            try (ResultSet resultSet = executePartition(conn, "SELECT count(*)", "", from, to)) {
+                return resultSet.next() ? resultSet.getLong(1) : 0L;
+            }
+        }, Long::sum);
+        return count == null ? -1 : count;
+    }
+
+    /**
+     * Computes count, sum, min and max of a numeric column in parallel (values are compared as numbers)
+     * @param column Name of the column (or an SQL expression)
+     * @return ColumnStats of the column, or null if the scan fails
+     */
+    public ColumnStats stats(String column) {
+        String select = statsSelect(column);
+        return run(select, "", (conn, from, to) -> {
+            try (ResultSet resultSet = executePartition(conn, select, "", from, to)) {
+                return resultSet.next() ? readStats(resultSet, 1) : ColumnStats.EMPTY;
+            }
+        }, ColumnStats::merge);
+    }
+
+    /**
+     * Computes count, sum, min and max of a numeric column for each value of a key column, in parallel
+     * @param keyColumn Name of the column to group by
+     * @param valueColumn Name of the numeric column (or an SQL expression)
+     * @return Map of ColumnStats by key (NULL keys are grouped under null), or null if the scan fails
+     */
+    public Map<String, ColumnStats> groupStats(String keyColumn, String valueColumn) {
+        String select = "SELECT " + keyColumn + ", " + statsSelect(valueColumn).substring("SELECT ".length());
+        String suffix = " GROUP BY " + keyColumn;
+        return run(select, suffix, (conn, from, to) -> {
+            Map<String, ColumnStats> groups = new HashMap<>();
+            try (ResultSet resultSet = executePartition(conn, select, suffix, from, to)) {
+                while (resultSet.next()) {
+                    groups.put(resultSet.getString(1), readStats(resultSet, 2));
+                }
+            }
+            return groups;
+        }, DBParallelScan::mergeGroups);
+    }
+
+    /**
+     * Folds every row into an accumulator in parallel: each partition fills its own accumulator
+     * and the accumulators are then combined pairwise
+     * @param <A> Type of the accumulator
+     * @param columns Columns to select (e.g. "PlayerID, Score")
+     * @param supplier Supplier of a new, empty accumulator
+     * @param accumulator RowAccumulator that adds one row to an accumulator
+     * @param combiner BinaryOperator that combines two accumulators
+     * @return A combined accumulator, or null if the scan fails
+     */
+    public <A> A aggregate(String columns, Supplier<A> supplier, RowAccumulator<A> accumulator, BinaryOperator<A> combiner) {
+        String select = "SELECT " + columns;
+        return run(select, "", (conn, from, to) -> {
+            A partial = supplier.get();
+            try (ResultSet resultSet = executePartition(conn, select, "", from, to)) {
+                while (resultSet.next()) {
+                    accumulator.accumulate(partial, resultSet);
+                }
+            }
+            return partial;
+        }, combiner);
+    }
+
+    /*****************************************************************/
+    /*                       ROW SCANS                               */
+    /*****************************************************************/
+
+    /**
+     * Reads the rows in parallel, returned in partition column order (the order of the partitions)
+     * @param <T> Type of object created for each row
+     * @param columns Columns to select (e.g. "*")
+     * @param mapper RowMapper that turns each row into an object
+     * @return List of mapped rows, or null if the scan fails
+     */
+    public <T> List<T> scan(String columns, RowMapper<T> mapper) {
+        return scanPartitions(columns, " ORDER BY " + partitionColumn, mapper, DBParallelScan::concat);
+    }
+
+    /**
+     * Reads the rows in parallel in a given order: each partition is sorted by SQLite, and the sorted
+     * partitions are merged pairwise up the task tree
+     * @param <T> Type of object created for each row
+     * @param columns Columns to select (e.g. "*")
+     * @param orderBy SQL ORDER BY list (e.g. "Score DESC")
+     * @param comparator Comparator that orders the mapped rows the same way as orderBy
+     * @param mapper RowMapper that turns each row into an object
+     * @return List of mapped rows in order, or null if the scan fails
+     */
+    public <T> List<T> scanOrdered(String columns, String orderBy, Comparator<? super T> comparator, RowMapper<T> mapper) {
+        return scanPartitions(columns, " ORDER BY " + orderBy, mapper, (left, right) -> mergeSorted(left, right, comparator));
+    }
+
+    /**
+     * Reads each partition into a list and merges the lists
+     * @param <T> Type of object created for each row
+     * @param columns Columns to select
+     * @param suffix SQL added after the WHERE clause
+     * @param mapper RowMapper that turns each row into an object
+     * @param merge BinaryOperator that merges the rows of two neighbouring partitions
+     * @return List of mapped rows, or null if the scan fails
+     */
+    private <T> List<T> scanPartitions(String columns, String suffix, RowMapper<T> mapper, BinaryOperator<List<T>> merge) {
+        String select = "SELECT " + columns;
+        return run(select, suffix, (conn, from, to) -> {
+            List<T> rows = new ArrayList<>();
+            try (ResultSet resultSet = executePartition(conn, select, suffix, from, to)) {
+                RowMapper<T> rowMapper = mapper.bindTo(resultSet);
+                while (resultSet.next()) {
+                    rows.add(rowMapper.mapRow(resultSet));
+                }
+            }
+            return rows;
+        }, merge);
+    }
+
+    /*****************************************************************/
+    /*                       FORK-JOIN PIPELINE                      */
+    /*****************************************************************/
+
+    /**
+     * Splits the table into partitions, runs the work for each in the fork-join pool and merges the results
+     * @param <R> Type of the partial results
+     * @param select SELECT clause, for error messages
+     * @param suffix SQL added after the WHERE clause, for error messages
+     * @param work PartitionWork run for each partition
+     * @param merge BinaryOperator that merges the results of two neighbouring partitions
+     * @return R merged result, or null if the scan fails
+     */
+    private <R> R run(String select, String suffix, PartitionWork<R> work, BinaryOperator<R> merge) {
+        try {
+            long[] bounds = partitionBounds();
+            return forkJoinPool.invoke(new PartitionTask<>(bounds, 0, bounds.length - 1, work, merge));
+        } catch (PartitionFailure e) {
+            System.err.println("Parallel scan error: " + e.getCause().getMessage());
+            System.err.println("Query: " + partitionSql(select, suffix));
+        } catch (SQLException e) {
+            System.err.println("Parallel scan error: " + e.getMessage());
+            System.err.println("Query: " + partitionSql(select, suffix));
+        }
+        return null;
+    }
+
+    /**
+     * Runs a range of partitions: one partition directly, more by splitting the range in two
+     * and merging the halves
+     * @param <R> Type of the partial results
+     */
+    private final class PartitionTask<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] bounds;
+        private final int first;
+        private final int last;
+        private final PartitionWork<R> work;
+        private final BinaryOperator<R> merge;
+
+        /**
+         * @param bounds Partition boundaries (partition i covers bounds[i] to bounds[i + 1] - 1)
+         * @param first Index of the first partition in this task
+         * @param last Index after the last partition in this task
+         * @param work PartitionWork run for each partition
+         * @param merge BinaryOperator that merges the results of two neighbouring ranges
+         */
+        PartitionTask(long[] bounds, int first, int last, PartitionWork<R> work, BinaryOperator<R> merge) {
+            this.bounds = bounds;
+            this.first = first;
+            this.last = last;
+            this.work = work;
+            this.merge = merge;
+        }
+
+        @Override
+        protected R compute() {
+            if (last - first == 1) {
+                return runPartition(bounds[first], bounds[last] - 1, work);
+            }
+            int middle = (first + last) >>> 1;
+            PartitionTask<R> left = new PartitionTask<>(bounds, first, middle, work, merge);
+            PartitionTask<R> right = new PartitionTask<>(bounds, middle, last, work, merge);
+            left.fork();
+            R rightResult = right.compute();
+            return merge.apply(left.join(), rightResult);
+        }
+    }
+
+    /**
+     * Runs the work for one partition on a borrowed read-only connection
+     * @param <R> Type of the partial result
+     * @param from First partition column value in the partition
+     * @param to Last partition column value in the partition
+     * @param work PartitionWork to run
+     * @return R partial result
+     * @throws PartitionFailure if the partition cannot be read
+     */
+    private <R> R runPartition(long from, long to, PartitionWork<R> work) {
+        Connection conn;
+        try {
+            conn = borrowConnection();
+        } catch (SQLException e) {
+            throw new PartitionFailure(e);
+        }
+        try {
+            return work.run(conn, from, to);
+        } catch (SQLException e) {
+            throw new PartitionFailure(e);
+        } finally {
+            pool.release(conn);
+        }
+    }
+
+    /**
+     * Borrows a read-only connection, waiting as long as it takes for one to be released.
+     * In a fork-join worker the wait is managed, so the pool may start another worker meanwhile.
+     * @return Connection object
+     * @throws SQLException if the wait is interrupted or the pool cannot open a connection
+     */
+    private Connection borrowConnection() throws SQLException {
+        ConnectionBlocker blocker = new ConnectionBlocker();
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (blocker.conn == null) {
+            throw new SQLException("No read-only connection available");
+        }
+        return blocker.conn;
+    }
+
+    /**
+     * Waits for a connection from the pool on behalf of a fork-join worker
+     */
+    private final class ConnectionBlocker implements ForkJoinPool.ManagedBlocker {
+        private Connection conn;
+
+        @Override
+        public boolean block() {
+            conn = pool.borrow(Long.MAX_VALUE);
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return conn != null;
+        }
+    }
+
+    /**
+     * Thrown inside the fork-join pool to carry the SQLException of a failed partition back to run()
+     */
+    private static final class PartitionFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        PartitionFailure(SQLException cause) {
+            super(cause);
+        }
+    }
+
+    /*****************************************************************/
+    /*                       UTILITY METHODS                         */
+    /*****************************************************************/
+
+    /**
+     * Finds the range of the partition column and splits it into equal-width partitions
+     * @return long array of boundaries (partition i covers bounds[i] to bounds[i + 1] - 1)
+     * @throws SQLException if the range cannot be read, or is not a range of integers
+     */
+    private long[] partitionBounds() throws SQLException {
+        String sql = "SELECT min(" + partitionColumn + "), max(" + partitionColumn + "), typeof(min("
+                + partitionColumn + ")), typeof(max(" + partitionColumn + ")) FROM " + table
+                + (where == null ? "" : " WHERE " + where);
+        long min;
+        long max;
+        Connection conn = borrowConnection();
+        try {
+            PreparedStatement prepStmt = PreparedStatementCache.prepare(conn, sql);
+            DBParameterBinder.bind(prepStmt, whereParams);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                resultSet.next();
+                String minType = resultSet.getString(3);
+                String maxType = resultSet.getString(4);
+                if ("null".equals(minType)) {
+                    // No rows: one empty partition
+                    return new long[] {0, 1};
+                }
+                // Text or real values would never match the integer range bounds
+                if (!"integer".equals(minType) || !"integer".equals(maxType)) {
+                    throw new SQLException("Partition column " + partitionColumn + " holds " + minType + "/"
+                            + maxType + " values, not integers (try CAST(" + partitionColumn + " AS INTEGER))");
+                }
+                min = resultSet.getLong(1);
+                max = resultSet.getLong(2);
+            }
+        } finally {
+            pool.release(conn);
+        }
+
+        // Never more partitions than there are values to split (the span may not fit in a long)
+        BigInteger low = BigInteger.valueOf(min);
+        BigInteger span = BigInteger.valueOf(max).subtract(low).add(BigInteger.ONE);
+        int count = span.compareTo(BigInteger.valueOf(partitions)) < 0 ? span.intValue() : partitions;
+        long[] bounds = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            bounds[i] = low.add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(count))).longValue();
+        }
+        // Wraps to Long.MIN_VALUE when max is Long.MAX_VALUE, so bounds[count] - 1 is still max
+        bounds[count] = max + 1;
+        return bounds;
+    }
+
+    /**
+     * Runs the partition query for one range of the partition column
+     * @param conn Connection to run it on
+     * @param select SELECT clause
+     * @param suffix SQL added after the WHERE clause (GROUP BY, ORDER BY)
+     * @param from First partition column value in the partition
+     * @param to Last partition column value in the partition
+     * @return ResultSet of the partition
+     * @throws SQLException if the query fails
+     */
+    private ResultSet executePartition(Connection conn, String select, String suffix, long from, long to)
+            throws SQLException {
+        String sql = partitionSql(select, suffix);
+        long start = DBQueryMetrics.start();
+        try {
+            PreparedStatement prepStmt = PreparedStatementCache.prepare(conn, sql);
+            prepStmt.setLong(1, from);
+            prepStmt.setLong(2, to);
+            if (whereParams != null) {
+                for (int i = 0; i < whereParams.length; i++) {
+                    DBParameterBinder.bind(prepStmt, i + 3, whereParams[i]);
+                }
+            }
+            ResultSet resultSet = prepStmt.executeQuery();
+            DBQueryMetrics.record(sql, start, -1, false);
+            return resultSet;
+        } catch (SQLException e) {
+            DBQueryMetrics.record(sql, start, -1, true);
+            throw e;
+        }
+    }
+
+    /**
+     * @param select SELECT clause
+     * @param suffix SQL added after the WHERE clause
+     * @return String SQL that reads one partition (range bounds are the first two parameters)
+     */
+    private String partitionSql(String select, String suffix) {
+        return select + " FROM " + table + " WHERE " + partitionColumn + " BETWEEN ? AND ?"
+                + (where == null ? "" : " AND (" + where + ")") + suffix;
+    }
+
+    /**
+     * @param column Name of a numeric column (or an SQL expression)
+     * @return String SELECT clause for its count, sum, min and max as numbers
+     */
+    private static String statsSelect(String column) {
+        String value = "CAST(" + column + " AS REAL)";
+        return "SELECT count(" + column + "), total(" + value + "), min(" + value + "), max(" + value + ")";
+    }
+
+    /**
+     * @param resultSet ResultSet positioned on a row of count, sum, min and max
+     * @param first Index of the count column
+     * @return ColumnStats read from the row
+     * @throws SQLException if a column cannot be read
+     */
+    private static ColumnStats readStats(ResultSet resultSet, int first) throws SQLException {
+        long count = resultSet.getLong(first);
+        if (count == 0) {
+            return ColumnStats.EMPTY;
+        }
+        return new ColumnStats(count, resultSet.getDouble(first + 1), resultSet.getDouble(first + 2),
+                resultSet.getDouble(first + 3));
+    }
+
+    /**
+     * Merges two group-by maps, reusing the larger one
+     * @param left Map of ColumnStats by key
+     * @param right Map of ColumnStats by key
+     * @return Map holding the merged statistics of every key
+     */
+    private static Map<String, ColumnStats> mergeGroups(Map<String, ColumnStats> left, Map<String, ColumnStats> right) {
+        Map<String, ColumnStats> into = left.size() >= right.size() ? left : right;
+        Map<String, ColumnStats> from = into == left ? right : left;
+        for (Map.Entry<String, ColumnStats> entry : from.entrySet()) {
+            into.merge(entry.getKey(), entry.getValue(), ColumnStats::merge);
+        }
+        return into;
+    }
+
+    /**
+     * @param <T> Type of the rows
+     * @param left Rows of the earlier partitions
+     * @param right Rows of the later partitions
+     * @return List of the left rows followed by the right rows
+     */
+    private static <T> List<T> concat(List<T> left, List<T> right) {
+        left.addAll(right);
+        return left;
+    }
+
+    /**
+     * Merges two sorted lists into one sorted list (rows from the left list come first on ties)
+     * @param <T> Type of the rows
+     * @param left Sorted rows
+     * @param right Sorted rows
+     * @param comparator Comparator the lists are sorted by
+     * @return List of all the rows in order
+     */
+    private static <T> List<T> mergeSorted(List<T> left, List<T> right, Comparator<? super T> comparator) {
+        List<T> merged = new ArrayList<>(left.size() + right.size());
+        int i = 0;
+        int j = 0;
+        while (i < left.size() && j < right.size()) {
+            merged.add(comparator.compare(right.get(j), left.get(i)) < 0 ? right.get(j++) : left.get(i++));
+        }
+        merged.addAll(left.subList(i, left.size()));
+        merged.addAll(right.subList(j, right.size()));
+        return merged;
+    }
+}
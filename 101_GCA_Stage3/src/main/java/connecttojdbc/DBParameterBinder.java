@@ -0,0 +1,392 @@
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is used to set the parameters of prepared statements. There are three ways to bind:
+ * <ul>
+ * <li>bind(prepStmt, Object[]) looks up the setter for each value's class in a dispatch table,
+ * so every common JDBC type is bound (unknown types go to setObject instead of being skipped)</li>
+ * <li>a StatementBinder lambda, passed to DBCommand.executePreparedQueryWith() or
+ * executePreparedUpdateWith(), calls the primitive setters itself, e.g.
+ * {@code ps -> { ps.setInt(1, id); ps.setDouble(2, score); }}, so nothing is boxed</li>
+ * <li>named parameters (:name, @name or $name) are turned into ? placeholders once per SQL string
+ * by named(), and the NamedQuery sets every position of a name with primitive overloads</li>
+ * </ul>
+ * Dates and times from java.time are stored as ISO text, the way the sample database holds them.
+ * @since 16/10/2026
+ * @see DBCommand
+ */
+public final class DBParameterBinder {
+
+    // Upper limit on cached named queries
+    private static final int MAX_NAMED_CACHE = 1_000;
+
+    // Setter for each registered type
+    private static final Map<Class<?>, ParameterSetter<?>> setters = new ConcurrentHashMap<>();
+
+    // Setter found for each class seen so far (including subclasses of registered types)
+    private static final Map<Class<?>, ParameterSetter<Object>> resolved = new ConcurrentHashMap<>();
+
+    // Parsed named queries by their original SQL text
+    private static final Map<String, NamedQuery> namedCache = new ConcurrentHashMap<>();
+
+    // Used for any class with no registered setter
+    private static final ParameterSetter<Object> OBJECT_SETTER = PreparedStatement::setObject;
+
+    static {
+        register(String.class, PreparedStatement::setString);
+        register(Integer.class, PreparedStatement::setInt);
+        register(Long.class, PreparedStatement::setLong);
+        register(Short.class, PreparedStatement::setShort);
+        register(Byte.class, PreparedStatement::setByte);
+        register(Double.class, PreparedStatement::setDouble);
+        register(Float.class, PreparedStatement::setFloat);
+        register(Boolean.class, PreparedStatement::setBoolean);
+        register(Character.class, (ps, index, value) -> ps.setString(index, value.toString()));
+        register(BigDecimal.class, PreparedStatement::setBigDecimal);
+        register(BigInteger.class, (ps, index, value) -> ps.setBigDecimal(index, new BigDecimal(value)));
+        register(byte[].class, PreparedStatement::setBytes);
+        register(java.sql.Date.class, PreparedStatement::setDate);
+        register(Time.class, PreparedStatement::setTime);
+        register(Timestamp.class, PreparedStatement::setTimestamp);
+        register(java.util.Date.class, (ps, index, value) -> ps.setTimestamp(index, new Timestamp(value.getTime())));
+        register(Instant.class, (ps, index, value) -> ps.setTimestamp(index, Timestamp.from(value)));
+        register(LocalDate.class, (ps, index, value) -> ps.setString(index, value.toString()));
+        register(LocalTime.class, (ps, index, value) -> ps.setString(index, value.toString()));
+        register(LocalDateTime.class, (ps, index, value) -> ps.setString(index, value.toString().replace('T', ' ')));
+        register(UUID.class, (ps, index, value) -> ps.setString(index, value.toString()));
+        register(Enum.class, (ps, index, value) -> ps.setString(index, value.name()));
+    }
+
+    /**
+     * This interface is used to set one parameter of a given type
+     * @param <T> Type of the parameter value
+     */
+    @FunctionalInterface
+    public interface ParameterSetter<T> {
+        void set(PreparedStatement prepStmt, int index, T value) throws SQLException;
+    }
+
+    /**
+     * This interface is used to set all the parameters of a statement directly, without boxing
+     */
+    @FunctionalInterface
+    public interface StatementBinder {
+        void bind(PreparedStatement prepStmt) throws SQLException;
+    }
+
+    private DBParameterBinder() {
+    }
+
+    /**
+     * Adds or replaces the setter used for a type (and, unless they have their own, its subclasses)
+     * @param <T> Type of the parameter value
+     * @param type Class of the parameter value
+     * @param setter ParameterSetter that binds values of the type
+     */
+    public static <T> void register(Class<T> type, ParameterSetter<? super T> setter) {
+        setters.put(type, setter);
+        resolved.clear();
+    }
+
+    /*****************************************************************/
+    /*                       POSITIONAL BINDING                      */
+    /*****************************************************************/
+
+    /**
+     * Sets the parameters of a prepared statement from an Object array
+     * @param prepStmt PreparedStatement to set the parameters on
+     * @param params Object array containing parameter values (may be null)
+     * @throws SQLException if a parameter cannot be set
+     */
+    public static void bind(PreparedStatement prepStmt, Object[] params) throws SQLException {
+        if (params == null) {
+            return;
+        }
+        for (int i = 0; i < params.length; i++) {
+            bind(prepStmt, i + 1, params[i]);
+        }
+    }
+
+    /**
+     * Sets one parameter with the setter for the value's class (setNull for null)
+     * @param prepStmt PreparedStatement to set the parameter on
+     * @param index Parameter index (1-based)
+     * @param value Parameter value (may be null)
+     * @throws SQLException if the parameter cannot be set
+     */
+    public static void bind(PreparedStatement prepStmt, int index, Object value) throws SQLException {
+        if (value == null) {
+            prepStmt.setNull(index, Types.NULL);
+        } else {
+            setterFor(value.getClass()).set(prepStmt, index, value);
+        }
+    }
+
+    /**
+     * Finds the setter for a class: its own, else the nearest registered superclass or interface,
+     * else setObject. The answer is remembered so each class is only looked up once.
+     * @param type Class of a parameter value
+     * @return ParameterSetter for values of the class
+     */
+    @SuppressWarnings("unchecked")
+    private static ParameterSetter<Object> setterFor(Class<?> type) {
+        ParameterSetter<Object> setter = resolved.get(type);
+        if (setter == null) {
+            for (Class<?> c = type; c != null && setter == null; c = c.getSuperclass()) {
+                setter = (ParameterSetter<Object>) setters.get(c);
+                for (int i = 0; setter == null && i < c.getInterfaces().length; i++) {
+                    setter = (ParameterSetter<Object>) setters.get(c.getInterfaces()[i]);
+                }
+            }
+            if (setter == null) {
+                setter = OBJECT_SETTER;
+            }
+            resolved.put(type, setter);
+        }
+        return setter;
+    }
+
+    /*****************************************************************/
+    /*                       NAMED PARAMETERS                        */
+    /*****************************************************************/
+
+    /**
+     * Returns the parsed form of a query with named parameters, parsing it only the first time
+     * @param sql SQL with :name, @name or $name parameters (plain ? placeholders may also be used)
+     * @return NamedQuery holding the JDBC SQL and the positions of each name
+     */
+    public static NamedQuery named(String sql) {
+        NamedQuery query = namedCache.get(sql);
+        if (query == null) {
+            query = NamedQuery.parse(sql);
+            if (namedCache.size() >= MAX_NAMED_CACHE) {
+                namedCache.clear();
+            }
+            namedCache.put(sql, query);
+        }
+        return query;
+    }
+
+    /**
+     * This class is used to hold a query whose named parameters have been replaced by ? placeholders,
+     * along with the positions each name was found at (a name may be used more than once)
+     */
+    public static final class NamedQuery {
+
+        private final String sql;
+        private final Map<String, int[]> positions;
+
+        /**
+         * @param sql SQL with ? placeholders
+         * @param positions Positions (1-based) of each parameter name
+         */
+        private NamedQuery(String sql, Map<String, int[]> positions) {
+            this.sql = sql;
+            this.positions = positions;
+        }
+
+        /**
+         * @return String SQL with ? placeholders, to pass to DBCommand or prepareStatement()
+         */
+        public String sql() {
+            return sql;
+        }
+
+        /**
+         * @return Set of parameter names, in the order they first appear
+         */
+        public Set<String> parameterNames() {
+            return positions.keySet();
+        }
+
+        /**
+         * Sets every position of a named parameter to an int
+         * @param prepStmt PreparedStatement prepared from sql()
+         * @param name Parameter name (without the : prefix)
+         * @param value Parameter value
+         * @throws SQLException if the name is not in the query or the value cannot be set
+         */
+        public void setInt(PreparedStatement prepStmt, String name, int value) throws SQLException {
+            for (int index : positionsOf(name)) {
+                prepStmt.setInt(index, value);
+            }
+        }
+
+        /**
+         * Sets every position of a named parameter to a long
+         * @param prepStmt PreparedStatement prepared from sql()
+         * @param name Parameter name (without the : prefix)
+         * @param value Parameter value
+         * @throws SQLException if the name is not in the query or the value cannot be set
+         */
+        public void setLong(PreparedStatement prepStmt, String name, long value) throws SQLException {
+            for (int index : positionsOf(name)) {
+                prepStmt.setLong(index, value);
+            }
+        }
+
+        /**
+         * Sets every position of a named parameter to a double
+         * @param prepStmt PreparedStatement prepared from sql()
+         * @param name Parameter name (without the : prefix)
+         * @param value Parameter value
+         * @throws SQLException if the name is not in the query or the value cannot be set
+         */
+        public void setDouble(PreparedStatement prepStmt, String name, double value) throws SQLException {
+            for (int index : positionsOf(name)) {
+                prepStmt.setDouble(index, value);
+            }
+        }
+
+        /**
+         * Sets every position of a named parameter to a boolean
+         * @param prepStmt PreparedStatement prepared from sql()
+         * @param name Parameter name (without the : prefix)
+         * @param value Parameter value
+         * @throws SQLException if the name is not in the query or the value cannot be set
+         */
+        public void setBoolean(PreparedStatement prepStmt, String name, boolean value) throws SQLException {
+            for (int index : positionsOf(name)) {
+                prepStmt.setBoolean(index, value);
+            }
+        }
+
+        /**
+         * Sets every position of a named parameter to a String
+         * @param prepStmt PreparedStatement prepared from sql()
+         * @param name Parameter name (without the : prefix)
+         * @param value Parameter value (may be null)
+         * @throws SQLException if the name is not in the query or the value cannot be set
+         */
+        public void setString(PreparedStatement prepStmt, String name, String value) throws SQLException {
+            for (int index : positionsOf(name)) {
+                prepStmt.setString(index, value);
+            }
+        }
+
+        /**
+         * Sets every position of a named parameter with the setter for the value's class
+         * @param prepStmt PreparedStatement prepared from sql()
+         * @param name Parameter name (without the : prefix)
+         * @param value Parameter value (may be null)
+         * @throws SQLException if the name is not in the query or the value cannot be set
+         */
+        public void setObject(PreparedStatement prepStmt, String name, Object value) throws SQLException {
+            for (int index : positionsOf(name)) {
+                DBParameterBinder.bind(prepStmt, index, value);
+            }
+        }
+
+        /**
+         * Sets every named parameter from a map of values
+         * @param prepStmt PreparedStatement prepared from sql()
+         * @param values Parameter values by name (every name in the query must be present)
+         * @throws SQLException if a value is missing or cannot be set
+         */
+        public void bind(PreparedStatement prepStmt, Map<String, ?> values) throws SQLException {
+            for (Map.Entry<String, int[]> entry : positions.entrySet()) {
+                if (!values.containsKey(entry.getKey())) {
+                    throw new SQLException("No value for parameter :" + entry.getKey() + " in: " + sql);
+                }
+                Object value = values.get(entry.getKey());
+                for (int index : entry.getValue()) {
+                    DBParameterBinder.bind(prepStmt, index, value);
+                }
+            }
+        }
+
+        /**
+         * @param name Parameter name
+         * @return int array of the name's positions (1-based)
+         * @throws SQLException if the name is not in the query
+         */
+        private int[] positionsOf(String name) throws SQLException {
+            int[] indices = positions.get(name);
+            if (indices == null) {
+                throw new SQLException("Unknown parameter :" + name + " in: " + sql);
+            }
+            return indices;
+        }
+
+        /**
+         * Replaces named parameters with ? placeholders, skipping string literals, quoted names
+         * and comments, and records the position of each one
+         * @param original SQL with named parameters
+         * @return NamedQuery for the SQL
+         */
+        private static NamedQuery parse(String original) {
+            StringBuilder sql = new StringBuilder(original.length());
+            Map<String, List<Integer>> found = new LinkedHashMap<>();
+            int position = 0;
+            int length = original.length();
+            int i = 0;
+
+            while (i < length) {
+                char c = original.charAt(i);
+                char next = i + 1 < length ? original.charAt(i + 1) : '\0';
+                int end;
+
+                if (c == '\'' || c == '"' || c == '`') {
+                    end = original.indexOf(c, i + 1);
+                } else if (c == '[') {
+                    end = original.indexOf(']', i + 1);
+                } else if (c == '-' && next == '-') {
+                    end = original.indexOf('\n', i + 2);
+                } else if (c == '/' && next == '*') {
+                    end = original.indexOf("*/", i + 2);
+                    end = end < 0 ? -1 : end + 1;
+                } else if (c == '?') {
+                    position++;
+                    sql.append(c);
+                    i++;
+                    continue;
+                } else if ((c == ':' || c == '@' || c == '$') && Character.isJavaIdentifierStart(next)
+                        && !(c == ':' && i > 0 && original.charAt(i - 1) == ':')) {
+                    end = i + 1;
+                    while (end < length && Character.isJavaIdentifierPart(original.charAt(end))) {
+                        end++;
+                    }
+                    position++;
+                    found.computeIfAbsent(original.substring(i + 1, end), name -> new ArrayList<>()).add(position);
+                    sql.append('?');
+                    i = end;
+                    continue;
+                } else {
+                    sql.append(c);
+                    i++;
+                    continue;
+                }
+
+                // Copy a literal, quoted name or comment as it is (to the end of the SQL if it is not closed)
+                end = end < 0 ? length : end + 1;
+                sql.append(original, i, end);
+                i = end;
+            }
+
+            Map<String, int[]> positions = new LinkedHashMap<>();
+            for (Map.Entry<String, List<Integer>> entry : found.entrySet()) {
+                positions.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            return new NamedQuery(sql.toString(), Collections.unmodifiableMap(positions));
+        }
+    }
+}
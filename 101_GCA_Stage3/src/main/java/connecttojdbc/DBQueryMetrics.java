@@ -0,0 +1,300 @@
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class is used to record how often each query runs, how long it takes, how many rows it
+ * returns or changes, and how often it fails. Queries are grouped by their normalized SQL text
+ * (literals replaced by ?), and slow queries are logged to System.err.
+ *
+ * Rows are counted for updates, batches, streamQuery() (when the stream is closed) and
+ * DBColumnarSnapshot loads. executeQuery() and executePreparedQuery() hand back the ResultSet
+ * unread, so for them the calls, time and errors are recorded but not the rows.
+ *
+ * Metrics are off by default; when off, DBCommand only pays for one System.nanoTime() call and
+ * one volatile read per call, and JMX is not loaded. Turn them on with -Ddbs1.metrics=true or
+ * setEnabled(true), set the slow query threshold with -Ddbs1.slowQueryMillis=..., and read them through JMX
+ * (dbs1:type=DBQueryMetrics), printSnapshot() or startPeriodicDump().
+ * @since 16/10/2026
+ * @see DBCommand
+ * @see LatencyHistogram
+ */
+public class DBQueryMetrics {
+
+    // System properties read at start-up
+    public static final String ENABLED_PROPERTY = "dbs1.metrics";
+    public static final String SLOW_QUERY_PROPERTY = "dbs1.slowQueryMillis";
+
+    // Name the metrics are registered under in JMX
+    public static final String JMX_NAME = "dbs1:type=DBQueryMetrics";
+
+    // Upper limit on cached normalized SQL strings
+    private static final int MAX_NORMALIZED_CACHE = 10_000;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+    private static volatile long slowQueryThresholdNanos =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong(SLOW_QUERY_PROPERTY, 1000));
+
+    private static final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+    private static final Map<String, String> normalizedCache = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService dumpExecutor;
+
+    static {
+        if (enabled) {
+            registerMXBean();
+        }
+    }
+
+    /**
+     * Counters for one normalized query
+     */
+    private static final class QueryStats {
+        final String sql;
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        QueryStats(String sql) {
+            this.sql = sql;
+        }
+
+        String summary() {
+            return String.format("calls=%d errors=%d rows=%d total=%.1f ms latency(ms) %s | %s",
+                    calls.sum(), errors.sum(), rows.sum(), totalNanos.sum() / 1_000_000.0,
+                    latency.summary(1_000_000.0), sql);
+        }
+    }
+
+    /*****************************************************************/
+    /*                       RECORDING                               */
+    /*****************************************************************/
+
+    /**
+     * Marks the start of a query
+     * @return long start time to pass to record()
+     */
+    public static long start() {
+        // Any long is a valid nanoTime() (even 0), so no value is reserved to mean "off"
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the outcome of a query started with start() (does nothing unless metrics are on)
+     * @param query SQL text that was run
+     * @param startNanos Value returned by start()
+     * @param rows Rows returned or affected, or -1 if not known
+     * @param failed true if the query threw an error
+     */
+    public static void record(String query, long startNanos, long rows, boolean failed) {
+        if (!enabled) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+
+        QueryStats entry = stats.computeIfAbsent(normalize(query), QueryStats::new);
+        entry.calls.increment();
+        entry.totalNanos.add(elapsed);
+        entry.latency.record(elapsed);
+        if (rows > 0) {
+            entry.rows.add(rows);
+        }
+        if (failed) {
+            entry.errors.increment();
+        }
+
+        if (elapsed >= slowQueryThresholdNanos) {
+            System.err.printf("Slow query (%.1f ms): %s%n", elapsed / 1_000_000.0, query);
+        }
+    }
+
+    /*****************************************************************/
+    /*                       SETTINGS                                */
+    /*****************************************************************/
+
+    /**
+     * @return boolean true if queries are being recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns recording on or off (turning it on also registers the JMX view)
+     * @param on true to record queries
+     */
+    public static void setEnabled(boolean on) {
+        if (on) {
+            registerMXBean();
+        }
+        enabled = on;
+    }
+
+    /**
+     * @return long run time in milliseconds above which a query is logged as slow
+     */
+    public static long getSlowQueryThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos);
+    }
+
+    /**
+     * @param thresholdMillis Run time in milliseconds above which a query is logged as slow
+     */
+    public static void setSlowQueryThresholdMillis(long thresholdMillis) {
+        slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    /*****************************************************************/
+    /*                       REPORTING                               */
+    /*****************************************************************/
+
+    /**
+     * @return List of one summary line per normalized query, largest total time first
+     */
+    public static List<String> getQuerySummaries() {
+        List<QueryStats> entries = new ArrayList<>(stats.values());
+        entries.sort(Comparator.comparingLong((QueryStats s) -> s.totalNanos.sum()).reversed());
+        List<String> lines = new ArrayList<>(entries.size());
+        for (QueryStats entry : entries) {
+            lines.add(entry.summary());
+        }
+        return lines;
+    }
+
+    /**
+     * Prints a snapshot of the metrics for every query
+     */
+    public static void printSnapshot() {
+        List<String> lines = getQuerySummaries();
+        StringBuilder out = new StringBuilder("\nQuery metrics (" + lines.size() + " queries)\n");
+        for (String line : lines) {
+            out.append("  ").append(line).append('\n');
+        }
+        System.out.print(out);
+    }
+
+    /**
+     * Prints a snapshot every intervalSeconds on a background thread (replaces any earlier schedule)
+     * @param intervalSeconds Time between snapshots
+     */
+    public static synchronized void startPeriodicDump(long intervalSeconds) {
+        stopPeriodicDump();
+        dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumpExecutor.scheduleAtFixedRate(DBQueryMetrics::printSnapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic snapshot started by startPeriodicDump()
+     */
+    public static synchronized void stopPeriodicDump() {
+        if (dumpExecutor != null) {
+            dumpExecutor.shutdownNow();
+            dumpExecutor = null;
+        }
+    }
+
+    /**
+     * Clears all recorded metrics
+     */
+    public static void reset() {
+        stats.clear();
+    }
+
+    /*****************************************************************/
+    /*                       UTILITY METHODS                         */
+    /*****************************************************************/
+
+    /**
+     * Replaces string and number literals with ? and collapses whitespace, so that the same
+     * query with different values is counted together
+     * @param query SQL text
+     * @return String normalized SQL text
+     */
+    static String normalize(String query) {
+        String normalized = normalizedCache.get(query);
+        if (normalized == null) {
+            normalized = STRING_LITERAL.matcher(query).replaceAll("?");
+            normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+            normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+            if (normalizedCache.size() >= MAX_NORMALIZED_CACHE) {
+                normalizedCache.clear();
+            }
+            normalizedCache.put(query, normalized);
+        }
+        return normalized;
+    }
+
+    /**
+     * Registers the JMX view of the metrics with the platform MBean server. This happens automatically
+     * when metrics are turned on; call it directly to be able to turn them on from a JMX console.
+     */
+    public static synchronized void registerMXBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(JMX_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new JmxView(), name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register query metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forwards JMX calls to the static methods
+     */
+    private static final class JmxView implements DBQueryMetricsMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return DBQueryMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            DBQueryMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public long getSlowQueryThresholdMillis() {
+            return DBQueryMetrics.getSlowQueryThresholdMillis();
+        }
+
+        @Override
+        public void setSlowQueryThresholdMillis(long thresholdMillis) {
+            DBQueryMetrics.setSlowQueryThresholdMillis(thresholdMillis);
+        }
+
+        @Override
+        public String[] getQuerySummaries() {
+            return DBQueryMetrics.getQuerySummaries().toArray(new String[0]);
+        }
+
+        @Override
+        public void reset() {
+            DBQueryMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+
+/**
+ * This interface is the JMX view of DBQueryMetrics (registered as dbs1:type=DBQueryMetrics)
+ * @since 16/10/2026
+ * @see DBQueryMetrics
+ */
+public interface DBQueryMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getSlowQueryThresholdMillis();
+
+    void setSlowQueryThresholdMillis(long thresholdMillis);
+
+    /**
+     * @return String[] one line per normalized query, slowest total time first
+     */
+    String[] getQuerySummaries();
+
+    void reset();
+}
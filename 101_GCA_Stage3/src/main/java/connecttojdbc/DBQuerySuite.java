@@ -0,0 +1,527 @@
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * This class is used to run a list of named queries (a suite) and print their results in order.
+ * The work is split into three stages joined by bounded queues, so the stages overlap:
+ * <ul>
+ * <li>fetch: each query runs on its own pooled connection (through DBAsyncCommand) and its rows are
+ * copied out of the ResultSet in blocks, so the connection is returned as soon as the rows are read</li>
+ * <li>map: one thread turns each block of values into formatted text, as DBOutputFormatter does</li>
+ * <li>render: one thread writes each query's text to the output in suite order, holding back the
+ * text of a query that finishes early until the queries before it have been written</li>
+ * </ul>
+ * A full queue makes the stage before it wait, so a slow stage holds back the others instead of
+ * filling memory (only the text of queries waiting for their turn to be written is kept).
+ * After the run, the time each query spent in each stage is available from the returned QueryTimings.
+ *
+ * A suite file is SQL with comment lines naming each query and giving its parameters:
+ * <pre>
+ *   -- name: Action-Adventure Games Released After 1985
+ *   -- params: 'Action-Adventure', '1985-01-01'
+ *   SELECT * FROM Games WHERE Genre = ? AND ReleaseDate > ?;
+ * </pre>
+ * A query ends at a line ending in a semicolon. Parameters are separated by commas: 'quoted' values
+ * are text, whole numbers are Long, other numbers Double, NULL is null, and anything else is text.
+ * @since 16/10/2026
+ * @see DBAsyncCommand
+ * @see DBOutputFormatter
+ */
+public class DBQuerySuite {
+
+    // Suite file used by Main when it exists
+    public static final String DEFAULT_SUITE_FILE = "src/main/resources/sql/queries.sql";
+
+    // Rows copied from a ResultSet into each block
+    private static final int BLOCK_ROWS = 256;
+
+    // Blocks that may wait between two stages
+    private static final int QUEUE_CAPACITY = 64;
+
+    // Label printed before each table's row count
+    private static final String TOTAL_LABEL = "Total rows: ";
+
+    /**
+     * A query of the suite
+     * @param name Name printed above its results
+     * @param sql SQL text (with ? placeholders if it has parameters)
+     * @param params Parameter values (empty for a plain query)
+     */
+    public record SuiteQuery(String name, String sql, Object[] params) { }
+
+    /**
+     * Where the time of one query went. Waiting covers the queue for a connection and running the
+     * statement; fetch, map and render are the time spent in each stage; wall is from submission
+     * until the last of its text was formatted (writing may wait for earlier queries).
+     * @param name Query name
+     * @param rows Rows returned
+     * @param waitNanos Time until the first row could be read
+     * @param fetchNanos Time reading rows from the ResultSet
+     * @param mapNanos Time formatting rows as text
+     * @param renderNanos Time writing text to the output
+     * @param wallNanos Time from submission to fully formatted
+     * @param error Why the query failed, or null
+     */
+    public record QueryTiming(String name, long rows, long waitNanos, long fetchNanos, long mapNanos,
+            long renderNanos, long wallNanos, Throwable error) { }
+
+    private final List<SuiteQuery> queries;
+
+    /**
+     * Creates a suite from a list of queries
+     * @param queries SuiteQuery objects, in the order their results are printed
+     */
+    public DBQuerySuite(List<SuiteQuery> queries) {
+        this.queries = List.copyOf(queries);
+    }
+
+    /*****************************************************************/
+    /*                       LOADING                                 */
+    /*****************************************************************/
+
+    /**
+     * Reads a suite file
+     * @param file Path of the suite file
+     * @return DBQuerySuite of the file's queries, or null if it cannot be read
+     */
+    public static DBQuerySuite load(Path file) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Could not read query suite: " + e.getMessage());
+            System.err.println("File: " + file);
+            return null;
+        }
+
+        List<SuiteQuery> queries = new ArrayList<>();
+        String name = null;
+        Object[] params = new Object[0];
+        StringBuilder sql = new StringBuilder();
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (sql.length() == 0 && trimmed.startsWith("--")) {
+                String comment = trimmed.substring(2).trim();
+                if (comment.regionMatches(true, 0, "name:", 0, 5)) {
+                    name = comment.substring(5).trim();
+                } else if (comment.regionMatches(true, 0, "params:", 0, 7)) {
+                    params = parseParams(comment.substring(7));
+                }
+                continue;
+            }
+            if (trimmed.isEmpty() && sql.length() == 0) {
+                continue;
+            }
+            sql.append(sql.length() == 0 ? "" : "\n").append(line);
+            if (trimmed.endsWith(";")) {
+                String text = sql.toString().trim();
+                queries.add(new SuiteQuery(name != null ? name : "Query " + (queries.size() + 1),
+                        text.substring(0, text.length() - 1).trim(), params));
+                name = null;
+                params = new Object[0];
+                sql.setLength(0);
+            }
+        }
+        if (!sql.toString().isBlank()) {
+            queries.add(new SuiteQuery(name != null ? name : "Query " + (queries.size() + 1), sql.toString().trim(), params));
+        }
+        return new DBQuerySuite(queries);
+    }
+
+    /**
+     * Splits a params line into values
+     * @param text Comma-separated parameter values
+     * @return Object array of the values
+     */
+    private static Object[] parseParams(String text) {
+        List<Object> values = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i < text.length() && text.charAt(i) == '\'') {
+                // Quoted text, with '' for a quote
+                StringBuilder value = new StringBuilder();
+                i++;
+                while (i < text.length()) {
+                    char c = text.charAt(i++);
+                    if (c == '\'') {
+                        if (i < text.length() && text.charAt(i) == '\'') {
+                            value.append('\'');
+                            i++;
+                            continue;
+                        }
+                        break;
+                    }
+                    value.append(c);
+                }
+                values.add(value.toString());
+                i = text.indexOf(',', i) < 0 ? text.length() : text.indexOf(',', i) + 1;
+            } else {
+                int end = text.indexOf(',', i) < 0 ? text.length() : text.indexOf(',', i);
+                values.add(parseValue(text.substring(i, end).trim()));
+                i = end + 1;
+            }
+        }
+        return values.toArray();
+    }
+
+    /**
+     * @param token Unquoted parameter value
+     * @return Object value: null, Long, Double or String
+     */
+    private static Object parseValue(String token) {
+        if (token.equalsIgnoreCase("NULL")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(token);
+        } catch (NumberFormatException notLong) {
+            try {
+                return Double.parseDouble(token);
+            } catch (NumberFormatException notDouble) {
+                return token;
+            }
+        }
+    }
+
+    /**
+     * @return List of the suite's queries
+     */
+    public List<SuiteQuery> getQueries() {
+        return queries;
+    }
+
+    /*****************************************************************/
+    /*                       RUNNING                                 */
+    /*****************************************************************/
+
+    /**
+     * Runs every query of the suite and writes their results to out, in suite order
+     * @param pool DBConnectionPool to borrow connections from (its size limits how many queries run at once)
+     * @param out Writer for the results (flushed after each query, not closed)
+     * @param timeoutMillis Maximum run time of each query in milliseconds (0 for no limit)
+     * @return List of QueryTiming, one per query in suite order
+     */
+    public List<QueryTiming> run(DBConnectionPool pool, Writer out, long timeoutMillis) {
+        BlockingQueue<Block> fetched = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Block> mapped = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        QueryRun[] runs = new QueryRun[queries.size()];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = new QueryRun(i, queries.get(i));
+        }
+
+        Thread mapper = startStage("query-suite-map", () -> mapStage(fetched, mapped, runs.length));
+        Thread renderer = startStage("query-suite-render", () -> renderStage(mapped, out, runs));
+
+        // Submit every query; the pool decides how many run at once
+        for (QueryRun run : runs) {
+            run.submitNanos = System.nanoTime();
+            DBAsyncCommand.ResultSetHandler<Long> handler = resultSet -> fetch(run, resultSet, fetched);
+            SuiteQuery query = run.query;
+            CompletableFuture<Long> future = query.params().length == 0
+                    ? DBAsyncCommand.executeQueryAsync(pool, query.sql(), handler, timeoutMillis)
+                    : DBAsyncCommand.executePreparedQueryAsync(pool, query.sql(), query.params(), handler, timeoutMillis);
+            future.whenComplete((rows, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                putQuietly(fetched, new Block(run, BlockKind.END, null, 0, null, null, cause));
+            });
+        }
+
+        try {
+            mapper.join();
+            renderer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            mapper.interrupt();
+            renderer.interrupt();
+        }
+
+        List<QueryTiming> timings = new ArrayList<>(runs.length);
+        for (QueryRun run : runs) {
+            timings.add(run.toTiming());
+        }
+        return timings;
+    }
+
+    /**
+     * Prints a table of the time each query spent in each stage, and the total for the suite
+     * @param timings List of QueryTiming returned by run()
+     * @param suiteNanos Wall-clock time of the whole run
+     */
+    public static void printTimings(List<QueryTiming> timings, long suiteNanos) {
+        System.out.println("\nQuery suite timings (ms):");
+        System.out.printf("  %-40s %8s %8s %8s %8s %8s %8s%n", "Query", "Rows", "Wait", "Fetch", "Map", "Render", "Wall");
+        long stageNanos = 0;
+        for (QueryTiming t : timings) {
+            String name = t.name().length() > 40 ? t.name().substring(0, 37) + "..." : t.name();
+            System.out.printf("  %-40s %8d %8.2f %8.2f %8.2f %8.2f %8.2f%s%n", name, t.rows(), millis(t.waitNanos()),
+                    millis(t.fetchNanos()), millis(t.mapNanos()), millis(t.renderNanos()), millis(t.wallNanos()),
+                    t.error() != null ? "  FAILED" : "");
+            stageNanos += t.waitNanos() + t.fetchNanos() + t.mapNanos() + t.renderNanos();
+        }
+        System.out.printf("  %d queries in %.2f ms (stage times added up: %.2f ms)%n",
+                timings.size(), millis(suiteNanos), millis(stageNanos));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /*****************************************************************/
+    /*                       STAGES                                  */
+    /*****************************************************************/
+
+    /**
+     * Fetch stage: copies the rows of a query into blocks of values, read with getObject() so each value
+     * keeps its own SQLite type (a column may hold integers in one row and text in the next), and queues
+     * them (waiting when the map stage is behind)
+     * @return Long number of rows read
+     */
+    private static Long fetch(QueryRun run, ResultSet resultSet, BlockingQueue<Block> fetched) throws SQLException {
+        long start = System.nanoTime();
+        run.waitNanos = start - run.submitNanos;
+
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = metaData.getColumnName(i + 1);
+        }
+        put(fetched, new Block(run, BlockKind.HEADER, columnNames, 0, null, null, null));
+
+        long rows = 0;
+        Object[] values = new Object[BLOCK_ROWS * columnCount];
+        int rowsInBlock = 0;
+        while (resultSet.next()) {
+            int offset = rowsInBlock * columnCount;
+            for (int i = 0; i < columnCount; i++) {
+                values[offset + i] = resultSet.getObject(i + 1);
+            }
+            rows++;
+            if (++rowsInBlock == BLOCK_ROWS) {
+                put(fetched, new Block(run, BlockKind.ROWS, columnNames, rowsInBlock, values, null, null));
+                values = new Object[BLOCK_ROWS * columnCount];
+                rowsInBlock = 0;
+            }
+        }
+        if (rowsInBlock > 0) {
+            put(fetched, new Block(run, BlockKind.ROWS, columnNames, rowsInBlock, values, null, null));
+        }
+        run.rows = rows;
+        run.fetchNanos = System.nanoTime() - start;
+        return rows;
+    }
+
+    /**
+     * Map stage: turns header and row blocks into text, and passes END blocks on.
+     * Stops after the END block of every query.
+     */
+    private static void mapStage(BlockingQueue<Block> fetched, BlockingQueue<Block> mapped, int queryCount)
+            throws InterruptedException {
+        int ended = 0;
+        while (ended < queryCount) {
+            Block block = fetched.take();
+            QueryRun run = block.run();
+            if (run.mapEnded) {
+                // Rows still arriving from a query that has already timed out
+                continue;
+            }
+            long start = System.nanoTime();
+            StringBuilder text = new StringBuilder();
+            switch (block.kind()) {
+                case HEADER -> DBOutputFormatter.appendHeader(text, run.query.name(), block.columnNames());
+                case ROWS -> {
+                    int columnCount = block.columnNames().length;
+                    for (int row = 0; row < block.rowCount(); row++) {
+                        DBOutputFormatter.appendRow(text, block.values(), row * columnCount, columnCount);
+                    }
+                }
+                case END -> {
+                    run.mapEnded = true;
+                    run.wallNanos = System.nanoTime() - run.submitNanos;
+                    ended++;
+                }
+            }
+            run.mapNanos += System.nanoTime() - start;
+            mapped.put(new Block(run, block.kind(), null, block.rowCount(), null, text, block.error()));
+        }
+    }
+
+    /**
+     * Render stage: writes each query's header box, text and row count in suite order.
+     * Text of a query that is not yet due is kept until the queries before it have been written.
+     */
+    private static void renderStage(BlockingQueue<Block> mapped, Writer out, QueryRun[] runs) throws InterruptedException {
+        int next = 0;
+        while (next < runs.length) {
+            Block block = mapped.take();
+            QueryRun run = block.run();
+            if (block.kind() == BlockKind.END) {
+                run.error = block.error();
+            }
+            if (run.index != next) {
+                run.held.add(block);
+                continue;
+            }
+            if (render(block, out)) {
+                // Write the queries after it that are already waiting, and any that have ended
+                next++;
+                while (next < runs.length && renderHeld(runs[next], out)) {
+                    next++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the blocks held for a query
+     * @return boolean true if the query's END block was among them
+     */
+    private static boolean renderHeld(QueryRun run, Writer out) {
+        boolean ended = false;
+        for (Block block : run.held) {
+            ended |= render(block, out);
+        }
+        run.held.clear();
+        return ended;
+    }
+
+    /**
+     * Writes one block of a query's text
+     * @return boolean true if it was the query's END block
+     */
+    private static boolean render(Block block, Writer out) {
+        QueryRun run = block.run();
+        long start = System.nanoTime();
+        try {
+            if (!run.started) {
+                run.started = true;
+                out.write("\n/*************************************************************************/\n");
+                out.write("/* QUERY " + (run.index + 1) + ": " + run.query.name() + "\n");
+                out.write("/*************************************************************************/\n");
+            }
+            StringBuilder text = block.text();
+            if (block.kind() == BlockKind.END) {
+                if (block.error() == null) {
+                    DBOutputFormatter.appendTotal(text, TOTAL_LABEL, run.rows);
+                }
+                out.append(text);
+                out.flush();
+                if (block.error() != null) {
+                    System.err.println("Query " + (run.index + 1) + " (" + run.query.name() + ") failed: " + block.error());
+                }
+            } else {
+                out.append(text);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing query results: " + e.getMessage());
+        }
+        run.renderNanos += System.nanoTime() - start;
+        return block.kind() == BlockKind.END;
+    }
+
+    /*****************************************************************/
+    /*                       UTILITY METHODS                         */
+    /*****************************************************************/
+
+    /**
+     * Work done by a stage thread
+     */
+    @FunctionalInterface
+    private interface StageWork {
+        void run() throws InterruptedException;
+    }
+
+    private static Thread startStage(String name, StageWork work) {
+        Thread thread = new Thread(() -> {
+            try {
+                work.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void put(BlockingQueue<Block> queue, Block block) throws SQLException {
+        try {
+            queue.put(block);
+        } catch (InterruptedException e) {
+            // The query was cancelled or timed out while waiting for the map stage
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while queueing rows", e);
+        }
+    }
+
+    private static void putQuietly(BlockingQueue<Block> queue, Block block) {
+        try {
+            queue.put(block);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * What a block holds
+     */
+    private enum BlockKind { HEADER, ROWS, END }
+
+    /**
+     * A unit of work passed between stages: column names, a block of values (replaced by text in the
+     * map stage), or the end of a query
+     */
+    private record Block(QueryRun run, BlockKind kind, String[] columnNames, int rowCount, Object[] values,
+            StringBuilder text, Throwable error) { }
+
+    /**
+     * The state of one query while the suite runs. Each field is written by one stage only.
+     */
+    private static final class QueryRun {
+
+        final int index;
+        final SuiteQuery query;
+
+        // Written by the submitting thread and the fetch stage
+        volatile long submitNanos;
+        volatile long waitNanos;
+        volatile long fetchNanos;
+        volatile long rows;
+
+        // Written by the map stage
+        long mapNanos;
+        long wallNanos;
+        boolean mapEnded;
+
+        // Written by the render stage
+        long renderNanos;
+        boolean started;
+        Throwable error;
+        final List<Block> held = new ArrayList<>();
+
+        QueryRun(int index, SuiteQuery query) {
+            this.index = index;
+            this.query = query;
+        }
+
+        QueryTiming toTiming() {
+            return new QueryTiming(query.name(), rows, waitNanos, fetchNanos, mapNanos, renderNanos, wallNanos, error);
+        }
+    }
+}
@@ -0,0 +1,797 @@
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import org.sqlite.SQLiteCommitListener;
+import org.sqlite.SQLiteConnection;
+
+/**
+ * This class is used to keep the results of read queries in memory, so that running the same query
+ * with the same parameters again does not go back to SQLite. Rows are read into a flat array of
+ * values, keyed by database, SQL text and parameters, and evicted least-recently-used once the cache
+ * goes over its memory budget. A result bigger than the whole budget is not cached: reading stops as
+ * soon as it goes over, and the caller gets the rows read so far followed by the rest of the live
+ * ResultSet. Queries whose result changes without a write (random(), 'now', CURRENT_TIMESTAMP...)
+ * are never cached.
+ *
+ * Every write that goes through DBCommand, DBAsyncCommand or DBWriteQueue removes the cached
+ * results of the tables it touches (found from the table names in its SQL). Writes made any other
+ * way are not seen, so only turn the cache on when all writes go through those classes.
+ * Inside a transaction (auto-commit off) the cache is not used for reads, as they may see the
+ * transaction's own uncommitted changes, and the tables it writes are removed again when it
+ * commits or rolls back, so results cached by other connections in the meantime are not kept.
+ * The cache is off by default: turn it on with -Ddbs1.resultCache=true or setEnabled(true).
+ * @since 16/10/2026
+ * @see DBCommand
+ */
+public class DBResultCache {
+
+    // System property that turns the cache on at start-up
+    public static final String ENABLED_PROPERTY = "dbs1.resultCache";
+
+    // Default memory budget for all cached results
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    // Table names follow these keywords (a comma covers "FROM a, b"), after an optional schema ("main.games")
+    private static final String SCHEMA = "(?:[`\"\\[]?\\w+[`\"\\]]?\\s*\\.\\s*)?";
+    private static final Pattern TABLE_NAME = Pattern.compile(
+            "\\b(?:FROM|JOIN|INTO|UPDATE|TABLE|EXISTS)\\s+" + SCHEMA + "[`\"\\[]?(\\w+)"
+                    + "|,\\s*" + SCHEMA + "[`\"\\[]?(\\w+)",
+            Pattern.CASE_INSENSITIVE);
+
+    // Functions and keywords whose value changes between runs of the same query
+    private static final Pattern NON_DETERMINISTIC = Pattern.compile(
+            "\\b(?:random|randomblob|changes|total_changes|last_insert_rowid)\\s*\\("
+                    + "|\\bcurrent_(?:date|time|timestamp)\\b|'now'",
+            Pattern.CASE_INSENSITIVE);
+
+    // Rough memory use of an array slot, a boxed number and an object header, for the size estimate
+    private static final int SLOT_BYTES = 8;
+    private static final int BOXED_BYTES = 16;
+    private static final int OBJECT_BYTES = 40;
+
+    private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+    private static volatile long maxBytes = DEFAULT_MAX_BYTES;
+
+    // Cached results in least-recently-used order (guarded by the class lock)
+    private static final LinkedHashMap<CacheKey, CacheEntry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    // Keys of the cached results that read each table, by "database|table" (guarded by the class lock)
+    private static final Map<String, Set<CacheKey>> keysByTable = new HashMap<>();
+    private static long currentBytes = 0;
+
+    // Bumped on every invalidation, so a read that overlapped a write is not cached
+    private static final AtomicLong invalidations = new AtomicLong();
+
+    // Writes made inside a still-open transaction, by connection, to invalidate again when it ends
+    private static final Map<Connection, Set<String>> pendingWrites = new ConcurrentHashMap<>();
+
+    // Connections with a commit listener added by this class (weak, so closed connections are not kept)
+    private static final Set<Connection> listened = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    // Tables changed by triggers when another table is written to, by lower-case table name
+    private static final Map<String, Set<String>> dependentTables = new ConcurrentHashMap<>();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    /**
+     * Identifies a cached result: database, SQL text and parameter values
+     */
+    private record CacheKey(String database, String query, Object[] params) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof CacheKey key
+                    && database.equals(key.database)
+                    && query.equals(key.query)
+                    && Arrays.deepEquals(params, key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * database.hashCode() + query.hashCode()) + Arrays.deepHashCode(params);
+        }
+    }
+
+    /**
+     * A cached result, the tables it was read from, and its estimated size
+     */
+    private record CacheEntry(CachedRows rows, Set<String> tables, long bytes) { }
+
+    /**
+     * Rows read from a ResultSet: a copy of its metadata and the values of every row, one after another
+     * in a single array (row r, column c is at r * columnCount + c)
+     */
+    private static final class CachedRows {
+        private final ResultSetMetaData metaData;
+        private final int columnCount;
+        private final Map<String, Integer> columnIndex = new HashMap<>();
+        private Object[] values;
+        private int rowCount;
+        private long bytes;
+        private boolean complete;
+
+        private CachedRows(ResultSetMetaData source) throws SQLException {
+            columnCount = source.getColumnCount();
+            RowSetMetaDataImpl copy = new RowSetMetaDataImpl();
+            copy.setColumnCount(columnCount);
+            for (int i = 1; i <= columnCount; i++) {
+                copy.setColumnLabel(i, source.getColumnLabel(i));
+                copy.setColumnName(i, source.getColumnName(i));
+                copy.setColumnType(i, source.getColumnType(i));
+                copy.setColumnTypeName(i, source.getColumnTypeName(i));
+                columnIndex.putIfAbsent(source.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+            }
+            metaData = copy;
+            values = new Object[Math.max(1, columnCount) * 16];
+        }
+
+        private Object value(int row, int column) throws SQLException {
+            if (column < 1 || column > columnCount) {
+                throw new SQLException("Column index out of range: " + column);
+            }
+            return values[row * columnCount + column - 1];
+        }
+
+        private int findColumn(String label) throws SQLException {
+            Integer index = columnIndex.get(label.toLowerCase(Locale.ROOT));
+            if (index == null) {
+                throw new SQLException("No such column: " + label);
+            }
+            return index;
+        }
+    }
+
+    /*****************************************************************/
+    /*                       SETTINGS                                */
+    /*****************************************************************/
+
+    /**
+     * @return boolean true if query results are being cached
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns the cache on or off (turning it off empties it)
+     * @param on true to cache query results
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+        if (!on) {
+            clear();
+        }
+    }
+
+    /**
+     * Checks whether results of a query should go through the cache: the cache must be on,
+     * the connection must not be inside a transaction, and the statement must be a plain read
+     * (SELECT or WITH) that gives the same rows each time it runs
+     * @param conn Connection the query will run on
+     * @param query SQL text
+     * @param params Object array containing parameter values (may be null)
+     * @return boolean true if the result may be cached
+     */
+    public static boolean isCacheable(Connection conn, String query, Object[] params) {
+        if (!enabled || inTransaction(conn)) {
+            return false;
+        }
+        String start = query.stripLeading();
+        if (!start.regionMatches(true, 0, "SELECT", 0, 6) && !start.regionMatches(true, 0, "WITH", 0, 4)) {
+            return false;
+        }
+        if (NON_DETERMINISTIC.matcher(query).find()) {
+            return false;
+        }
+        if (params != null) {
+            for (Object value : params) {
+                if (value instanceof String text && text.equalsIgnoreCase("now")) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Declares that writes to one table also change another (e.g. through a trigger), so cached
+     * results that read the dependent table are removed too
+     * @param table Table that is written to
+     * @param dependentTable Table changed as a result
+     */
+    public static void addDependentTable(String table, String dependentTable) {
+        dependentTables.computeIfAbsent(table.toLowerCase(Locale.ROOT), t -> ConcurrentHashMap.newKeySet())
+                .add(dependentTable.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Sets the memory budget, evicting results if the cache is now over it
+     * @param bytes Maximum estimated size of all cached results
+     */
+    public static synchronized void setMaxBytes(long bytes) {
+        maxBytes = bytes;
+        evictToBudget();
+    }
+
+    /*****************************************************************/
+    /*                       READS                                   */
+    /*****************************************************************/
+
+    /**
+     * Returns a cached result for the query, if there is one
+     * @param conn Connection the query would run on
+     * @param query SQL query
+     * @param params Object array containing parameter values (may be null)
+     * @return ResultSet positioned before the first row, or null if the result is not cached
+     */
+    public static ResultSet lookup(Connection conn, String query, Object[] params) {
+        CacheKey key = new CacheKey(databaseOf(conn), query, params == null ? null : params.clone());
+        CacheEntry entry;
+        synchronized (DBResultCache.class) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return view(entry.rows(), null, detachedStatement(conn));
+    }
+
+    /**
+     * Marks the start of a query whose result may be stored, so that store() can tell
+     * whether a write happened while it was running
+     * @return long token to pass to store()
+     */
+    public static long beginRead() {
+        return invalidations.get();
+    }
+
+    /**
+     * Reads the ResultSet into memory and caches it (if it fits and no write overlapped the read).
+     * Reading stops once the rows go over the memory budget: the result is then not cached, and the
+     * ResultSet returned gives the rows read so far and then the rest of the original ResultSet.
+     * @param conn Connection the query ran on
+     * @param query SQL query
+     * @param params Object array containing parameter values (may be null)
+     * @param resultSet ResultSet returned by the query
+     * @param readToken Value returned by beginRead() before the query ran
+     * @return ResultSet positioned before the first row, or null if reading failed part way (the original
+     *         ResultSet is then closed, and the query must be run again)
+     */
+    public static ResultSet store(Connection conn, String query, Object[] params, ResultSet resultSet, long readToken) {
+        if (resultSet == null) {
+            return null;
+        }
+        CachedRows rows;
+        try {
+            rows = readRows(resultSet, maxBytes);
+            if (!rows.complete) {
+                return view(rows, resultSet, resultSet.getStatement());
+            }
+            resultSet.close();
+        } catch (SQLException e) {
+            System.err.println("Result cache error: " + e.getMessage());
+            try {
+                resultSet.close();
+            } catch (SQLException ignored) {
+                // The query is run again, so a failed close changes nothing
+            }
+            return null;
+        }
+
+        synchronized (DBResultCache.class) {
+            if (rows.bytes <= maxBytes && invalidations.get() == readToken) {
+                String database = databaseOf(conn);
+                CacheKey key = new CacheKey(database, query, params == null ? null : params.clone());
+                Set<String> tables = tablesOf(database, query);
+                CacheEntry previous = entries.put(key, new CacheEntry(rows, tables, rows.bytes));
+                if (previous != null) {
+                    currentBytes -= previous.bytes();
+                }
+                currentBytes += rows.bytes;
+                for (String table : tables) {
+                    keysByTable.computeIfAbsent(table, t -> new HashSet<>()).add(key);
+                }
+                evictToBudget();
+            }
+        }
+        return view(rows, null, detachedStatement(conn));
+    }
+
+    /*****************************************************************/
+    /*                       INVALIDATION                            */
+    /*****************************************************************/
+
+    /**
+     * Removes the cached results of every table the write statement touches.
+     * If no table name can be found in the statement, the whole cache for the database is emptied.
+     * @param conn Connection the write ran on
+     * @param query SQL INSERT, UPDATE, DELETE or DDL statement
+     */
+    public static void invalidate(Connection conn, String query) {
+        if (!enabled) {
+            return;
+        }
+        if (inTransaction(conn) && listenForCommit(conn)) {
+            pendingWrites.computeIfAbsent(conn, c -> ConcurrentHashMap.newKeySet()).add(query);
+        }
+        invalidate(databaseOf(conn), query);
+    }
+
+    /**
+     * Removes the cached results of the tables a write statement touches, in one database
+     */
+    private static void invalidate(String database, String query) {
+        invalidations.incrementAndGet();
+        Set<String> tables = tablesOf(database, query);
+
+        synchronized (DBResultCache.class) {
+            if (tables.isEmpty()) {
+                removeIf(key -> key.database().equals(database));
+                return;
+            }
+            for (String table : tables) {
+                Set<CacheKey> keys = keysByTable.remove(table);
+                if (keys != null) {
+                    for (CacheKey key : keys) {
+                        removeEntry(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every cached result of the connection's database, for writes whose tables are not known
+     * (e.g. an SQL script). Inside a transaction it is done again when the transaction ends.
+     * @param conn Connection the writes ran on
+     */
+    public static void invalidateAll(Connection conn) {
+        // A statement with no table names empties the whole cache for the database
+        invalidate(conn, "");
+    }
+
+    /**
+     * Invalidates the writes a connection made in the transaction that has just ended.
+     * Other connections may have cached the tables' old rows while it was open.
+     */
+    private static void endTransaction(Connection conn) {
+        Set<String> queries = pendingWrites.remove(conn);
+        if (queries != null && enabled) {
+            String database = databaseOf(conn);
+            for (String query : queries) {
+                invalidate(database, query);
+            }
+        }
+    }
+
+    /**
+     * Adds a commit listener to an SQLite connection, once, so endTransaction() runs when its
+     * transactions commit or roll back
+     * @return boolean true if the connection has a listener
+     */
+    private static boolean listenForCommit(Connection conn) {
+        if (listened.contains(conn)) {
+            return true;
+        }
+        try {
+            SQLiteConnection sqlite = conn.unwrap(SQLiteConnection.class);
+            synchronized (listened) {
+                if (listened.add(conn)) {
+                    sqlite.addCommitListener(new SQLiteCommitListener() {
+                        @Override
+                        public void onCommit() {
+                            endTransaction(conn);
+                        }
+
+                        @Override
+                        public void onRollback() {
+                            endTransaction(conn);
+                        }
+                    });
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            // Not an SQLite connection: writes are only invalidated when they run
+            return false;
+        }
+    }
+
+    /**
+     * Empties the cache
+     */
+    public static synchronized void clear() {
+        invalidations.incrementAndGet();
+        pendingWrites.clear();
+        entries.clear();
+        keysByTable.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * Prints the cache size and hit/miss counters
+     */
+    public static synchronized void printStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        System.out.println("Result cache entries: " + entries.size()
+                + String.format(", size: %.1f KB of %.1f KB", currentBytes / 1024.0, maxBytes / 1024.0)
+                + ", hits: " + h
+                + ", misses: " + m
+                + String.format(", hit rate: %.1f%%", (h + m) == 0 ? 0.0 : 100.0 * h / (h + m)));
+    }
+
+    /*****************************************************************/
+    /*                       UTILITY METHODS                         */
+    /*****************************************************************/
+
+    /**
+     * Finds the table names in a statement, as "database|table" keys
+     * @param database Database the statement runs against
+     * @param query SQL text
+     * @return Set of table keys (lower case)
+     */
+    static Set<String> tablesOf(String database, String query) {
+        Set<String> tables = new HashSet<>();
+        Matcher matcher = TABLE_NAME.matcher(query);
+        while (matcher.find()) {
+            String name = (matcher.group(1) != null ? matcher.group(1) : matcher.group(2)).toLowerCase(Locale.ROOT);
+            tables.add(database + "|" + name);
+            for (String dependent : dependentTables.getOrDefault(name, Set.of())) {
+                tables.add(database + "|" + dependent);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * @param conn Connection object
+     * @return boolean true if auto-commit is off (or cannot be read), i.e. a transaction may be open
+     */
+    private static boolean inTransaction(Connection conn) {
+        try {
+            return !conn.getAutoCommit();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @param conn Connection object
+     * @return String URL of the database the connection is open on
+     */
+    private static String databaseOf(Connection conn) {
+        try {
+            return conn.getMetaData().getURL();
+        } catch (SQLException e) {
+            return String.valueOf(System.identityHashCode(conn));
+        }
+    }
+
+    /**
+     * Evicts least recently used results until the cache is within its memory budget
+     */
+    private static void evictToBudget() {
+        Iterator<Map.Entry<CacheKey, CacheEntry>> it = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            Map.Entry<CacheKey, CacheEntry> eldest = it.next();
+            it.remove();
+            forget(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * Removes every cached result whose key matches
+     */
+    private static void removeIf(java.util.function.Predicate<CacheKey> matches) {
+        Iterator<Map.Entry<CacheKey, CacheEntry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<CacheKey, CacheEntry> entry = it.next();
+            if (matches.test(entry.getKey())) {
+                it.remove();
+                forget(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Removes one cached result
+     */
+    private static void removeEntry(CacheKey key) {
+        CacheEntry entry = entries.remove(key);
+        if (entry != null) {
+            forget(key, entry);
+        }
+    }
+
+    /**
+     * Updates the size and table index after a result has left the cache
+     */
+    private static void forget(CacheKey key, CacheEntry entry) {
+        currentBytes -= entry.bytes();
+        for (String table : entry.tables()) {
+            Set<CacheKey> keys = keysByTable.get(table);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByTable.remove(table);
+                }
+            }
+        }
+    }
+
+    /*****************************************************************/
+    /*                       ROW STORAGE                             */
+    /*****************************************************************/
+
+    /**
+     * Reads rows from a ResultSet until it ends or their estimated size goes over the budget
+     * @param resultSet ResultSet to read (left on the last row read if the budget was reached)
+     * @param budget Maximum estimated size in bytes
+     * @return CachedRows holding the rows read (complete is false if more rows may follow)
+     * @throws SQLException if the rows cannot be read
+     */
+    private static CachedRows readRows(ResultSet resultSet, long budget) throws SQLException {
+        CachedRows rows = new CachedRows(resultSet.getMetaData());
+        int columnCount = rows.columnCount;
+        int size = 0;
+        while (rows.bytes <= budget) {
+            if (!resultSet.next()) {
+                rows.complete = true;
+                break;
+            }
+            if (size + columnCount > rows.values.length) {
+                rows.values = Arrays.copyOf(rows.values, Math.max(rows.values.length * 2, size + columnCount));
+            }
+            for (int i = 1; i <= columnCount; i++) {
+                Object value = resultSet.getObject(i);
+                rows.values[size++] = value;
+                rows.bytes += estimateBytes(value);
+            }
+            rows.rowCount++;
+        }
+        if (rows.complete) {
+            rows.values = Arrays.copyOf(rows.values, size);
+        }
+        return rows;
+    }
+
+    /**
+     * Estimates the memory used by one cached value, including its slot in the row array
+     */
+    private static long estimateBytes(Object value) {
+        if (value instanceof String text) {
+            return SLOT_BYTES + OBJECT_BYTES + 2L * text.length();
+        } else if (value instanceof byte[] data) {
+            return SLOT_BYTES + BOXED_BYTES + data.length;
+        }
+        return SLOT_BYTES + (value == null ? 0 : BOXED_BYTES);
+    }
+
+    /**
+     * Creates a ResultSet over cached rows. Closing it does not touch the rows it shares with the cache.
+     * Only column getters with a simple return type (Object, String, numbers, boolean, byte[], BigDecimal)
+     * are supported on cached rows.
+     * @param rows Rows to read
+     * @param rest ResultSet to continue with after the cached rows (null if the rows are complete)
+     * @param statement Statement returned by getStatement()
+     * @return ResultSet positioned before the first row
+     */
+    private static ResultSet view(CachedRows rows, ResultSet rest, Statement statement) {
+        InvocationHandler handler = new InvocationHandler() {
+            private int row = -1;
+            private boolean closed;
+            private boolean wasNull;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, name, args);
+                }
+                switch (name) {
+                    case "close":
+                        closed = true;
+                        if (rest != null) {
+                            rest.close();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "getStatement":
+                        return statement;
+                    case "getMetaData":
+                        return rows.metaData;
+                    case "unwrap":
+                        if (((Class<?>) args[0]).isInstance(proxy)) {
+                            return proxy;
+                        }
+                        throw new SQLException("Not a wrapper for " + args[0]);
+                    case "isWrapperFor":
+                        return ((Class<?>) args[0]).isInstance(proxy);
+                    default:
+                        break;
+                }
+                if (closed) {
+                    throw new SQLException("ResultSet is closed");
+                }
+                if (row >= rows.rowCount && rest != null) {
+                    // Past the cached rows: everything else is answered by the live ResultSet
+                    try {
+                        return method.invoke(rest, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+                switch (name) {
+                    case "next":
+                        if (row < rows.rowCount) {
+                            row++;
+                        }
+                        return row < rows.rowCount || (rest != null && rest.next());
+                    case "findColumn":
+                        return rows.findColumn((String) args[0]);
+                    case "wasNull":
+                        return wasNull;
+                    case "isBeforeFirst":
+                        return row < 0 && rows.rowCount > 0;
+                    case "getRow":
+                        return row >= 0 && row < rows.rowCount ? row + 1 : 0;
+                    case "getType":
+                        return ResultSet.TYPE_FORWARD_ONLY;
+                    case "getConcurrency":
+                        return ResultSet.CONCUR_READ_ONLY;
+                    case "getFetchSize":
+                        return 0;
+                    case "setFetchSize":
+                    case "clearWarnings":
+                    case "getWarnings":
+                        return null;
+                    default:
+                        break;
+                }
+                if (name.startsWith("get") && args != null && args.length == 1
+                        && (args[0] instanceof Integer || args[0] instanceof String)) {
+                    if (row < 0 || row >= rows.rowCount) {
+                        throw new SQLException("No current row");
+                    }
+                    int column = args[0] instanceof Integer index ? index : rows.findColumn((String) args[0]);
+                    Object value = rows.value(row, column);
+                    wasNull = value == null;
+                    return convert(value, method.getReturnType());
+                }
+                throw new SQLFeatureNotSupportedException(name + " is not supported on cached rows");
+            }
+        };
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, handler);
+    }
+
+    /**
+     * Converts a cached value to the return type of the getter called, as SQLite's driver would
+     * (NULL becomes 0 or false for primitives)
+     */
+    private static Object convert(Object value, Class<?> type) throws SQLException {
+        if (type == Object.class) {
+            return value;
+        }
+        if (type == String.class) {
+            return value == null ? null
+                    : value instanceof byte[] data ? new String(data, StandardCharsets.UTF_8) : value.toString();
+        }
+        if (type == byte[].class) {
+            return value == null ? null
+                    : value instanceof byte[] data ? data : value.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        if (type == BigDecimal.class) {
+            return value == null ? null : new BigDecimal(value.toString());
+        }
+        double number = numberOf(value);
+        if (type == long.class) {
+            return value instanceof Number n && !(value instanceof Double) ? n.longValue() : (long) number;
+        } else if (type == int.class) {
+            return value instanceof Number n && !(value instanceof Double) ? n.intValue() : (int) number;
+        } else if (type == short.class) {
+            return (short) number;
+        } else if (type == byte.class) {
+            return (byte) number;
+        } else if (type == double.class) {
+            return number;
+        } else if (type == float.class) {
+            return (float) number;
+        } else if (type == boolean.class) {
+            return number != 0;
+        }
+        throw new SQLFeatureNotSupportedException("Getter returning " + type.getSimpleName() + " is not supported on cached rows");
+    }
+
+    /**
+     * @return double numeric value of a cached value (0 for NULL, and for text that is not a number)
+     */
+    private static double numberOf(Object value) {
+        if (value instanceof Number n) {
+            return n.doubleValue();
+        }
+        if (value == null) {
+            return 0;
+        }
+        String text = value instanceof byte[] data ? new String(data, StandardCharsets.UTF_8) : value.toString();
+        try {
+            return Double.parseDouble(text.strip());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Creates the Statement returned by getStatement() of a cached result, so callers that close the
+     * statement of a query's ResultSet can do so whether or not the rows came from the cache
+     * @param conn Connection the query was run on
+     * @return Statement that only supports close(), isClosed() and getConnection()
+     */
+    private static Statement detachedStatement(Connection conn) {
+        boolean[] closed = {false};
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method.getName(), args);
+            }
+            switch (method.getName()) {
+                case "close":
+                    closed[0] = true;
+                    return null;
+                case "isClosed":
+                    return closed[0];
+                case "getConnection":
+                    return conn;
+                default:
+                    throw new SQLFeatureNotSupportedException(method.getName() + " is not supported on a cached result's statement");
+            }
+        };
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                new Class<?>[] {Statement.class}, handler);
+    }
+
+    /**
+     * Answers equals(), hashCode() and toString() for a proxy by identity
+     */
+    private static Object objectMethod(Object proxy, String name, Object[] args) {
+        switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "DBResultCache$" + Integer.toHexString(System.identityHashCode(proxy));
+        }
+    }
+}
@@ -0,0 +1,364 @@
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is used to record every statement run through DBCommand and DBAsyncCommand, so the workload can be replayed
+ * later with DBWorkloadReplay (e.g. against a copy of a production database, to compare pool,
+ * pragma or index changes under realistic traffic).
+ *
+ * While recording is on, the query and update methods of DBCommand (including streamQuery() and
+ * executeBatchUpdate(), which records each chunk of rows as one event) and of DBAsyncCommand (when the
+ * statement is submitted) hand each statement to record(), which appends it to a binary log with
+ * the time since recording started and the ID of the thread that ran it. The log is kept compact:
+ * each distinct SQL text is written once and then referred to by number, and numbers and times
+ * (as the gap since the event before) are written as variable-length integers, so a typical event
+ * takes around ten bytes plus its parameters. Statements run with a StatementBinder are recorded
+ * without parameters, as a lambda's values cannot be read back, and are skipped on replay.
+ *
+ * Turn recording on with -Ddbs1.recordWorkload=path/to/file.wlog or start(path), and call stop()
+ * to flush and close the log.
+ * @since 16/10/2026
+ * @see DBWorkloadReplay
+ */
+public final class DBWorkloadRecorder {
+
+    // System property naming the log file to record into
+    public static final String RECORD_PROPERTY = "dbs1.recordWorkload";
+
+    // First bytes of a log file, and its format version
+    private static final int MAGIC = 0x44425757;
+    private static final int VERSION = 2;
+
+    // Version 1 logs (no STREAM_QUERY or BATCH_UPDATE events, no row values) can still be read
+    private static final int FIRST_READABLE_VERSION = 1;
+
+    // Entry tags: a new SQL text, or a statement run
+    private static final int ENTRY_SQL = 1;
+    private static final int ENTRY_EVENT = 2;
+
+    // Type tags of recorded parameter values
+    private static final int VALUE_NULL = 0;
+    private static final int VALUE_LONG = 1;
+    private static final int VALUE_DOUBLE = 2;
+    private static final int VALUE_TEXT = 3;
+    private static final int VALUE_BYTES = 4;
+    private static final int VALUE_TRUE = 5;
+    private static final int VALUE_FALSE = 6;
+    private static final int VALUE_ROW = 7;
+
+    // Parameter counts are written plus one, so that 0 can mean "set by a StatementBinder"
+    private static final int UNKNOWN_PARAMS = -1;
+
+    /**
+     * The DBCommand method a statement was run through (new kinds go at the end, as the log stores the ordinal).
+     * Asynchronous statements are recorded as the matching DBCommand kind.
+     */
+    public enum Kind { QUERY, UPDATE, PREPARED_QUERY, PREPARED_UPDATE, STREAM_QUERY, BATCH_UPDATE }
+
+    /**
+     * One recorded statement
+     * @param offsetNanos Time since recording started
+     * @param threadId ID of the thread that ran the statement
+     * @param kind DBCommand method it was run through
+     * @param query SQL text
+     * @param params Parameter values, or null if they were set by a StatementBinder
+     *        (for BATCH_UPDATE, one Object array of parameter values per row of the chunk)
+     */
+    public record Event(long offsetNanos, long threadId, Kind kind, String query, Object[] params) { }
+
+    // Open log (guarded by the class lock), or null when not recording
+    private static DataOutputStream out;
+    private static volatile boolean recording;
+    private static Path logFile;
+    private static long lastNanos;
+    private static long eventCount;
+    private static final Map<String, Integer> sqlIds = new HashMap<>();
+
+    static {
+        String file = System.getProperty(RECORD_PROPERTY);
+        if (file != null && !file.isBlank()) {
+            start(Path.of(file));
+        }
+    }
+
+    private DBWorkloadRecorder() {
+    }
+
+    /*****************************************************************/
+    /*                       RECORDING                               */
+    /*****************************************************************/
+
+    /**
+     * @return boolean true if statements are being recorded
+     */
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Starts recording into a new log file (stopping any recording in progress)
+     * @param file Path of the log file (replaced if it exists)
+     * @return boolean true if recording started
+     */
+    public static synchronized boolean start(Path file) {
+        stop();
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+        } catch (IOException e) {
+            System.err.println("Could not start recording to " + file + ": " + e.getMessage());
+            out = null;
+            return false;
+        }
+        logFile = file;
+        lastNanos = System.nanoTime();
+        eventCount = 0;
+        sqlIds.clear();
+        recording = true;
+        return true;
+    }
+
+    /**
+     * Stops recording, flushing and closing the log
+     * @return long number of statements recorded (0 if nothing was being recorded)
+     */
+    public static synchronized long stop() {
+        if (out == null) {
+            return 0;
+        }
+        recording = false;
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Could not close workload log " + logFile + ": " + e.getMessage());
+        }
+        out = null;
+        System.out.println("Recorded " + eventCount + " statements (" + sqlIds.size() + " distinct) to " + logFile);
+        return eventCount;
+    }
+
+    /**
+     * Appends a statement to the log (does nothing unless recording is on)
+     * @param kind DBCommand method the statement is run through
+     * @param query SQL text
+     * @param params Object array containing parameter values (null if set by a StatementBinder)
+     */
+    public static void record(Kind kind, String query, Object[] params) {
+        if (!recording) {
+            return;
+        }
+        long threadId = Thread.currentThread().threadId();
+        synchronized (DBWorkloadRecorder.class) {
+            if (out == null) {
+                return;
+            }
+            // Time is taken inside the lock, so gaps between events are never negative
+            long now = System.nanoTime();
+            try {
+                Integer id = sqlIds.get(query);
+                if (id == null) {
+                    id = sqlIds.size();
+                    sqlIds.put(query, id);
+                    byte[] text = query.getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(out, ENTRY_SQL);
+                    writeVarLong(out, text.length);
+                    out.write(text);
+                }
+                writeVarLong(out, ENTRY_EVENT);
+                writeVarLong(out, now - lastNanos);
+                writeVarLong(out, threadId);
+                out.writeByte(kind.ordinal());
+                writeVarLong(out, id);
+                writeVarLong(out, params == null ? 0 : params.length - (long) UNKNOWN_PARAMS);
+                if (params != null) {
+                    for (Object value : params) {
+                        writeValue(out, value);
+                    }
+                }
+                lastNanos = now;
+                eventCount++;
+            } catch (IOException e) {
+                System.err.println("Workload recording stopped: " + e.getMessage());
+                recording = false;
+            }
+        }
+    }
+
+    /*****************************************************************/
+    /*                       READING                                 */
+    /*****************************************************************/
+
+    /**
+     * Reads every event in a log file
+     * @param file Path of a log written by this class
+     * @return List of Event in the order they were recorded, or null if the file cannot be read
+     */
+    public static List<Event> read(Path file) {
+        List<Event> events = new ArrayList<>();
+        List<String> sql = new ArrayList<>();
+        Kind[] kinds = Kind.values();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version < FIRST_READABLE_VERSION || version > VERSION) {
+                System.err.println("Not a workload log (or a different version): " + file);
+                return null;
+            }
+            in.readLong();
+            long offset = 0;
+            while (true) {
+                int tag = in.read();
+                if (tag == -1) {
+                    break;
+                }
+                if (tag == ENTRY_SQL) {
+                    byte[] text = new byte[(int) readVarLong(in)];
+                    in.readFully(text);
+                    sql.add(new String(text, StandardCharsets.UTF_8));
+                } else if (tag == ENTRY_EVENT) {
+                    offset += readVarLong(in);
+                    long threadId = readVarLong(in);
+                    Kind kind = kinds[in.readUnsignedByte()];
+                    String query = sql.get((int) readVarLong(in));
+                    int count = (int) readVarLong(in) + UNKNOWN_PARAMS;
+                    Object[] params = count < 0 ? null : new Object[count];
+                    for (int i = 0; i < count; i++) {
+                        params[i] = readValue(in);
+                    }
+                    events.add(new Event(offset, threadId, kind, query, params));
+                } else {
+                    throw new IOException("Unknown entry " + tag + " after " + events.size() + " events");
+                }
+            }
+        } catch (EOFException e) {
+            // A log cut short (e.g. the recording process was killed) is read up to its last whole event
+            System.err.println("Workload log ends part way through an event: " + file);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not read workload log " + file + ": " + e.getMessage());
+            return null;
+        }
+        return events;
+    }
+
+    /*****************************************************************/
+    /*                       ENCODING                                */
+    /*****************************************************************/
+
+    /**
+     * Writes a parameter value with a type tag (values of other types are written as text)
+     */
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(VALUE_LONG);
+            // Zig-zag, so small negative numbers stay short
+            long v = ((Number) value).longValue();
+            writeVarLong(out, (v << 1) ^ (v >> 63));
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? VALUE_TRUE : VALUE_FALSE);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.writeByte(VALUE_BYTES);
+            writeVarLong(out, bytes.length);
+            out.write(bytes);
+        } else if (value instanceof Object[]) {
+            // A row of a batch
+            Object[] row = (Object[]) value;
+            out.writeByte(VALUE_ROW);
+            writeVarLong(out, row.length);
+            for (Object item : row) {
+                writeValue(out, item);
+            }
+        } else {
+            byte[] text = value.toString().getBytes(StandardCharsets.UTF_8);
+            out.writeByte(VALUE_TEXT);
+            writeVarLong(out, text.length);
+            out.write(text);
+        }
+    }
+
+    /**
+     * @return Object value written by writeValue()
+     */
+    private static Object readValue(DataInputStream in) throws IOException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_LONG:
+                long v = readVarLong(in);
+                return (v >>> 1) ^ -(v & 1);
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_BYTES:
+            case VALUE_TEXT:
+                byte[] bytes = new byte[(int) readVarLong(in)];
+                in.readFully(bytes);
+                return type == VALUE_BYTES ? bytes : new String(bytes, StandardCharsets.UTF_8);
+            case VALUE_ROW:
+                Object[] row = new Object[(int) readVarLong(in)];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = readValue(in);
+                }
+                return row;
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    /**
+     * Writes a non-negative number 7 bits at a time, low bits first
+     */
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * @return long number written by writeVarLong()
+     */
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number in workload log");
+    }
+}
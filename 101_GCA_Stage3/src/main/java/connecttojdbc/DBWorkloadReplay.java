@@ -0,0 +1,287 @@
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * This class is used to replay a workload recorded by DBWorkloadRecorder and measure how the database
+ * copes with it, e.g. before and after a pool, pragma or index change.
+ *
+ * The database file is copied first (with its -wal file, if any) and the statements run against the
+ * copy, so updates in the workload never touch the original. Statements are run through DBCommand on
+ * connections borrowed from a pool of the given size, by that many worker threads. Each worker takes
+ * the next statement in recorded order, waits until it is due and runs it. At speed 1 statements are
+ * due at the same times as when they were recorded, at speed N the gaps are N times shorter, and at
+ * speed 0 (max) nothing waits. Statements from one recorded thread may run on different workers, so
+ * only their start order is kept.
+ *
+ * Two latencies are reported: service time (borrowing a connection, running the statement and reading
+ * its rows) and response time, measured from when the statement was due. When the workers cannot keep
+ * up, statements start late and response time shows the queueing that service time hides.
+ * Run it from the command line with:
+ * <pre>
+ *   java DBWorkloadReplay workload.wlog src/main/resources/db/sample_database.sqlite [speed|max] [threads]
+ * </pre>
+ * @since 16/10/2026
+ * @see DBWorkloadRecorder
+ */
+public final class DBWorkloadReplay {
+
+    // Defaults for the command line
+    public static final double DEFAULT_SPEED = 1.0;
+    public static final int DEFAULT_THREADS = DBConnectionPool.DEFAULT_MAX_SIZE;
+
+    /**
+     * The results of one replay
+     * @param events Number of statements in the workload
+     * @param executed Number of statements run without error
+     * @param failed Number of statements that failed
+     * @param skipped Number of statements that could not be replayed (parameters set by a StatementBinder)
+     * @param wallNanos Time from the first statement starting to the last one finishing
+     * @param serviceTime LatencyHistogram of the time each statement took to run, in nanoseconds
+     * @param responseTime LatencyHistogram of the time from each statement being due to it finishing, in nanoseconds
+     */
+    public record Report(int events, long executed, long failed, long skipped, long wallNanos,
+            LatencyHistogram serviceTime, LatencyHistogram responseTime) {
+
+        /**
+         * @return double statements finished per second
+         */
+        public double getThroughput() {
+            return wallNanos == 0 ? 0 : (executed + failed) * 1_000_000_000.0 / wallNanos;
+        }
+
+        /**
+         * Prints throughput and latency percentiles (in milliseconds)
+         * @param speed Speed the workload was replayed at (0 for max)
+         * @param threads Number of worker threads
+         */
+        public void print(double speed, int threads) {
+            System.out.println("\nReplay (speed " + (speed <= 0 ? "max" : speed + "x") + ", " + threads + " threads):");
+            System.out.printf("  %d statements: %d run, %d failed, %d skipped in %.3f s (%.1f statements/s)%n",
+                    events, executed, failed, skipped, wallNanos / 1_000_000_000.0, getThroughput());
+            System.out.println("  service time ms:  " + serviceTime.summary(1_000_000));
+            if (speed > 0) {
+                System.out.println("  response time ms: " + responseTime.summary(1_000_000));
+            }
+        }
+    }
+
+    private DBWorkloadReplay() {
+    }
+
+    /**
+     * Replays a recorded workload from the command line and prints the report
+     * @param args Log file, database file, speed (a number or "max", default 1) and threads (default 4)
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: DBWorkloadReplay <workload log> <database file> [speed|max] [threads]");
+            return;
+        }
+        double speed = args.length > 2 ? ("max".equalsIgnoreCase(args[2]) ? 0 : Double.parseDouble(args[2])) : DEFAULT_SPEED;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_THREADS;
+
+        List<DBWorkloadRecorder.Event> events = DBWorkloadRecorder.read(Path.of(args[0]));
+        if (events == null) {
+            return;
+        }
+        Report report = replay(events, args[1], speed, threads);
+        if (report != null) {
+            report.print(speed, threads);
+        }
+        DBConnectionPool.shutdownAll();
+    }
+
+    /**
+     * Replays a workload against a copy of a database file
+     * @param events Events read by DBWorkloadRecorder.read()
+     * @param dbFilePath Path to the SQLite database file to copy
+     * @param speed 1 for recorded timing, N for N times faster, 0 for as fast as possible
+     * @param threads Number of worker threads (and pooled connections)
+     * @return Report of the replay, or null if the database could not be copied
+     */
+    public static Report replay(List<DBWorkloadRecorder.Event> events, String dbFilePath, double speed, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        Path copy = copyDatabase(Path.of(dbFilePath));
+        if (copy == null) {
+            return null;
+        }
+        DBConnectionPool pool = DBConnectionPool.getPool(copy.toString(), threads,
+                DBConnectionPool.DEFAULT_IDLE_TIMEOUT_MILLIS);
+        pool.warmUp(threads);
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong executed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        LatencyHistogram serviceTime = new LatencyHistogram();
+        LatencyHistogram responseTime = new LatencyHistogram();
+        long start = System.nanoTime();
+
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                for (int index = next.getAndIncrement(); index < events.size(); index = next.getAndIncrement()) {
+                    DBWorkloadRecorder.Event event = events.get(index);
+                    if (event.params() == null && isPrepared(event.kind())) {
+                        skipped.incrementAndGet();
+                        continue;
+                    }
+                    long due = speed > 0 ? start + (long) (event.offsetNanos() / speed) : System.nanoTime();
+                    for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                        LockSupport.parkNanos(wait);
+                    }
+
+                    long begin = System.nanoTime();
+                    boolean ok = run(pool, event);
+                    long end = System.nanoTime();
+                    serviceTime.record(end - begin);
+                    responseTime.record(end - due);
+                    (ok ? executed : failed).incrementAndGet();
+                }
+            }, "replay-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        long wallNanos = System.nanoTime() - start;
+
+        pool.close();
+        deleteCopy(copy);
+        return new Report(events.size(), executed.get(), failed.get(), skipped.get(), wallNanos,
+                serviceTime, responseTime);
+    }
+
+    /**
+     * Runs one statement through the DBCommand method it was recorded from, reading every row of a query
+     * @return boolean true if the statement ran without error
+     */
+    private static boolean run(DBConnectionPool pool, DBWorkloadRecorder.Event event) {
+        Connection conn = pool.borrow();
+        if (conn == null) {
+            return false;
+        }
+        try {
+            switch (event.kind()) {
+                case UPDATE:
+                    return DBCommand.executeUpdate(conn, event.query()) >= 0;
+                case PREPARED_UPDATE:
+                    return DBCommand.executePreparedUpdate(conn, event.query(), event.params()) >= 0;
+                case QUERY:
+                    return drain(DBCommand.executeQuery(conn, event.query()), true);
+                case STREAM_QUERY:
+                    try (Stream<Boolean> rows = DBCommand.streamQuery(conn, event.query(), event.params(), rs -> true, 0)) {
+                        rows.forEach(row -> { });
+                        return true;
+                    } catch (UncheckedSQLException e) {
+                        System.err.println("Replay read error: " + e.getMessage());
+                        return false;
+                    }
+                case BATCH_UPDATE:
+                    List<Object[]> rows = new ArrayList<>(event.params().length);
+                    for (Object row : event.params()) {
+                        rows.add((Object[]) row);
+                    }
+                    for (int count : DBCommand.executeBatchUpdate(conn, event.query(), rows, Math.max(1, rows.size()))) {
+                        if (count < 0) {
+                            return false;
+                        }
+                    }
+                    return true;
+                default:
+                    return drain(DBCommand.executePreparedQuery(conn, event.query(), event.params()), false);
+            }
+        } finally {
+            pool.release(conn);
+        }
+    }
+
+    /**
+     * Reads every row of a result, then closes it
+     * @param resultSet ResultSet to read (null if the query failed)
+     * @param closeStatement true to close its statement too (false for cached prepared statements)
+     * @return boolean true if the rows were read
+     */
+    private static boolean drain(ResultSet resultSet, boolean closeStatement) {
+        if (resultSet == null) {
+            return false;
+        }
+        try {
+            Statement statement = closeStatement ? resultSet.getStatement() : null;
+            while (resultSet.next()) {
+                // Only the cost of stepping through the rows is measured
+            }
+            resultSet.close();
+            if (statement != null) {
+                statement.close();
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Replay read error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean isPrepared(DBWorkloadRecorder.Kind kind) {
+        return kind == DBWorkloadRecorder.Kind.PREPARED_QUERY || kind == DBWorkloadRecorder.Kind.PREPARED_UPDATE;
+    }
+
+    /*****************************************************************/
+    /*                       DATABASE COPY                           */
+    /*****************************************************************/
+
+    /**
+     * Copies a database file, and its -wal file if there is one, into a new temporary folder
+     * @return Path of the copy, or null if it could not be made
+     */
+    private static Path copyDatabase(Path source) {
+        try {
+            Path folder = Files.createTempDirectory("dbs1-replay");
+            Path copy = folder.resolve(source.getFileName());
+            Files.copy(source, copy, StandardCopyOption.COPY_ATTRIBUTES);
+            Path wal = source.resolveSibling(source.getFileName() + "-wal");
+            if (Files.exists(wal)) {
+                Files.copy(wal, folder.resolve(wal.getFileName()), StandardCopyOption.COPY_ATTRIBUTES);
+            }
+            return copy;
+        } catch (IOException e) {
+            System.err.println("Could not copy " + source + " for replay: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Deletes a copy made by copyDatabase() and the folder holding it
+     */
+    private static void deleteCopy(Path copy) {
+        try (var files = Files.list(copy.getParent())) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(copy.getParent());
+        } catch (IOException e) {
+            System.err.println("Could not delete replay copy " + copy + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,356 @@
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is used to send every write to an SQLite database through one dedicated writer thread.
+ * SQLite only allows one writer at a time, so instead of many threads competing for the lock
+ * (and failing with SQLITE_BUSY), callers submit their INSERT, UPDATE or DELETE and get a future.
+ *
+ * The writer thread groups the writes waiting in the queue into a single transaction (group commit),
+ * which is committed when maxBatchSize writes have been collected or maxDelayMillis has passed since
+ * the first one. Each write runs inside its own savepoint, so one failing write does not undo the
+ * others in its group. Futures complete with the write's own row count once the group is committed.
+ * If the database is locked by another process (SQLITE_BUSY, e.g. a reader under the rollback journal),
+ * the whole group is rolled back and retried a few times with a growing pause before it fails.
+ * @since 16/10/2026
+ * @see DBCommand
+ */
+public class DBWriteQueue implements AutoCloseable {
+
+    // Default number of writes committed together
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    // Default time the first write in a group waits for others to join it
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5;
+
+    // Maximum number of writes waiting in the queue before submit() blocks
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    // Placed on the queue by close() to stop the writer thread
+    private static final WriteOperation SHUTDOWN = new WriteOperation(null, null, null);
+
+    // Smallest busy_timeout given to the writer's connection, so SQLite itself waits out short locks
+    private static final int WRITER_BUSY_TIMEOUT_MILLIS = 5_000;
+
+    // Retries of a group that failed with SQLITE_BUSY, and the pause before the first retry (doubled each time)
+    private static final int MAX_BUSY_RETRIES = 5;
+    private static final long BUSY_RETRY_PAUSE_MILLIS = 20;
+
+    // SQLite primary result code for a locked database
+    private static final int SQLITE_BUSY = 5;
+
+    private final String dbFilePath;
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final BlockingQueue<WriteOperation> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writerThread;
+
+    private volatile boolean closed = false;
+
+    // Metrics
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder commitCount = new LongAdder();
+
+    /**
+     * A write waiting to be run, and the future its caller is waiting on
+     */
+    private record WriteOperation(String query, Object[] params, CompletableFuture<Integer> result) { }
+
+    /**
+     * Creates a write queue with the default group commit settings
+     * @param dbFilePath Path to the SQLite database file
+     */
+    public DBWriteQueue(String dbFilePath) {
+        this(dbFilePath, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * Creates a write queue and starts its writer thread
+     * @param dbFilePath Path to the SQLite database file
+     * @param maxBatchSize Maximum number of writes committed in one transaction
+     * @param maxDelayMillis Maximum time to wait for a group to fill before committing it
+     */
+    public DBWriteQueue(String dbFilePath, int maxBatchSize, long maxDelayMillis) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + maxBatchSize);
+        }
+        this.dbFilePath = dbFilePath;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = maxDelayMillis;
+
+        writerThread = new Thread(this::runWriter, "db-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues a parameterized INSERT, UPDATE or DELETE. Blocks only if the queue is full.
+     * @param query Parameterized SQL query
+     * @param params Object array containing parameter values (may be null)
+     * @return CompletableFuture holding the number of rows affected, completed after commit
+     */
+    public CompletableFuture<Integer> submit(String query, Object[] params) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        if (closed) {
+            result.completeExceptionally(new IllegalStateException("Write queue is closed"));
+            return result;
+        }
+        try {
+            queue.put(new WriteOperation(query, params, result));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Stops accepting writes, commits everything already queued and stops the writer thread
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(SHUTDOWN);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Prints the write queue metrics
+     */
+    public void printStats() {
+        long writes = writeCount.sum();
+        long commits = commitCount.sum();
+        System.out.println("Write queue [" + dbFilePath + "]"
+                + " writes: " + writes
+                + ", failed: " + failedCount.sum()
+                + ", commits: " + commits
+                + String.format(", avg writes per commit: %.1f", commits == 0 ? 0.0 : (double) writes / commits)
+                + ", queued: " + queue.size());
+    }
+
+    /*****************************************************************/
+    /*                       WRITER THREAD                           */
+    /*****************************************************************/
+
+    /**
+     * Main loop of the writer thread: collect a group of writes, run them, commit, repeat
+     */
+    private void runWriter() {
+        Connection conn = DBConnect.connect(dbFilePath);
+        if (conn != null) {
+            applyBusyTimeout(conn);
+        }
+        List<WriteOperation> group = new ArrayList<>(maxBatchSize);
+        boolean running = true;
+
+        while (running) {
+            group.clear();
+            try {
+                running = collectGroup(group);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+
+            if (!group.isEmpty()) {
+                if (conn == null) {
+                    for (WriteOperation op : group) {
+                        op.result().completeExceptionally(new SQLException("No database connection: " + dbFilePath));
+                    }
+                } else {
+                    try {
+                        commitGroup(conn, group);
+                    } catch (InterruptedException e) {
+                        failGroup(conn, group, e);
+                        running = false;
+                    } catch (Throwable e) {
+                        // Never let one bad group stop the writer thread, or every later write would hang
+                        failGroup(conn, group, e);
+                    }
+                }
+            }
+        }
+
+        // Fail anything that slipped in after shutdown (and refuse new writes if the thread was interrupted)
+        closed = true;
+        WriteOperation op;
+        while ((op = queue.poll()) != null) {
+            if (op != SHUTDOWN) {
+                op.result().completeExceptionally(new IllegalStateException("Write queue is closed"));
+            }
+        }
+        DBConnect.disconnect(conn);
+    }
+
+    /**
+     * Waits for the first write, then gathers more until the group is full or the delay has passed
+     * @param group List to fill with writes
+     * @return boolean false if the queue has been shut down
+     * @throws InterruptedException if the writer thread is interrupted
+     */
+    private boolean collectGroup(List<WriteOperation> group) throws InterruptedException {
+        WriteOperation op = queue.take();
+        if (op == SHUTDOWN) {
+            return false;
+        }
+        group.add(op);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        while (group.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            op = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (op == null) {
+                break;
+            }
+            if (op == SHUTDOWN) {
+                return false;
+            }
+            group.add(op);
+        }
+        return true;
+    }
+
+    /**
+     * Runs a group of writes in one transaction, each in its own savepoint, and completes their futures.
+     * If the database is busy the whole group is rolled back and run again, up to MAX_BUSY_RETRIES times.
+     * @param conn Connection owned by the writer thread
+     * @param group Writes to run
+     * @throws InterruptedException if the writer thread is interrupted while pausing between retries
+     */
+    private void commitGroup(Connection conn, List<WriteOperation> group) throws InterruptedException {
+        int[] counts = new int[group.size()];
+        SQLException[] errors = new SQLException[group.size()];
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                runGroup(conn, group, counts, errors);
+                commitCount.increment();
+                break;
+            } catch (SQLException e) {
+                rollbackQuietly(conn);
+                if (isBusy(e) && attempt < MAX_BUSY_RETRIES) {
+                    Thread.sleep(BUSY_RETRY_PAUSE_MILLIS << attempt);
+                    continue;
+                }
+                System.err.println("Group commit error: " + e.getMessage());
+                failGroup(conn, group, e);
+                return;
+            }
+        }
+
+        // Only report success once the group is durable (and cached reads of its tables are gone)
+        for (int i = 0; i < group.size(); i++) {
+            if (errors[i] == null) {
+                DBResultCache.invalidate(conn, group.get(i).query());
+            }
+        }
+        for (int i = 0; i < group.size(); i++) {
+            if (errors[i] != null) {
+                failedCount.increment();
+                group.get(i).result().completeExceptionally(errors[i]);
+            } else {
+                writeCount.increment();
+                group.get(i).result().complete(counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Runs every write of a group in one transaction and commits it. A write that fails is undone
+     * on its own (its error is kept in errors), unless the database is busy, which fails the group.
+     * @throws SQLException if the transaction cannot be run or committed
+     */
+    private void runGroup(Connection conn, List<WriteOperation> group, int[] counts, SQLException[] errors)
+            throws SQLException {
+        conn.setAutoCommit(false);
+        for (int i = 0; i < group.size(); i++) {
+            WriteOperation op = group.get(i);
+            errors[i] = null;
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                PreparedStatement prepStmt = PreparedStatementCache.prepare(conn, op.query());
+                DBParameterBinder.bind(prepStmt, op.params());
+                counts[i] = prepStmt.executeUpdate();
+                conn.releaseSavepoint(savepoint);
+            } catch (SQLException e) {
+                // Undo just this write and carry on with the rest of the group
+                conn.rollback(savepoint);
+                conn.releaseSavepoint(savepoint);
+                if (isBusy(e)) {
+                    throw e;
+                }
+                errors[i] = e;
+            }
+        }
+        conn.commit();
+    }
+
+    /**
+     * Rolls back whatever the group left behind and fails every future of the group not yet completed
+     * @param conn Connection owned by the writer thread
+     * @param group Writes of the failed group
+     * @param failure Cause passed to the futures
+     */
+    private void failGroup(Connection conn, List<WriteOperation> group, Throwable failure) {
+        rollbackQuietly(conn);
+        for (WriteOperation op : group) {
+            if (op.result().completeExceptionally(failure)) {
+                failedCount.increment();
+            }
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+            }
+        } catch (SQLException e) {
+            System.err.println("Rollback failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return boolean true if the error means another connection holds a lock on the database
+     */
+    private static boolean isBusy(SQLException e) {
+        // sqlite-jdbc reports extended result codes (e.g. SQLITE_BUSY_SNAPSHOT) in getErrorCode()
+        return (e.getErrorCode() & 0xFF) == SQLITE_BUSY;
+    }
+
+    /**
+     * Raises the connection's busy_timeout to WRITER_BUSY_TIMEOUT_MILLIS if the profile left it lower
+     * @param conn Connection owned by the writer thread
+     */
+    private static void applyBusyTimeout(Connection conn) {
+        try (Statement statement = conn.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("PRAGMA busy_timeout")) {
+                if (rs.next() && rs.getInt(1) >= WRITER_BUSY_TIMEOUT_MILLIS) {
+                    return;
+                }
+            }
+            statement.execute("PRAGMA busy_timeout = " + WRITER_BUSY_TIMEOUT_MILLIS);
+        } catch (SQLException e) {
+            System.err.println("Could not set busy_timeout for the writer: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+
+import java.time.LocalDate;
+
+/**
+ * This record is used to hold one row of the games table
+ * @since 16/10/2026
+ * @see RecordMapper
+ * @param gameId Unique ID of the game
+ * @param gameName Name of the game
+ * @param releaseDate Date the game was released
+ * @param genre Genre of the game
+ */
+public record Game(int gameId, String gameName, LocalDate releaseDate, String genre) {
+
+    // Maps rows with GameID, GameName, ReleaseDate and Genre columns to Game records
+    public static final RecordMapper<Game> MAPPER = RecordMapper.of(Game.class);
+}
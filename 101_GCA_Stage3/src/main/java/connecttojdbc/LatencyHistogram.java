@@ -0,0 +1,130 @@
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is used to record latencies and report percentiles, in the style of HdrHistogram.
+ * Values are counted in log-linear buckets (16 per power of two, so about 6% precision),
+ * which keeps memory fixed and recording lock-free no matter how many values are recorded.
+ * @since 16/10/2026
+ * @see DBQueryMetrics
+ */
+public class LatencyHistogram {
+
+    // Sub-buckets per power of two (4 bits of precision)
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Enough buckets for any positive long
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalValue = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Records one value
+     * @param value Value to record (e.g. nanoseconds); negative values are recorded as 0
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucketIndex(v));
+        totalCount.incrementAndGet();
+        totalValue.addAndGet(v);
+        maxValue.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * @return long number of values recorded
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return long largest value recorded
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * @return double mean of the values recorded
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalValue.get() / count;
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values fall
+     * @param percentile Percentile between 0 and 100
+     * @return long value at the percentile (the upper edge of its bucket, capped at the max)
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Clears all recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalValue.set(0);
+        maxValue.set(0);
+    }
+
+    /**
+     * @param scale Divisor to convert recorded values to the printed unit (e.g. 1_000_000 for ns to ms)
+     * @return String summary with count, mean and the usual percentiles
+     */
+    public String summary(double scale) {
+        return String.format("count=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f",
+                getCount(), getMean() / scale,
+                getValueAtPercentile(50) / scale, getValueAtPercentile(90) / scale,
+                getValueAtPercentile(99) / scale, getValueAtPercentile(99.9) / scale,
+                getMax() / scale);
+    }
+
+    /**
+     * Maps a value to its bucket: values below 16 get their own bucket, larger values
+     * share a bucket with others that have the same top 5 bits
+     */
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return long largest value that falls into the bucket
+     */
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -1,5 +1,15 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
 
 /**
  * Main class that demonstrates connecting to SQLite and executing queries
@@ -11,8 +21,11 @@ public class Main {
     // Path to the SQLite database file (relative to project root)
     private String dbFilePath = "src/main/resources/db/sample_database.sqlite";
     
-    // Store the connection to the DB
-    private Connection conn = null;
+    // Maximum time a single query may run
+    private static final long QUERY_TIMEOUT_MILLIS = 10_000;
+    
+    // Pool of open connections to the DB file, shared by testConnection() and start()
+    private DBConnectionPool pool = DBConnectionPool.getPool(dbFilePath);
     
     
     /*****************************************************************/
@@ -25,17 +38,52 @@ public class Main {
      */
     public static void main(String[] args) {
         
+        // Load the SQLite driver once, from the cached native library in fast-start mode (-Ddbs1.fastStart=true)
+        DBFastStart.start();
+        
         // Create Main
         Main theApp = new Main();
         
+        // Build a database from src/main/resources/sql when asked (-Ddbs1.importSql=true), and query it instead
+        // of the sample database (the file is target/imported_database.sqlite unless -Ddbs1.importTarget is set)
+        if (Boolean.getBoolean(DBImporter.IMPORT_PROPERTY)) {
+            System.out.println("\nImporting SQL and CSV files...\n");
+            theApp.importResources();
+        }
+        
+        // Open a connection up front so queries do not pay the setup cost
+        theApp.pool.warmUp(1);
+        
         // Test the connection
         System.out.println("\nTesting connection...\n");
         theApp.testConnection();
+        DBFastStart.markFirstQuery();
         
         // Create an instance of the Main class and run it
         System.out.println("\nRun queries...\n");
         theApp.start();
         
+        DBFastStart.printReport();
+        
+        if (DBWorkloadRecorder.isRecording()) {
+            // Flush the log of statements recorded with -Ddbs1.recordWorkload=file
+            DBWorkloadRecorder.stop();
+        }
+        
+        // Close all pooled connections
+        theApp.pool.printStats();
+        PreparedStatementCache.printStats();
+        if (DBResultCache.isEnabled()) {
+            DBResultCache.printStats();
+        }
+        if (DBQueryMetrics.isEnabled()) {
+            DBQueryMetrics.printSnapshot();
+        }
+        if (DBIndexAdvisor.isCapturing()) {
+            theApp.adviseIndexes();
+        }
+        DBConnectionPool.shutdownAll();
+        
         System.out.println("\nGoodbye...\n");
     }
       
@@ -44,26 +92,18 @@ public class Main {
      */
     public void start() { 
         
-        // Connect to SQLite DB
-        conn = DBConnect.connect(dbFilePath);
-        
-        try 
-        {
-            // Execute queries
-            printQueryHeader(1, "Simple SELECT Query");
-            executeSimpleSelectQuery();
-
-            printQueryHeader(2, "JOIN Query - Players, PlayerGames and Games");
-            executeJoinQuery();
-
-            printQueryHeader(3, "Prepared Statement Query - Games by Genre and Release Date");
-            executePreparedStatementQuery();
-        } 
-        finally 
-        {
-            // Disconnect from DB (ensure this happens even if an exception occurs)
-            DBConnect.disconnect(conn);           
+        // Queries come from src/main/resources/sql/queries.sql when it exists, otherwise the samples below
+        Path suiteFile = Path.of(DBQuerySuite.DEFAULT_SUITE_FILE);
+        DBQuerySuite suite = Files.exists(suiteFile) ? DBQuerySuite.load(suiteFile) : null;
+        if (suite == null) {
+            suite = sampleQueries();
         }
+        
+        // Fetching, formatting and printing overlap; results are still printed in order
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        long start = System.nanoTime();
+        List<DBQuerySuite.QueryTiming> timings = suite.run(pool, out, QUERY_TIMEOUT_MILLIS);
+        DBQuerySuite.printTimings(timings, System.nanoTime() - start);
     }
     
         
@@ -72,54 +112,95 @@ public class Main {
     /*****************************************************************/
         
     /**
-     * Execute a simple SELECT query and display the results
+     * The sample queries: a simple SELECT, a JOIN, and a query using a prepared statement
+     * @return DBQuerySuite of the sample queries
      */
-    private void executeSimpleSelectQuery() {
-        String query = "SELECT * FROM games";
-        
-        ResultSet resultSet = DBCommand.executeQuery(conn, query);
-        DBOutputFormatter.showGenericQueryResult("All table content", resultSet);
+    private DBQuerySuite sampleQueries() {
+        return new DBQuerySuite(List.of(
+                new DBQuerySuite.SuiteQuery("Simple SELECT Query",
+                        "SELECT * FROM games", new Object[0]),
+                new DBQuerySuite.SuiteQuery("JOIN Query - Players, PlayerGames and Games",
+                        "SELECT Players.FirstName, PlayerGames.Score, Games.GameName "
+                        + "FROM Players "
+                        + "JOIN PlayerGames ON Players.PlayerID = PlayerGames.PlayerID "
+                        + "JOIN Games ON PlayerGames.GameID = Games.GameID "
+                        + "ORDER BY Players.FirstName ASC", new Object[0]),
+                new DBQuerySuite.SuiteQuery("Prepared Statement Query - Games by Genre and Release Date",
+                        "SELECT * FROM Games WHERE Genre = ? AND ReleaseDate > ?",
+                        new Object[] {"Action-Adventure", "1985-01-01"})));
     }
     
+    /*****************************************************************/
+    /*                       UTILITY METHODS                         */
+    /*****************************************************************/
+    
     /**
-     * Execute a JOIN query and display the results
+     * Load the scripts and CSV files in src/main/resources/sql into a new database file, which the
+     * rest of the run then uses, so the sample database is never written to
      */
-    private void executeJoinQuery() {
-        String query = "SELECT Players.FirstName, PlayerGames.Score, Games.GameName "
-                + "FROM Players "
-                + "JOIN PlayerGames ON Players.PlayerID = PlayerGames.PlayerID "
-                + "JOIN Games ON PlayerGames.GameID = Games.GameID "
-                + "ORDER BY Players.FirstName ASC";
+    private void importResources() {
+        Path target = Path.of(System.getProperty(DBImporter.IMPORT_TARGET_PROPERTY, DBImporter.DEFAULT_IMPORT_TARGET));
+        try {
+            // Start from an empty file each time (SQLite opens an empty file as a new database)
+            if (target.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(target.toAbsolutePath().getParent());
+            }
+            for (String suffix : new String[] {"", "-wal", "-shm"}) {
+                Files.deleteIfExists(Path.of(target + suffix));
+            }
+            Files.createFile(target);
+        } catch (IOException e) {
+            System.err.println("Could not create import target " + target + ": " + e.getMessage());
+            return;
+        }
+        System.out.println("Importing into " + target);
+        dbFilePath = target.toString();
+        pool = DBConnectionPool.getPool(dbFilePath);
         
-        ResultSet resultSet = DBCommand.executeQuery(conn, query);
-        DBOutputFormatter.showGenericQueryResult("Players' Scores by Game", resultSet);
+        Connection importConn = pool.borrow();
+        if (importConn != null) {
+            if (!DBImporter.importResources(importConn)) {
+                System.err.println("Import stopped at the first failure");
+            }
+            pool.release(importConn);
+        }
     }
     
     /**
-     * Execute a query using a prepared statement and display the results
+     * Report indexes that would speed up the queries run so far (kept only with -Ddbs1.applyIndexAdvice=true)
      */
-    private void executePreparedStatementQuery() {
-        String query = "SELECT * FROM Games WHERE Genre = ? AND ReleaseDate > ?";
-        Object[] params = {"Action-Adventure", "1985-01-01"};
-           
-        ResultSet resultSet = DBCommand.executePreparedQuery(conn, query, params);
-        DBOutputFormatter.showGenericQueryResult("Action-Adventure Games Released After 1985", resultSet);
+    private void adviseIndexes() {
+        boolean apply = Boolean.getBoolean(DBIndexAdvisor.APPLY_PROPERTY);
+        // A connection of its own, as the advice is tried (and undone) in a transaction
+        Connection adviceConn = DBConnect.connect(dbFilePath);
+        if (adviceConn != null) {
+            DBIndexAdvisor.printReport(DBIndexAdvisor.advise(adviceConn, apply), apply);
+            DBConnect.disconnect(adviceConn);
+        }
     }
     
-    /*****************************************************************/
-    /*                       UTILITY METHODS                         */
-    /*****************************************************************/
-    
     /**
-     * Print a formatted header for each query
-     * @param queryNumber The sequential number of the query
-     * @param description A brief description of the query
+     * Runs a query and returns the first column of its first row, closing the statement afterwards
+     * so nothing is left open on the pooled connection
+     * @param conn Connection object
+     * @param query SQL query to execute
+     * @return String first value, or null if the query failed or returned no rows
      */
-    private void printQueryHeader(int queryNumber, String description) {
-        System.out.println("\n/*************************************************************************/");
-        System.out.println("/* QUERY " + queryNumber + ": " + description);
-        System.out.println("/*************************************************************************/");
+    private String queryFirstValue(Connection conn, String query) throws SQLException {
+        ResultSet rs = DBCommand.executeQuery(conn, query);
+        if (rs == null) {
+            return null;
+        }
+        Statement statement = rs.getStatement();
+        try (rs) {
+            return rs.next() ? rs.getString(1) : null;
+        } finally {
+            if (statement != null) {
+                statement.close();
+            }
+        }
     }
+    
     /**
      * Test method to see if our NetBeans project is properly setup
      */
@@ -127,26 +208,26 @@ public class Main {
         Connection testConn = null;
         try {
             System.out.println("Testing SQLite connection...");
-            testConn = DBConnect.connect(dbFilePath);
+            testConn = pool.borrow();
 
             if (testConn != null) {
                 System.out.println("Connection successful!");
+                
+                // Display the connection profile and the settings SQLite actually applied
+                System.out.println("Connection profile: " + DBConnectionProfile.active().describe());
+                for (String pragma : new String[] {"journal_mode", "synchronous", "cache_size", "mmap_size", "temp_store", "busy_timeout"}) {
+                    System.out.println("  " + pragma + " = " + queryFirstValue(testConn, "PRAGMA " + pragma));
+                }
 
                 // Display the SQLite version
-                ResultSet rs = DBCommand.executeQuery(testConn, "SELECT sqlite_version()");
-                if (rs.next()) {
-                    System.out.println("SQLite Version: " + rs.getString(1));
-                }
+                System.out.println("SQLite Version: " + queryFirstValue(testConn, "SELECT sqlite_version()"));
 
-                // Display database schema
                 return true;
             }
         } catch (Exception e) {
             System.err.println("Test connection failed: " + e.getMessage());
         } finally {
-            if (testConn != null) {
-                DBConnect.disconnect(testConn);
-            }
+            pool.release(testConn);
         }
         return false;
     }
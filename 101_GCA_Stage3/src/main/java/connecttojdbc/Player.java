@@ -0,0 +1,18 @@
+
+import java.time.LocalDate;
+
+/**
+ * This record is used to hold one row of the players table
+ * @since 16/10/2026
+ * @see RecordMapper
+ * @param playerId Unique ID of the player
+ * @param firstName First name of the player
+ * @param lastName Last name of the player
+ * @param email Email address of the player
+ * @param birthdate Date of birth of the player
+ */
+public record Player(int playerId, String firstName, String lastName, String email, LocalDate birthdate) {
+
+    // Maps rows with PlayerID, FirstName, LastName, Email and Birthdate columns to Player records
+    public static final RecordMapper<Player> MAPPER = RecordMapper.of(Player.class);
+}
@@ -0,0 +1,17 @@
+
+import java.time.LocalDate;
+
+/**
+ * This record is used to hold one row of the playergames table (one score of a player in a game)
+ * @since 16/10/2026
+ * @see RecordMapper
+ * @param playerId ID of the player
+ * @param gameId ID of the game
+ * @param playDate Date the game was played
+ * @param score Score the player reached
+ */
+public record PlayerGame(int playerId, int gameId, LocalDate playDate, int score) {
+
+    // Maps rows with PlayerID, GameID, PlayDate and Score columns to PlayerGame records
+    public static final RecordMapper<PlayerGame> MAPPER = RecordMapper.of(PlayerGame.class);
+}
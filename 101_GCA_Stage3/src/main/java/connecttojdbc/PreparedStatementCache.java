@@ -0,0 +1,168 @@
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is used to cache compiled PreparedStatements for a connection, keyed by SQL text,
+ * so that repeated parameterized queries are only parsed and planned by SQLite once.
+ * Each connection has its own least-recently-used cache; evicted statements are closed.
+ *
+ * Note: re-using a statement closes any ResultSet previously returned from it, so read
+ * each ResultSet fully before running the same SQL again on the same connection.
+ * @since 16/10/2026
+ * @see DBCommand
+ */
+public class PreparedStatementCache {
+
+    // Default number of statements cached per connection
+    public static final int DEFAULT_MAX_SIZE = 32;
+
+    // One cache per connection (removed by DBConnect.disconnect)
+    private static final Map<Connection, PreparedStatementCache> caches = new IdentityHashMap<>();
+
+    // Cache size used for caches created from now on
+    private static volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    // Hit/miss counters across all connections
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+
+    private final Connection conn;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    /**
+     * Creates an LRU cache for one connection
+     * @param conn Connection the statements belong to
+     * @param size Maximum number of statements to keep open
+     */
+    private PreparedStatementCache(Connection conn, int size) {
+        this.conn = conn;
+        // Access order makes the eldest entry the least recently used one
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > size) {
+                    closeQuietly(eldest.getValue());
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a prepared statement for the SQL text, compiling it only on the first call
+     * for this connection. The statement is owned by the cache and must not be closed by the caller.
+     * @param conn Connection object
+     * @param query Parameterized SQL query
+     * @return PreparedStatement ready for its parameters to be set
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public static PreparedStatement prepare(Connection conn, String query) throws SQLException {
+        PreparedStatementCache cache;
+        synchronized (caches) {
+            cache = caches.computeIfAbsent(conn, c -> new PreparedStatementCache(c, maxSize));
+        }
+        return cache.get(query);
+    }
+
+    /**
+     * Closes and forgets all cached statements for a connection (call before closing it)
+     * @param conn Connection object
+     */
+    public static void remove(Connection conn) {
+        PreparedStatementCache cache;
+        synchronized (caches) {
+            cache = caches.remove(conn);
+        }
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Sets the number of statements cached per connection. Only affects caches created afterwards.
+     * @param size Maximum number of statements per connection
+     */
+    public static void setMaxSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1: " + size);
+        }
+        maxSize = size;
+    }
+
+    /**
+     * @return long number of times a cached statement was reused
+     */
+    public static long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return long number of times a statement had to be compiled
+     */
+    public static long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Prints the cache hit/miss counters
+     */
+    public static void printStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        System.out.println("Prepared statement cache hits: " + h
+                + ", misses: " + m
+                + ", evictions: " + evictions.sum()
+                + String.format(", hit rate: %.1f%%", (h + m) == 0 ? 0.0 : 100.0 * h / (h + m)));
+    }
+
+    /**
+     * Looks up or compiles the statement for the SQL text
+     * @param query Parameterized SQL query
+     * @return PreparedStatement for the query
+     * @throws SQLException if the statement cannot be prepared
+     */
+    private synchronized PreparedStatement get(String query) throws SQLException {
+        PreparedStatement prepStmt = statements.get(query);
+        if (prepStmt != null && !prepStmt.isClosed()) {
+            hits.increment();
+            prepStmt.clearParameters();
+            return prepStmt;
+        }
+
+        misses.increment();
+        prepStmt = conn.prepareStatement(query);
+        statements.put(query, prepStmt);
+        return prepStmt;
+    }
+
+    /**
+     * Closes every cached statement
+     */
+    private synchronized void clear() {
+        for (PreparedStatement prepStmt : statements.values()) {
+            closeQuietly(prepStmt);
+        }
+        statements.clear();
+    }
+
+    /**
+     * Closes a statement without reporting errors
+     * @param prepStmt PreparedStatement to close
+     */
+    private static void closeQuietly(PreparedStatement prepStmt) {
+        try {
+            prepStmt.close();
+        } catch (SQLException e) {
+            // statement is being discarded anyway
+        }
+    }
+}
@@ -0,0 +1,295 @@
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is used to turn ResultSet rows into Java records without any per-row reflection or
+ * column name lookups. Each record component is matched to the column with the same name (ignoring
+ * case and underscores, so gameId matches GameID), and the column indices are resolved once per
+ * column layout by bindTo(). The row reader is then a single MethodHandle that calls the primitive getter for each
+ * component (getInt for an int, getDouble for a double, ...) and passes the values straight to the
+ * record's constructor, so primitive columns are never boxed.
+ *
+ * Mappers are thread safe and meant to be created once and kept, e.g.
+ * {@code public static final RecordMapper<Game> MAPPER = RecordMapper.of(Game.class);}
+ * To map many rows, call bindTo() once per ResultSet and map each row with the mapper it returns;
+ * mapRow() on the shared mapper looks the column layout up again for every row.
+ * @since 16/10/2026
+ * @see RowMapper
+ * @see Game
+ * @param <T> Record type created for each row
+ */
+public final class RecordMapper<T extends Record> implements RowMapper<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    // Type every bound row reader is adapted to, so it can be called with invokeExact
+    private static final MethodType READER_TYPE = MethodType.methodType(Object.class, ResultSet.class);
+
+    // Upper limit on the number of distinct column layouts remembered per mapper
+    private static final int MAX_BINDINGS = 64;
+
+    private final Class<T> recordType;
+    private final RecordComponent[] components;
+    private final MethodHandle constructor;
+
+    // Row readers already built, by column layout (column labels joined with commas)
+    private final Map<String, MethodHandle> bindingsByLayout = new ConcurrentHashMap<>();
+
+    /**
+     * @param recordType Record class to create
+     * @param components Components of the record, in constructor order
+     * @param constructor Canonical constructor of the record
+     */
+    private RecordMapper(Class<T> recordType, RecordComponent[] components, MethodHandle constructor) {
+        this.recordType = recordType;
+        this.components = components;
+        this.constructor = constructor;
+    }
+
+    /**
+     * Creates a mapper for a record class (the class must be accessible from this class)
+     * @param <T> Record type
+     * @param recordType Record class to create for each row
+     * @return RecordMapper for the record
+     * @throws IllegalArgumentException if the record's constructor cannot be accessed
+     */
+    public static <T extends Record> RecordMapper<T> of(Class<T> recordType) {
+        RecordComponent[] components = recordType.getRecordComponents();
+        Class<?>[] types = new Class<?>[components.length];
+        for (int i = 0; i < components.length; i++) {
+            types[i] = components[i].getType();
+        }
+        try {
+            MethodHandle constructor = LOOKUP.unreflectConstructor(recordType.getDeclaredConstructor(types));
+            return new RecordMapper<>(recordType, components, constructor);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot access the constructor of " + recordType.getName(), e);
+        }
+    }
+
+    /**
+     * Maps the current row to a record, looking up the row reader for the ResultSet's columns first
+     * (use bindTo() when mapping more than one row)
+     * @param resultSet ResultSet positioned on the row to map
+     * @return T record for the row
+     * @throws SQLException if a column is missing or cannot be read
+     */
+    @Override
+    public T mapRow(ResultSet resultSet) throws SQLException {
+        return read(bind(resultSet.getMetaData()), resultSet);
+    }
+
+    /**
+     * Returns a mapper for the rows of one ResultSet, with the columns bound once. The mapper only
+     * holds the row reader, not the ResultSet, and may be used for any ResultSet with the same columns.
+     * @param resultSet ResultSet whose rows will be mapped
+     * @return RowMapper for the rows of that ResultSet
+     * @throws SQLException if a record component has no matching column
+     */
+    @Override
+    public RowMapper<T> bindTo(ResultSet resultSet) throws SQLException {
+        MethodHandle reader = bind(resultSet.getMetaData());
+        return rs -> read(reader, rs);
+    }
+
+    /**
+     * Runs a row reader on the current row
+     * @param reader MethodHandle built by buildReader()
+     * @param resultSet ResultSet positioned on the row to map
+     * @return T record for the row
+     * @throws SQLException if a column cannot be read
+     */
+    private T read(MethodHandle reader, ResultSet resultSet) throws SQLException {
+        try {
+            return recordType.cast((Object) reader.invokeExact(resultSet));
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SQLException("Could not map row to " + recordType.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Returns the row reader for a column layout, building it if it has not been seen before
+     * @param metaData ResultSetMetaData of the query
+     * @return MethodHandle of type (ResultSet)Object that reads one row
+     * @throws SQLException if a record component has no matching column
+     */
+    private MethodHandle bind(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        StringBuilder layout = new StringBuilder();
+        Map<String, Integer> columnIndices = new HashMap<>();
+        for (int i = 1; i <= columnCount; i++) {
+            String label = metaData.getColumnLabel(i);
+            layout.append(label).append(',');
+            // The first of two columns with the same name wins, as with ResultSet.findColumn()
+            columnIndices.putIfAbsent(normalize(label), i);
+        }
+
+        MethodHandle reader = bindingsByLayout.get(layout.toString());
+        if (reader == null) {
+            reader = buildReader(columnIndices);
+            if (bindingsByLayout.size() >= MAX_BINDINGS) {
+                bindingsByLayout.clear();
+            }
+            bindingsByLayout.put(layout.toString(), reader);
+        }
+        return reader;
+    }
+
+    /**
+     * Builds constructor(get1(rs), get2(rs), ...) as a single MethodHandle
+     * @param columnIndices Column index by normalized column name
+     * @return MethodHandle of type (ResultSet)Object that reads one row
+     * @throws SQLException if a record component has no matching column
+     */
+    private MethodHandle buildReader(Map<String, Integer> columnIndices) throws SQLException {
+        MethodHandle[] getters = new MethodHandle[components.length];
+        for (int i = 0; i < components.length; i++) {
+            Integer index = columnIndices.get(normalize(components[i].getName()));
+            if (index == null) {
+                throw new SQLException("No column for " + recordType.getSimpleName() + "." + components[i].getName());
+            }
+            getters[i] = getterFor(components[i].getType(), index);
+        }
+
+        // (ResultSet, ResultSet, ...) -> T, then feed the same ResultSet to every getter
+        MethodHandle reader = MethodHandles.filterArguments(constructor, 0, getters);
+        reader = components.length == 0
+                ? MethodHandles.dropArguments(reader, 0, ResultSet.class)
+                : MethodHandles.permuteArguments(reader, MethodType.methodType(recordType, ResultSet.class),
+                        new int[components.length]);
+        return reader.asType(READER_TYPE);
+    }
+
+    /**
+     * Returns a MethodHandle that reads one column with the getter for the component's type
+     * @param type Type of the record component
+     * @param index Column index (1-based)
+     * @return MethodHandle of type (ResultSet)type
+     * @throws SQLException if the getter cannot be found
+     */
+    private static MethodHandle getterFor(Class<?> type, int index) throws SQLException {
+        try {
+            MethodHandle getter;
+            if (type == int.class) {
+                getter = resultSetGetter("getInt", int.class);
+            } else if (type == long.class) {
+                getter = resultSetGetter("getLong", long.class);
+            } else if (type == double.class) {
+                getter = resultSetGetter("getDouble", double.class);
+            } else if (type == float.class) {
+                getter = resultSetGetter("getFloat", float.class);
+            } else if (type == boolean.class) {
+                getter = resultSetGetter("getBoolean", boolean.class);
+            } else if (type == String.class) {
+                getter = resultSetGetter("getString", String.class);
+            } else if (type == byte[].class) {
+                getter = resultSetGetter("getBytes", byte[].class);
+            } else if (type == BigDecimal.class) {
+                getter = resultSetGetter("getBigDecimal", BigDecimal.class);
+            } else if (type == Integer.class || type == Long.class || type == Double.class || type == LocalDate.class) {
+                getter = LOOKUP.findStatic(RecordMapper.class, "get" + type.getSimpleName(),
+                        MethodType.methodType(type, ResultSet.class, int.class));
+            } else {
+                // Anything else is left to the driver's own conversion
+                getter = MethodHandles.insertArguments(
+                        resultSetGetter("getObject", Object.class, Class.class), 2, type).asType(
+                        MethodType.methodType(type, ResultSet.class, int.class));
+            }
+            return MethodHandles.insertArguments(getter, 1, index);
+        } catch (ReflectiveOperationException e) {
+            throw new SQLException("No ResultSet getter for " + type.getName(), e);
+        }
+    }
+
+    /**
+     * @param name Name of the ResultSet getter
+     * @param returnType Return type of the getter
+     * @param extraTypes Parameter types after the column index
+     * @return MethodHandle of type (ResultSet, int, extraTypes...)returnType
+     * @throws ReflectiveOperationException if the getter does not exist
+     */
+    private static MethodHandle resultSetGetter(String name, Class<?> returnType, Class<?>... extraTypes)
+            throws ReflectiveOperationException {
+        return LOOKUP.findVirtual(ResultSet.class, name,
+                MethodType.methodType(returnType, int.class).appendParameterTypes(extraTypes));
+    }
+
+    /**
+     * @param name Column or record component name
+     * @return String name in lower case without underscores
+     */
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    /*****************************************************************/
+    /*                       NULLABLE GETTERS                        */
+    /*****************************************************************/
+
+    /**
+     * @param resultSet ResultSet positioned on a row
+     * @param index Column index (1-based)
+     * @return Integer column value, or null if the column is NULL
+     * @throws SQLException if the column cannot be read
+     */
+    private static Integer getInteger(ResultSet resultSet, int index) throws SQLException {
+        int value = resultSet.getInt(index);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    /**
+     * @param resultSet ResultSet positioned on a row
+     * @param index Column index (1-based)
+     * @return Long column value, or null if the column is NULL
+     * @throws SQLException if the column cannot be read
+     */
+    private static Long getLong(ResultSet resultSet, int index) throws SQLException {
+        long value = resultSet.getLong(index);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    /**
+     * @param resultSet ResultSet positioned on a row
+     * @param index Column index (1-based)
+     * @return Double column value, or null if the column is NULL
+     * @throws SQLException if the column cannot be read
+     */
+    private static Double getDouble(ResultSet resultSet, int index) throws SQLException {
+        double value = resultSet.getDouble(index);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    /**
+     * Reads an ISO date (yyyy-MM-dd, any time part is ignored), the way dates are stored as text in SQLite
+     * @param resultSet ResultSet positioned on a row
+     * @param index Column index (1-based)
+     * @return LocalDate column value, or null if the column is NULL
+     * @throws SQLException if the column cannot be read or is not a date
+     */
+    private static LocalDate getLocalDate(ResultSet resultSet, int index) throws SQLException {
+        String text = resultSet.getString(index);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text.length() > 10 ? text.substring(0, 10) : text);
+        } catch (DateTimeParseException e) {
+            throw new SQLException("Not a date in column " + index + ": " + text, e);
+        }
+    }
+}
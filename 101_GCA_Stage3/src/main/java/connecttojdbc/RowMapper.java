@@ -0,0 +1,33 @@
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * This interface is used to turn the current row of a ResultSet into an object
+ * @since 16/10/2026
+ * @see DBCommand
+ * @param <T> Type of object created for each row
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * Maps the row the ResultSet is currently positioned on (do not call next() here)
+     * @param resultSet ResultSet positioned on the row to map
+     * @return T object for the row
+     * @throws SQLException if a column cannot be read
+     */
+    T mapRow(ResultSet resultSet) throws SQLException;
+
+    /**
+     * Returns a mapper for the rows of one ResultSet, so work that only depends on its columns
+     * (e.g. looking up column indices) is done once rather than on every row. Call it once per
+     * ResultSet, before the first row, and map every row with the mapper it returns.
+     * @param resultSet ResultSet whose rows will be mapped
+     * @return RowMapper for the rows of that ResultSet (this mapper, unless it has per-query work)
+     * @throws SQLException if the columns cannot be read
+     */
+    default RowMapper<T> bindTo(ResultSet resultSet) throws SQLException {
+        return this;
+    }
+}
@@ -0,0 +1,30 @@
+
+import java.sql.SQLException;
+
+/**
+ * This class is used to pass an SQLException out of code that cannot throw checked exceptions,
+ * such as a Stream reading rows from an open ResultSet. Catch it to tell a failed read apart
+ * from one that reached the last row.
+ * @since 16/10/2026
+ * @see DBCommand#streamQuery(java.sql.Connection, String, Object[], RowMapper, int)
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message Description of what was being done
+     * @param cause SQLException thrown by the driver
+     */
+    public UncheckedSQLException(String message, SQLException cause) {
+        super(message + ": " + cause.getMessage(), cause);
+    }
+
+    /**
+     * @return SQLException thrown by the driver
+     */
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -0,0 +1,115 @@
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for DBColumnarSnapshot loading and refreshing against a temporary database
+ * @since 16/10/2026
+ */
+class DBColumnarSnapshotTest {
+
+    @TempDir
+    Path folder;
+
+    private String dbFilePath;
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFilePath = Files.createFile(folder.resolve("snapshot.sqlite")).toString();
+        conn = DBConnect.connect(dbFilePath);
+        assertNotNull(conn);
+        // No INTEGER PRIMARY KEY, so SQLite hands out rowids itself and reuses the largest after a delete
+        DBCommand.executeUpdate(conn, "CREATE TABLE scores (Name TEXT, Score INTEGER)");
+        DBCommand.executeUpdate(conn, "INSERT INTO scores VALUES ('a', 1), ('b', 2), ('c', 3)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        DBConnect.disconnect(conn);
+    }
+
+    @Test
+    void refreshWithoutChangesReadsNothing() {
+        try (DBColumnarSnapshot snapshot = scores()) {
+            assertEquals(3, snapshot.load(conn));
+            assertEquals(0, snapshot.refresh(conn));
+            assertEquals(3, snapshot.size());
+        }
+    }
+
+    @Test
+    void refreshSeesDeleteAndInsertThatReuseTheLastRowid() {
+        try (DBColumnarSnapshot snapshot = scores()) {
+            assertEquals(3, snapshot.load(conn));
+            DBCommand.executeUpdate(conn, "DELETE FROM scores WHERE Name = 'c'");
+            DBCommand.executeUpdate(conn, "INSERT INTO scores VALUES ('d', 40)");
+            assertEquals(0, snapshot.refresh(conn));
+            assertEquals(3, snapshot.size());
+            assertEquals("d", snapshot.getString("Name", 2));
+            assertEquals(40, snapshot.getInt("Score", 2));
+        }
+    }
+
+    @Test
+    void refreshSeesChangesMadeOnAnotherConnection() {
+        Connection writer = DBConnect.connect(dbFilePath);
+        assertNotNull(writer);
+        try (DBColumnarSnapshot snapshot = scores()) {
+            assertEquals(3, snapshot.load(conn));
+            DBCommand.executeUpdate(writer, "DELETE FROM scores WHERE Name = 'c'");
+            DBCommand.executeUpdate(writer, "INSERT INTO scores VALUES ('d', 40)");
+            assertEquals(0, snapshot.refresh(conn));
+            assertEquals("d", snapshot.getString("Name", 2));
+        } finally {
+            DBConnect.disconnect(writer);
+        }
+    }
+
+    @Test
+    void trackedTableAppendsInsertsAndReloadsAfterUpdates() {
+        try (DBColumnarSnapshot snapshot = scores()) {
+            assertTrue(snapshot.trackChanges(conn));
+            assertEquals(3, snapshot.load(conn));
+
+            DBCommand.executeUpdate(conn, "INSERT INTO scores VALUES ('d', 4), ('e', 5)");
+            assertEquals(2, snapshot.refresh(conn));
+            assertEquals(5, snapshot.size());
+            assertEquals(5, snapshot.getInt("Score", 4));
+
+            DBCommand.executeUpdate(conn, "UPDATE scores SET Score = 10 WHERE Name = 'a'");
+            assertEquals(0, snapshot.refresh(conn));
+            assertEquals(10, snapshot.getInt("Score", 0));
+
+            DBCommand.executeUpdate(conn, "DELETE FROM scores WHERE Name = 'e'");
+            DBCommand.executeUpdate(conn, "INSERT INTO scores VALUES ('f', 6)");
+            assertEquals(0, snapshot.refresh(conn));
+            assertEquals("f", snapshot.getString("Name", 4));
+
+            assertTrue(snapshot.untrackChanges(conn));
+            DBCommand.executeUpdate(conn, "INSERT INTO scores VALUES ('g', 7)");
+            assertEquals(1, snapshot.refresh(conn));
+            assertEquals(6, snapshot.size());
+        }
+    }
+
+    /*****************************************************************/
+    /*                       UTILITY METHODS                         */
+    /*****************************************************************/
+
+    private static DBColumnarSnapshot scores() {
+        return new DBColumnarSnapshot("scores")
+                .addColumn("Name", DBColumnarSnapshot.ColumnType.STRING)
+                .addColumn("Score", DBColumnarSnapshot.ColumnType.INT);
+    }
+}
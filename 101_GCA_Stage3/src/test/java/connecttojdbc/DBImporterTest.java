@@ -0,0 +1,138 @@
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for DBImporter loading scripts and CSV files into a temporary database
+ * @since 16/10/2026
+ */
+class DBImporterTest {
+
+    @TempDir
+    Path folder;
+
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        conn = DBConnect.connect(Files.createFile(folder.resolve("import.sqlite")).toString());
+        assertNotNull(conn);
+    }
+
+    @AfterEach
+    void tearDown() {
+        DBResultCache.setEnabled(false);
+        DBConnect.disconnect(conn);
+    }
+
+    @Test
+    void importSqlSplitsStatementsOutsideQuotesCommentsAndTriggers() throws IOException, SQLException {
+        Path script = write("script.sql", """
+                -- a comment; with a semicolon
+                BEGIN TRANSACTION;
+                CREATE TABLE notes (NoteID INTEGER PRIMARY KEY, Body TEXT);
+                CREATE TABLE counts (Total INTEGER);
+                INSERT INTO counts VALUES (0);
+                CREATE TRIGGER notes_count AFTER INSERT ON notes BEGIN
+                    UPDATE counts SET Total = Total + 1;
+                END;
+                /* block; comment */
+                INSERT INTO notes (Body) VALUES ('one; two');
+                INSERT INTO notes (Body) VALUES ('it''s');
+                COMMIT;
+                """);
+        assertTrue(DBImporter.importSql(conn, script, 2, 4, DBImporter.NO_PROGRESS) > 0);
+
+        assertEquals("one; two", readString("SELECT Body FROM notes WHERE NoteID = 1"));
+        assertEquals("it's", readString("SELECT Body FROM notes WHERE NoteID = 2"));
+        assertEquals(2, readCount("SELECT Total FROM counts"));
+    }
+
+    @Test
+    void importCsvLoadsQuotedFieldsAndNulls() throws IOException, SQLException {
+        DBCommand.executeUpdate(conn, "CREATE TABLE games (GameID INTEGER, GameName TEXT, Genre TEXT)");
+        Path csv = write("games.csv", String.join("\n",
+                "GameID,GameName,Genre",
+                "1,\"Chess, Deluxe\",",
+                "2,\"The \"\"Game\"\"\",\"\"",
+                "",
+                "3,Go,Strategy",
+                ""));
+        assertEquals(3, DBImporter.importCsv(conn, csv, "games", 2, 2, DBImporter.NO_PROGRESS));
+
+        assertEquals("Chess, Deluxe", readString("SELECT GameName FROM games WHERE GameID = 1"));
+        assertNull(readString("SELECT Genre FROM games WHERE GameID = 1"));
+        assertEquals("The \"Game\"", readString("SELECT GameName FROM games WHERE GameID = 2"));
+        assertEquals("", readString("SELECT Genre FROM games WHERE GameID = 2"));
+        assertEquals(3, readCount("SELECT COUNT(*) FROM games"));
+        assertEquals("integer", readString("SELECT typeof(GameID) FROM games WHERE GameID = 3"));
+    }
+
+    @Test
+    void failedCsvKeepsCommittedRowsAndInvalidatesCachedResults() throws IOException, SQLException {
+        DBCommand.executeUpdate(conn, "CREATE TABLE games (GameID INTEGER, GameName TEXT)");
+        DBResultCache.clear();
+        DBResultCache.setEnabled(true);
+        assertEquals(0, readCount("SELECT COUNT(*) FROM games"));
+
+        // Rows 1-4 are committed two at a time before the short fifth record stops the import
+        Path csv = write("games.csv", """
+                GameID,GameName
+                1,a
+                2,b
+                3,c
+                4,d
+                5
+                """);
+        assertEquals(-1, DBImporter.importCsv(conn, csv, "games", 2, 2, DBImporter.NO_PROGRESS));
+        assertEquals(4, readCount("SELECT COUNT(*) FROM games"));
+    }
+
+    @Test
+    void importResourcesRunsScriptsThenCsvFiles() throws IOException, SQLException {
+        Path resources = Files.createDirectory(folder.resolve("sql"));
+        Files.writeString(resources.resolve("populate.sql"), "INSERT INTO players VALUES (1, 'Ann');\n");
+        Files.writeString(resources.resolve("schema.sql"), "CREATE TABLE players (PlayerID INTEGER, FirstName TEXT);\n");
+        Files.writeString(resources.resolve("queries.sql"), "SELECT * FROM missing_table;\n");
+        Files.writeString(resources.resolve("players.csv"), "PlayerID,FirstName\n2,Bob\n");
+
+        assertTrue(DBImporter.importResources(conn, resources, DBImporter.NO_PROGRESS));
+        assertEquals(2, readCount("SELECT COUNT(*) FROM players"));
+    }
+
+    /*****************************************************************/
+    /*                       UTILITY METHODS                         */
+    /*****************************************************************/
+
+    private Path write(String name, String text) throws IOException {
+        return Files.writeString(folder.resolve(name), text, StandardCharsets.UTF_8);
+    }
+
+    private String readString(String query) throws SQLException {
+        try (ResultSet resultSet = DBCommand.executeQuery(conn, query)) {
+            assertTrue(resultSet.next());
+            return resultSet.getString(1);
+        }
+    }
+
+    private int readCount(String query) throws SQLException {
+        try (ResultSet resultSet = DBCommand.executeQuery(conn, query)) {
+            assertTrue(resultSet.next());
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for DBKeysetPager paging forwards and backwards through a temporary table
+ * @since 16/10/2026
+ */
+class DBKeysetPagerTest {
+
+    private static final RowMapper<Integer> PLAYER_ID = resultSet -> resultSet.getInt("PlayerID");
+
+    @TempDir
+    Path folder;
+
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        conn = DBConnect.connect(Files.createFile(folder.resolve("pager.sqlite")).toString());
+        assertNotNull(conn);
+        DBCommand.executeUpdate(conn, "CREATE TABLE players (PlayerID INTEGER PRIMARY KEY, Score INTEGER)");
+        for (int i = 1; i <= 10; i++) {
+            DBCommand.executePreparedUpdate(conn, "INSERT INTO players VALUES (?, ?)", new Object[] {i, i % 3});
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        DBConnect.disconnect(conn);
+    }
+
+    @Test
+    void pagesForwardAndBackWithTokens() {
+        DBKeysetPager<Integer> pager = new DBKeysetPager<>("SELECT PlayerID FROM players", null, 4, PLAYER_ID)
+                .orderBy("PlayerID", DBKeysetPager.Direction.ASC);
+
+        DBKeysetPager.Page<Integer> first = pager.first(conn);
+        assertEquals(List.of(1, 2, 3, 4), first.rows());
+        assertFalse(first.hasPrevious());
+        assertTrue(first.hasNext());
+
+        DBKeysetPager.Page<Integer> second = pager.fetch(conn, first.nextToken());
+        assertEquals(List.of(5, 6, 7, 8), second.rows());
+        assertTrue(second.hasPrevious());
+
+        DBKeysetPager.Page<Integer> third = pager.fetch(conn, second.nextToken());
+        assertEquals(List.of(9, 10), third.rows());
+        assertFalse(third.hasNext());
+
+        assertEquals(List.of(5, 6, 7, 8), pager.fetch(conn, third.previousToken()).rows());
+        assertEquals(List.of(1, 2, 3, 4), pager.fetch(conn, second.previousToken()).rows());
+        assertFalse(pager.fetch(conn, second.previousToken()).hasPrevious());
+    }
+
+    @Test
+    void lastPageHoldsTheFinalRowsInQueryOrder() {
+        DBKeysetPager<Integer> pager = new DBKeysetPager<>("SELECT PlayerID FROM players", null, 4, PLAYER_ID)
+                .orderBy("PlayerID", DBKeysetPager.Direction.ASC);
+
+        DBKeysetPager.Page<Integer> last = pager.last(conn);
+        assertEquals(List.of(7, 8, 9, 10), last.rows());
+        assertFalse(last.hasNext());
+        assertEquals(List.of(3, 4, 5, 6), pager.fetch(conn, last.previousToken()).rows());
+    }
+
+    @Test
+    void mixedDirectionsAndParametersVisitEveryRowOnce() {
+        DBKeysetPager<Integer> pager = new DBKeysetPager<>("SELECT PlayerID, Score FROM players WHERE PlayerID > ?",
+                new Object[] {1}, 3, PLAYER_ID)
+                .orderBy("Score", DBKeysetPager.Direction.DESC)
+                .orderBy("PlayerID", DBKeysetPager.Direction.ASC);
+
+        List<Integer> seen = new ArrayList<>();
+        String token = null;
+        do {
+            DBKeysetPager.Page<Integer> page = pager.fetch(conn, token);
+            seen.addAll(page.rows());
+            token = page.nextToken();
+        } while (token != null);
+        assertEquals(List.of(2, 5, 8, 4, 7, 10, 3, 6, 9), seen);
+    }
+
+    @Test
+    void emptyResultHasNoTokens() {
+        DBKeysetPager<Integer> pager = new DBKeysetPager<>("SELECT PlayerID FROM players WHERE Score > 5", null, 4,
+                PLAYER_ID).orderBy("PlayerID", DBKeysetPager.Direction.ASC);
+
+        DBKeysetPager.Page<Integer> page = pager.first(conn);
+        assertTrue(page.rows().isEmpty());
+        assertNull(page.nextToken());
+        assertNull(page.previousToken());
+    }
+
+    @Test
+    void tokenFromAnotherQueryIsRejected() {
+        DBKeysetPager<Integer> byId = new DBKeysetPager<>("SELECT PlayerID FROM players", null, 4, PLAYER_ID)
+                .orderBy("PlayerID", DBKeysetPager.Direction.ASC);
+        DBKeysetPager<Integer> byIdDescending = new DBKeysetPager<>("SELECT PlayerID FROM players", null, 4, PLAYER_ID)
+                .orderBy("PlayerID", DBKeysetPager.Direction.DESC);
+
+        String token = byId.first(conn).nextToken();
+        assertThrows(IllegalArgumentException.class, () -> byIdDescending.fetch(conn, token));
+        assertThrows(IllegalArgumentException.class, () -> byId.fetch(conn, "not a token"));
+    }
+}
@@ -0,0 +1,151 @@
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for DBResultCache, run through DBCommand against a temporary database
+ * @since 16/10/2026
+ */
+class DBResultCacheTest {
+
+    @TempDir
+    Path folder;
+
+    private String dbFilePath;
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFilePath = Files.createFile(folder.resolve("cache.sqlite")).toString();
+        conn = DBConnect.connect(dbFilePath);
+        assertNotNull(conn);
+        DBCommand.executeUpdate(conn, "CREATE TABLE items (ItemID INTEGER PRIMARY KEY, Name TEXT)");
+        for (int i = 1; i <= 100; i++) {
+            DBCommand.executePreparedUpdate(conn, "INSERT INTO items VALUES (?, ?)", new Object[] {i, "item " + i});
+        }
+        DBResultCache.clear();
+        DBResultCache.setEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        DBResultCache.setEnabled(false);
+        DBResultCache.setMaxBytes(DBResultCache.DEFAULT_MAX_BYTES);
+        DBConnect.disconnect(conn);
+    }
+
+    @Test
+    void tablesOfReadsSchemaQualifiedAndQuotedNames() {
+        Set<String> tables = DBResultCache.tablesOf("db",
+                "SELECT * FROM main.players p JOIN \"main\".\"games\" g ON g.GameID = p.GameID, [scores]");
+        assertEquals(Set.of("db|players", "db|games", "db|scores"), tables);
+    }
+
+    @Test
+    void nonDeterministicQueriesAreNotCacheable() throws SQLException {
+        assertTrue(DBResultCache.isCacheable(conn, "SELECT * FROM items", null));
+        assertFalse(DBResultCache.isCacheable(conn, "SELECT random() FROM items", null));
+        assertFalse(DBResultCache.isCacheable(conn, "SELECT date('now')", null));
+        assertFalse(DBResultCache.isCacheable(conn, "SELECT CURRENT_TIMESTAMP", null));
+        assertFalse(DBResultCache.isCacheable(conn, "SELECT last_insert_rowid()", null));
+        assertFalse(DBResultCache.isCacheable(conn, "SELECT date(?)", new Object[] {"now"}));
+        assertFalse(DBResultCache.isCacheable(conn, "UPDATE items SET Name = 'x'", null));
+
+        conn.setAutoCommit(false);
+        try {
+            assertFalse(DBResultCache.isCacheable(conn, "SELECT * FROM items", null));
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    @Test
+    void cachedResultHasAStatementAndTheSameRows() throws SQLException {
+        String query = "SELECT ItemID, Name FROM items ORDER BY ItemID";
+        try (ResultSet first = DBCommand.executeQuery(conn, query)) {
+            assertEquals(100, countRows(first));
+        }
+        try (ResultSet cached = DBCommand.executeQuery(conn, query)) {
+            assertNotNull(cached.getStatement());
+            assertTrue(cached.next());
+            assertEquals(1, cached.getInt("itemid"));
+            assertEquals("item 1", cached.getString(2));
+            assertEquals(99, countRows(cached));
+        }
+    }
+
+    @Test
+    void resultOverTheBudgetGivesEveryRow() throws SQLException {
+        DBResultCache.setMaxBytes(512);
+        String query = "SELECT ItemID FROM items ORDER BY ItemID";
+        for (int run = 0; run < 2; run++) {
+            try (ResultSet resultSet = DBCommand.executeQuery(conn, query)) {
+                int expected = 1;
+                while (resultSet.next()) {
+                    assertEquals(expected++, resultSet.getInt(1));
+                }
+                assertEquals(101, expected);
+            }
+        }
+    }
+
+    @Test
+    void updateInvalidatesCachedResult() throws SQLException {
+        String query = "SELECT COUNT(*) FROM items";
+        assertEquals(100, readCount(conn, query));
+        DBCommand.executeUpdate(conn, "DELETE FROM items WHERE ItemID > 50");
+        assertEquals(50, readCount(conn, query));
+    }
+
+    @Test
+    void commitInvalidatesResultsCachedDuringTheTransaction() throws SQLException {
+        String query = "SELECT COUNT(*) FROM items";
+        Connection reader = DBConnect.connect(dbFilePath);
+        assertNotNull(reader);
+        try {
+            assertEquals(100, readCount(reader, query));
+            conn.setAutoCommit(false);
+            DBCommand.executeUpdate(conn, "DELETE FROM items WHERE ItemID > 50");
+            // Another connection cannot see the delete yet, so this caches the old count again
+            assertEquals(100, readCount(reader, query));
+            conn.commit();
+            conn.setAutoCommit(true);
+            assertEquals(50, readCount(reader, query));
+        } finally {
+            DBConnect.disconnect(reader);
+        }
+    }
+
+    /*****************************************************************/
+    /*                       UTILITY METHODS                         */
+    /*****************************************************************/
+
+    private static int countRows(ResultSet resultSet) throws SQLException {
+        int count = 0;
+        while (resultSet.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static int readCount(Connection conn, String query) throws SQLException {
+        try (ResultSet resultSet = DBCommand.executeQuery(conn, query)) {
+            assertTrue(resultSet.next());
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for DBWorkloadRecorder logs written through DBCommand, and their replay by DBWorkloadReplay
+ * @since 16/10/2026
+ */
+class DBWorkloadRecorderTest {
+
+    private static final String INSERT = "INSERT INTO events (Name, Amount) VALUES (?, ?)";
+
+    @TempDir
+    Path folder;
+
+    private String dbFilePath;
+    private Connection conn;
+    private Path log;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFilePath = Files.createFile(folder.resolve("workload.sqlite")).toString();
+        conn = DBConnect.connect(dbFilePath);
+        assertNotNull(conn);
+        DBCommand.executeUpdate(conn, "CREATE TABLE events (Name TEXT, Amount REAL)");
+        log = folder.resolve("workload.wlog");
+    }
+
+    @AfterEach
+    void tearDown() {
+        DBWorkloadRecorder.stop();
+        DBConnect.disconnect(conn);
+    }
+
+    @Test
+    void valuesOfEveryTypeRoundTrip() {
+        Object[] params = {null, -5L, 2.5, "text", new byte[] {1, 2, 3}, true, false, new Object[] {7L, "nested"}};
+        assertTrue(DBWorkloadRecorder.start(log));
+        DBWorkloadRecorder.record(DBWorkloadRecorder.Kind.PREPARED_QUERY, "SELECT ?", params);
+        DBWorkloadRecorder.record(DBWorkloadRecorder.Kind.PREPARED_UPDATE, "UPDATE events SET Name = ?", null);
+        assertEquals(2, DBWorkloadRecorder.stop());
+        assertFalse(DBWorkloadRecorder.isRecording());
+
+        List<DBWorkloadRecorder.Event> events = DBWorkloadRecorder.read(log);
+        assertNotNull(events);
+        assertEquals(2, events.size());
+        assertArrayEquals(params, events.get(0).params());
+        assertEquals(Thread.currentThread().threadId(), events.get(0).threadId());
+        // Parameters set by a StatementBinder are not known
+        assertNull(events.get(1).params());
+        assertTrue(events.get(1).offsetNanos() >= events.get(0).offsetNanos());
+    }
+
+    @Test
+    void streamedAndBatchedStatementsAreRecorded() throws SQLException {
+        assertTrue(DBWorkloadRecorder.start(log));
+        List<Object[]> rows = List.of(new Object[] {"a", 1.5}, new Object[] {"b", null}, new Object[] {"c", 3.0});
+        int[] counts = DBCommand.executeBatchUpdate(conn, INSERT, rows, 2);
+        // One count per chunk: two rows, then the last one
+        assertArrayEquals(new int[] {2, 1}, counts);
+        try (Stream<String> names = DBCommand.streamQuery(conn, "SELECT Name FROM events WHERE Amount > ?",
+                new Object[] {1.0}, resultSet -> resultSet.getString(1), 0)) {
+            assertEquals(List.of("a", "c"), names.toList());
+        }
+        try (ResultSet resultSet = DBCommand.executeQuery(conn, "SELECT COUNT(*) FROM events")) {
+            assertTrue(resultSet.next());
+        }
+        assertEquals(4, DBWorkloadRecorder.stop());
+
+        List<DBWorkloadRecorder.Event> events = DBWorkloadRecorder.read(log);
+        assertNotNull(events);
+        assertEquals(List.of(DBWorkloadRecorder.Kind.BATCH_UPDATE, DBWorkloadRecorder.Kind.BATCH_UPDATE,
+                DBWorkloadRecorder.Kind.STREAM_QUERY, DBWorkloadRecorder.Kind.QUERY),
+                events.stream().map(DBWorkloadRecorder.Event::kind).toList());
+        // One event per chunk, each holding its rows
+        assertArrayEquals(new Object[] {new Object[] {"a", 1.5}, new Object[] {"b", null}}, events.get(0).params());
+        assertArrayEquals(new Object[] {new Object[] {"c", 3.0}}, events.get(1).params());
+        assertEquals(INSERT, events.get(1).query());
+        assertArrayEquals(new Object[] {1.0}, events.get(2).params());
+        assertNull(events.get(3).params());
+    }
+
+    @Test
+    void recordedWorkloadReplays() {
+        assertTrue(DBWorkloadRecorder.start(log));
+        DBCommand.executeBatchUpdate(conn, INSERT, List.of(new Object[] {"a", 1.0}, new Object[] {"b", 2.0}), 10);
+        DBCommand.executePreparedUpdate(conn, INSERT, new Object[] {"c", 3.0});
+        try (Stream<String> names = DBCommand.streamQuery(conn, "SELECT Name FROM events", null,
+                resultSet -> resultSet.getString(1), 0)) {
+            assertEquals(3, names.count());
+        }
+        DBWorkloadRecorder.stop();
+
+        List<DBWorkloadRecorder.Event> events = DBWorkloadRecorder.read(log);
+        assertNotNull(events);
+        DBWorkloadReplay.Report report = DBWorkloadReplay.replay(events, dbFilePath, 0, 1);
+        assertNotNull(report);
+        assertEquals(3, report.events());
+        assertEquals(3, report.executed());
+        assertEquals(0, report.failed());
+        assertEquals(0, report.skipped());
+    }
+}